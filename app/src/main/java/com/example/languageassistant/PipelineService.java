@@ -0,0 +1,785 @@
+package com.example.languageassistant;
+
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.app.Service;
+import android.content.Intent;
+import android.content.pm.ServiceInfo;
+import android.os.Binder;
+import android.os.Handler;
+import android.os.IBinder;
+import android.os.Looper;
+import android.speech.RecognizerIntent;
+import android.speech.SpeechRecognizer;
+import android.util.Log;
+import android.widget.Toast;
+
+import androidx.lifecycle.Observer;
+
+import com.example.languageassistant.utils.AudioCapture;
+import com.example.languageassistant.utils.ContinuousRecognizer;
+import com.example.languageassistant.utils.GeminiUtils;
+import com.example.languageassistant.utils.LanguageModelManager;
+import com.example.languageassistant.utils.LatencyTracer;
+import com.example.languageassistant.utils.MultiTargetTranslator;
+import com.example.languageassistant.utils.OrderedSegmentBuffer;
+import com.example.languageassistant.utils.PartialResultStabilizer;
+import com.example.languageassistant.utils.PcmCaptureStage;
+import com.example.languageassistant.utils.SegmentRecognizer;
+import com.example.languageassistant.utils.SentenceSplitter;
+import com.example.languageassistant.utils.StreamingTransliterator;
+import com.example.languageassistant.utils.TranscriptFileSink;
+import com.example.languageassistant.utils.TranslationPipeline;
+import com.example.languageassistant.utils.TranslationUtils;
+import com.example.languageassistant.utils.TranslatorPool;
+import com.example.languageassistant.utils.UltraliteSDKUtils;
+import com.example.languageassistant.utils.VoiceActivityDetector;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Owns everything that is slow to set up: glasses control, the speech recognizer, the
+ * translation pipeline and, through {@link TranslatorPool}, the warm ML Kit translators.
+ *
+ * {@link MainActivity} binds to it and is only a client: it reads the settings, starts and
+ * stops listening and shows what the service reports. The service is started as well as bound,
+ * so it outlives the activity when it is recreated or briefly in the background, and coming back
+ * needs no warm-up. While listening it runs in the foreground so the microphone and the glasses
+ * connection are kept when the screen is off.
+ */
+public class PipelineService extends Service {
+
+    private static final String TAG = "LanguageAssistantApp";
+    private static final String NOTIFICATION_CHANNEL_ID = "pipeline";
+    private static final int NOTIFICATION_ID = 1;
+    // Keep roughly the last few lines of a streamed caption; older text has scrolled away.
+    // Only new text is sent to the glasses, so trimming does not redraw them.
+    private static final int MAX_STREAMED_CAPTION_CHARS = 240;
+
+    public enum ListeningMode { TRANSLATE, ANSWER_QUESTION }
+
+    /** What to listen for, read from the activity's controls. */
+    public static final class Settings {
+        public ListeningMode mode = ListeningMode.TRANSLATE;
+        public String fromLanguage = "en";
+        public String toLanguage = "en";
+        public String displayLanguage = "en";
+        public String scrollingSpeed = "";
+        public String extraTargets = "";
+        public boolean streamingCaptions;
+        public boolean continuous;
+        public boolean onDeviceSegmentation;
+    }
+
+    /** The bound activity; called on the main thread. */
+    public interface Client {
+        void onListeningChanged(boolean listening);
+
+        /** The latest line of every extra target shown on the screen, or "" for none. */
+        void onExtraTargetsText(String text);
+    }
+
+    public class LocalBinder extends Binder {
+        public PipelineService getService() {
+            return PipelineService.this;
+        }
+    }
+
+    private final IBinder binder = new LocalBinder();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private Client client;
+    private Settings settings = new Settings();
+
+    // Speech Recognition
+    private ContinuousRecognizer speechRecognizer;
+    private Intent speechRecognizerIntent;
+    private boolean isListening = false;
+    // Utterance state per recognizer session; in continuous mode the next session starts
+    // before the previous one has delivered its result
+    private final Map<Integer, Utterance> utterances = new HashMap<>();
+    // On-device segmentation: our own voice activity detection decides where utterances end,
+    // and each segment is recognized from its captured audio
+    private AudioCapture audioCapture;
+    private SegmentRecognizer segmentRecognizer;
+
+    // Streaming captions: stable words from partial results are translated as they settle
+    private final OrderedSegmentBuffer captionSegments = new OrderedSegmentBuffer();
+    private final StringBuilder streamedCaption = new StringBuilder();
+    // Words of the current partial result the recognizer may still revise, shown untranslated
+    // in brackets after the caption and redrawn in place as they change
+    private String captionTail = "";
+    private boolean captionTailOnGlasses;
+
+    // Final results when captions are not streamed go through the staged translate pipeline
+    private TranslationPipeline translationPipeline;
+    private final StringBuilder pipelineCaption = new StringBuilder();
+
+    // Extra target languages every recognized utterance is also translated to, e.g. for a tour
+    // group, each with its own sink; the To language stays on the glasses
+    private final MultiTargetTranslator extraTargets = new MultiTargetTranslator();
+    private final List<TranscriptFileSink> transcriptSinks = new ArrayList<>();
+    private final Map<String, String> extraTargetLines = new LinkedHashMap<>();
+    private String extraTargetsConfig = "";
+
+    // The answer being streamed to the glasses; a new question cancels it
+    private GeminiUtils.AnswerStream currentAnswerStream;
+    private final StringBuilder streamedAnswer = new StringBuilder();
+    // The streamed text on the glasses and how much of it was sent; more of it is appended
+    private StringBuilder textOnGlasses;
+    private int textOnGlassesSent;
+
+    private final Observer<Boolean> sdkAvailableObserver = available -> {
+        if (available) {
+            Log.i(TAG, "Ultralite SDK is available via Utils.");
+            UltraliteSDKUtils.requestSdkControl();
+        } else {
+            Log.i(TAG, "Ultralite SDK is not available via Utils.");
+        }
+    };
+
+    private final Observer<Boolean> sdkControlledObserver = controlled -> {
+        if (!controlled && isListening) {
+            stopListening();
+        }
+    };
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        // Glasses control is taken once here and kept until the service is destroyed
+        UltraliteSDKUtils.init(getApplicationContext());
+        UltraliteSDKUtils.isSdkAvailable.observeForever(sdkAvailableObserver);
+        UltraliteSDKUtils.isSdkControlled.observeForever(sdkControlledObserver);
+        UltraliteSDKUtils.addEventListener();
+
+        NotificationChannel channel = new NotificationChannel(NOTIFICATION_CHANNEL_ID, "Live translation", NotificationManager.IMPORTANCE_LOW);
+        getSystemService(NotificationManager.class).createNotificationChannel(channel);
+
+        initializeSpeechRecognizer();
+    }
+
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        // Started so it survives the activity unbinding; stopped when the app is left without listening
+        return START_NOT_STICKY;
+    }
+
+    @Override
+    public IBinder onBind(Intent intent) {
+        return binder;
+    }
+
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        UltraliteSDKUtils.isSdkAvailable.removeObserver(sdkAvailableObserver);
+        UltraliteSDKUtils.isSdkControlled.removeObserver(sdkControlledObserver);
+        UltraliteSDKUtils.removeEventListener();
+        UltraliteSDKUtils.releaseControl();
+
+        if (currentAnswerStream != null) {
+            currentAnswerStream.cancel();
+        }
+        TranslatorPool.get().closeAll();
+
+        if (audioCapture != null) {
+            audioCapture.stop();
+            segmentRecognizer.destroy();
+        }
+
+        for (TranscriptFileSink sink : transcriptSinks) {
+            sink.close();
+        }
+
+        if (translationPipeline != null) {
+            translationPipeline.shutdown();
+        }
+
+        if (speechRecognizer != null) {
+            speechRecognizer.destroy();
+            Log.d(TAG, "SpeechRecognizer destroyed, " + speechRecognizer.getStats());
+        }
+    }
+
+    /** Sets or clears the bound activity and tells it the current state. */
+    public void setClient(Client client) {
+        this.client = client;
+        if (client != null) {
+            client.onListeningChanged(isListening);
+            client.onExtraTargetsText(String.join("\n", extraTargetLines.values()));
+        }
+    }
+
+    /**
+     * Takes new settings, e.g. another language pair, for the utterances still to come. While
+     * listening, the recognizer hears the new From language from its next session or segment.
+     */
+    public void updateSettings(Settings newSettings) {
+        settings = newSettings;
+        if (isListening && speechRecognizer != null) {
+            applyRecognizerExtras();
+            if (settings.mode == ListeningMode.TRANSLATE) {
+                configureExtraTargets(settings.fromLanguage, settings.extraTargets);
+            }
+        }
+    }
+
+    // The recognizer restarts each session, and each segment is recognized, with this same
+    // intent, so changing its extras in place reaches the next one
+    private void applyRecognizerExtras() {
+        // For "Answer" mode, we assume the question is asked in the "From Language".
+        speechRecognizerIntent.putExtra(RecognizerIntent.EXTRA_LANGUAGE, settings.fromLanguage);
+        boolean streaming = settings.mode == ListeningMode.TRANSLATE && settings.streamingCaptions;
+        speechRecognizerIntent.putExtra(RecognizerIntent.EXTRA_PARTIAL_RESULTS, streaming);
+    }
+
+    public boolean isListening() {
+        return isListening;
+    }
+
+    public boolean isRecognitionAvailable() {
+        return speechRecognizer != null;
+    }
+
+    private void initializeSpeechRecognizer() {
+        if (!SpeechRecognizer.isRecognitionAvailable(this)) {
+            Log.e(TAG, "Speech recognition is not available on this device.");
+            return;
+        }
+        speechRecognizerIntent = new Intent(RecognizerIntent.ACTION_RECOGNIZE_SPEECH);
+        speechRecognizerIntent.putExtra(RecognizerIntent.EXTRA_LANGUAGE_MODEL, RecognizerIntent.LANGUAGE_MODEL_FREE_FORM);
+        speechRecognizerIntent.putExtra(RecognizerIntent.EXTRA_PARTIAL_RESULTS, false);
+
+        speechRecognizer = new ContinuousRecognizer(this, new ContinuousRecognizer.Listener() {
+            @Override
+            public void onReadyForSpeech(int session) {
+                Log.d(TAG, "SpeechRecognizer: Ready for speech (" + settings.mode + ", session " + session + ")");
+                if (!speechRecognizer.isContinuous()) {
+                    Toast.makeText(PipelineService.this, "Listening...", Toast.LENGTH_SHORT).show();
+                }
+            }
+
+            @Override
+            public void onBeginningOfSpeech(int session) {
+                Log.d(TAG, "SpeechRecognizer: Beginning of speech");
+                utteranceFor(session).traceId = LatencyTracer.begin();
+            }
+
+            @Override
+            public void onEndOfSpeech(int session) {
+                Log.d(TAG, "SpeechRecognizer: End of speech");
+                Utterance utterance = utteranceFor(session);
+                if (utterance.traceId == LatencyTracer.NO_TRACE) {
+                    utterance.traceId = LatencyTracer.begin();
+                }
+                LatencyTracer.mark(utterance.traceId, LatencyTracer.Stage.SPEECH_END);
+                // isListening state is handled in onStopped
+            }
+
+            @Override
+            public void onError(int session, int error, boolean restarting) {
+                utterances.remove(session);
+                String errorMessage = getSpeechErrorMessage(error);
+                if (restarting) {
+                    // Silence and a busy recognizer are routine while listening continuously
+                    Log.d(TAG, "SpeechRecognizer: " + errorMessage + ", listening again");
+                    return;
+                }
+                Log.e(TAG, "SpeechRecognizer Error: " + errorMessage);
+                Toast.makeText(PipelineService.this, "Speech Error: " + errorMessage, Toast.LENGTH_LONG).show();
+            }
+
+            @Override
+            public void onResults(int session, List<String> matches) {
+                onUtteranceRecognized(session, matches);
+            }
+
+            @Override
+            public void onPartialResults(int session, List<String> partials) {
+                if (settings.mode != ListeningMode.TRANSLATE || !settings.streamingCaptions) {
+                    return;
+                }
+                Utterance utterance = utteranceFor(session);
+                String newlyStable = utterance.stabilizer.onPartial(partials.get(0));
+                Log.d(TAG, "SpeechRecognizer Partial: stable='" + newlyStable + "' tail='" + utterance.stabilizer.getUnstableTail() + "'");
+                streamCaptionSegment(newlyStable, utterance.traceId);
+                showCaptionTail(utterance.stabilizer.getUnstableTail(), utterance.traceId);
+            }
+
+            @Override
+            public void onStopped() {
+                Log.d(TAG, "SpeechRecognizer: stopped, " + speechRecognizer.getStats());
+                utterances.clear();
+                showCaptionTail("", LatencyTracer.NO_TRACE);
+                onListeningStopped();
+            }
+        });
+    }
+
+    private void onUtteranceRecognized(int session, List<String> matches) {
+        Utterance utterance = utterances.remove(session);
+        if (utterance == null) {
+            utterance = new Utterance();
+        }
+        if (!matches.isEmpty()) {
+            String recognizedText = matches.get(0);
+            Log.i(TAG, "SpeechRecognizer Result: " + recognizedText);
+            LatencyTracer.mark(utterance.traceId, LatencyTracer.Stage.RECOGNITION_RESULT);
+
+            if (settings.mode == ListeningMode.TRANSLATE && settings.streamingCaptions) {
+                // Only the words that were never committed from a partial are left to send; the
+                // tail gives way to them
+                showCaptionTail("", utterance.traceId);
+                streamCaptionSegment(utterance.stabilizer.onFinal(recognizedText), utterance.traceId);
+            } else if (settings.mode == ListeningMode.TRANSLATE) {
+                processSpeechResultForTranslation(recognizedText, utterance.traceId);
+            } else if (settings.mode == ListeningMode.ANSWER_QUESTION) {
+                processSpeechResultForAnswer(recognizedText, utterance.traceId);
+            }
+            if (settings.mode == ListeningMode.TRANSLATE && !extraTargets.getTargets().isEmpty()) {
+                // Each extra target translates the same sentences on its own
+                extraTargets.translate(recognizedText, settings.fromLanguage);
+            }
+        } else {
+            Log.w(TAG, "SpeechRecognizer: No speech recognized.");
+            Toast.makeText(this, "No speech recognized.", Toast.LENGTH_SHORT).show();
+        }
+        // The trace ends once its slices are sent and nothing more is marked
+    }
+
+    // Segment events arrive on the capture processing thread and are handled on the main thread
+    private void initializeOnDeviceSegmentation() {
+        segmentRecognizer = new SegmentRecognizer(this, AudioCapture.SAMPLE_RATE, new SegmentRecognizer.Listener() {
+            @Override
+            public void onSegmentRecognized(int segmentId, List<String> matches) {
+                onUtteranceRecognized(segmentId, matches);
+            }
+
+            @Override
+            public void onSegmentFailed(int segmentId, int error) {
+                utterances.remove(segmentId);
+                Log.d(TAG, "Segment " + segmentId + " not recognized: " + getSpeechErrorMessage(error));
+            }
+        });
+        audioCapture = new AudioCapture(new VoiceActivityDetector.Config(), new PcmCaptureStage.SegmentListener() {
+            @Override
+            public void onSpeechStart(PcmCaptureStage.Segment segment) {
+                final int segmentId = segment.getId();
+                final int traceId = LatencyTracer.begin();
+                mainHandler.post(() -> utteranceFor(segmentId).traceId = traceId);
+            }
+
+            @Override
+            public void onSegment(PcmCaptureStage.Segment segment) {
+                final int segmentId = segment.getId();
+                final short[] samples = segment.copySamples();
+                mainHandler.post(() -> {
+                    LatencyTracer.mark(utteranceFor(segmentId).traceId, LatencyTracer.Stage.SPEECH_END);
+                    segmentRecognizer.recognize(segmentId, samples);
+                });
+            }
+        });
+    }
+
+    private Utterance utteranceFor(int session) {
+        Utterance utterance = utterances.get(session);
+        if (utterance == null) {
+            utterance = new Utterance();
+            utterances.put(session, utterance);
+        }
+        return utterance;
+    }
+
+    /**
+     * Starts listening with {@code newSettings}. The caller has the RECORD_AUDIO permission and
+     * is in the foreground, which Android requires to start a microphone foreground service.
+     */
+    public void startListening(Settings newSettings) {
+        settings = newSettings;
+        if (isListening || speechRecognizer == null) {
+            return;
+        }
+        if (!Boolean.TRUE.equals(UltraliteSDKUtils.isSdkControlled.getValue())) {
+            Toast.makeText(this, "Vuzix glasses not controlled. Cannot start listening.", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        applyRecognizerExtras();
+        // Answers are for one question at a time, so only translation listens continuously
+        boolean continuous = settings.mode == ListeningMode.TRANSLATE && settings.continuous;
+        utterances.clear();
+        if (settings.mode == ListeningMode.TRANSLATE) {
+            configureExtraTargets(settings.fromLanguage, settings.extraTargets);
+            if (translationPipeline != null) {
+                translationPipeline.clear();
+            }
+        }
+        Log.d(TAG, "Starting listening in language: " + settings.fromLanguage + " for mode: " + settings.mode + (continuous ? " (continuous)" : ""));
+
+        // Segment audio can only be handed to the recognizer from Android 13
+        if (continuous && settings.onDeviceSegmentation && SegmentRecognizer.isSupported()) {
+            if (audioCapture == null) {
+                initializeOnDeviceSegmentation();
+            }
+            segmentRecognizer.setIntent(speechRecognizerIntent);
+            if (!audioCapture.start()) {
+                Toast.makeText(this, "Could not open the microphone", Toast.LENGTH_SHORT).show();
+                return;
+            }
+        } else {
+            speechRecognizer.start(speechRecognizerIntent, continuous);
+        }
+        isListening = true;
+        startForegroundForListening();
+        if (client != null) {
+            client.onListeningChanged(true);
+        }
+    }
+
+    public void stopListening() {
+        if (isListening && audioCapture != null && audioCapture.isRunning()) {
+            audioCapture.stop(); // The segment in progress is still recognized
+            onListeningStopped();
+        } else if (isListening) {
+            speechRecognizer.stop(); // Ends continuous listening; the utterance in progress still gets its result
+            Log.d(TAG, "Stopped listening manually.");
+        }
+        // onListeningStopped() will be called by onStopped
+    }
+
+    private void onListeningStopped() {
+        isListening = false;
+        stopForeground(STOP_FOREGROUND_REMOVE);
+        if (client != null) {
+            client.onListeningChanged(false);
+        } else {
+            stopSelf(); // The app was left while listening; nothing is waiting for the warm state
+        }
+    }
+
+    // The notification also brings the app back to the front
+    private void startForegroundForListening() {
+        Intent openApp = new Intent(this, MainActivity.class).addFlags(Intent.FLAG_ACTIVITY_SINGLE_TOP);
+        PendingIntent contentIntent = PendingIntent.getActivity(this, 0, openApp, PendingIntent.FLAG_IMMUTABLE);
+        Notification notification = new Notification.Builder(this, NOTIFICATION_CHANNEL_ID)
+                .setContentTitle(settings.mode == ListeningMode.TRANSLATE ? "Translating to your glasses" : "Answering on your glasses")
+                .setContentText(settings.fromLanguage + " → " + settings.toLanguage)
+                .setSmallIcon(R.mipmap.ic_launcher)
+                .setOngoing(true)
+                .setContentIntent(contentIntent)
+                .build();
+        // Only the microphone: the glasses link belongs to the Vuzix companion app, and the
+        // connectedDevice type would need Bluetooth permissions this app never requests
+        startForeground(NOTIFICATION_ID, notification, ServiceInfo.FOREGROUND_SERVICE_TYPE_MICROPHONE);
+    }
+
+    /** Recognizer, pipeline, extra target and capture statistics, one line each. */
+    public String getStats() {
+        String summary = "";
+        if (speechRecognizer != null) {
+            summary += "recognizer: " + speechRecognizer.getStats() + "\n";
+        }
+        if (translationPipeline != null) {
+            summary += translationPipeline.getStats();
+        }
+        if (!extraTargets.getTargets().isEmpty()) {
+            summary += extraTargets.getStats();
+        }
+        if (audioCapture != null) {
+            summary += "capture: " + audioCapture.getStats() + "\n" + "segments: " + segmentRecognizer.getStats() + "\n";
+        }
+        summary += GeminiUtils.getConversation().getStats() + "\n";
+        summary += GeminiUtils.getInstantAnswers().getStats() + "\n";
+        return summary;
+    }
+
+    // Parses e.g. "es:screen, fr:file" into extra targets; the sink defaults to the screen.
+    // Targets are only rebuilt when the list or the From language changes.
+    private void configureExtraTargets(String fromLanguageCode, String spec) {
+        String config = fromLanguageCode + "|" + spec.trim();
+        if (config.equals(extraTargetsConfig)) {
+            return;
+        }
+        extraTargetsConfig = config;
+        extraTargets.clearTargets();
+        for (TranscriptFileSink sink : transcriptSinks) {
+            sink.close();
+        }
+        transcriptSinks.clear();
+        extraTargetLines.clear();
+        if (client != null) {
+            client.onExtraTargetsText("");
+        }
+
+        List<String> languages = new ArrayList<>();
+        for (String entry : spec.split(",")) {
+            String[] parts = entry.trim().split(":");
+            final String language = parts[0].trim();
+            String sinkName = parts.length > 1 ? parts[1].trim() : "screen";
+            if (language.isEmpty()) {
+                continue;
+            }
+            MultiTargetTranslator.Sink sink;
+            if (sinkName.equals("file")) {
+                TranscriptFileSink fileSink = new TranscriptFileSink(new File(getFilesDir(), "transcript_" + language + ".txt"));
+                transcriptSinks.add(fileSink);
+                sink = fileSink;
+            } else if (sinkName.equals("screen")) {
+                sink = new ScreenTargetSink(language);
+            } else {
+                Toast.makeText(this, "Unknown output '" + sinkName + "' for " + language + "; use screen or file", Toast.LENGTH_SHORT).show();
+                continue;
+            }
+            extraTargets.addTarget(language, TranslationUtils.newTargetTranslator(this), sink);
+            languages.add(language);
+        }
+        LanguageModelManager.get(this).onExtraTargetsSelected(fromLanguageCode, languages);
+        Log.d(TAG, "Extra translation targets: " + languages);
+    }
+
+    // Keeps the latest utterance of one extra target as a line for the activity to show
+    private final class ScreenTargetSink implements MultiTargetTranslator.Sink {
+        private final String language;
+        private final StringBuilder utteranceText = new StringBuilder();
+        private int utterance;
+
+        ScreenTargetSink(String language) {
+            this.language = language;
+        }
+
+        @Override
+        public void onSegment(int utterance, String text) {
+            if (utterance != this.utterance) {
+                this.utterance = utterance;
+                utteranceText.setLength(0);
+            }
+            if (utteranceText.length() > 0) {
+                utteranceText.append(' ');
+            }
+            utteranceText.append(text);
+            extraTargetLines.put(language, language + ": " + utteranceText);
+            if (client != null) {
+                client.onExtraTargetsText(String.join("\n", extraTargetLines.values()));
+            }
+        }
+    }
+
+    // Translates one stable chunk of a streamed caption. A long chunk, such as a whole final
+    // result, is translated sentence by sentence so its first sentence shows while the rest are
+    // still being translated.
+    private void streamCaptionSegment(String segment, int traceId) {
+        if (segment == null || segment.isEmpty()) {
+            return;
+        }
+        for (String sentence : SentenceSplitter.split(segment)) {
+            translateCaptionPiece(sentence, traceId);
+        }
+    }
+
+    // Pieces may finish translating out of order, so captionSegments releases them in the order
+    // they were spoken.
+    private void translateCaptionPiece(String segment, int traceId) {
+        String fromLanguageCode = settings.fromLanguage;
+        String toLanguageCode = settings.toLanguage;
+        String displayLanguageCode = settings.displayLanguage;
+        final int sequence = captionSegments.nextSequence();
+
+        TranslationUtils.translateText(this, segment, fromLanguageCode, toLanguageCode, new TranslationUtils.TranslationCallback() {
+            @Override
+            public void onSuccess(String translatedText) {
+                LatencyTracer.mark(traceId, LatencyTracer.Stage.TRANSLATION);
+                TranslationUtils.transliterateForDisplay(PipelineService.this, translatedText, displayLanguageCode, new TranslationUtils.TranslationCallback() {
+                    @Override
+                    public void onSuccess(String displayText) {
+                        LatencyTracer.mark(traceId, LatencyTracer.Stage.TRANSLITERATION);
+                        captionSegments.complete(sequence, displayText, (seq, text) -> appendToStreamedCaption(text, traceId));
+                    }
+                    @Override
+                    public void onFailure(Exception e) {
+                        Log.e(TAG, "Transliteration failed for caption segment: " + e.getMessage());
+                        captionSegments.complete(sequence, null, (seq, text) -> appendToStreamedCaption(text, traceId));
+                    }
+                });
+            }
+            @Override
+            public void onFailure(Exception e) {
+                Log.e(TAG, "Translation failed for caption segment: " + e.getMessage());
+                captionSegments.complete(sequence, null, (seq, text) -> appendToStreamedCaption(text, traceId));
+            }
+        });
+    }
+
+    private void appendToStreamedCaption(String text, int traceId) {
+        if (streamedCaption.length() > 0) {
+            streamedCaption.append(' ');
+        }
+        streamedCaption.append(text);
+        int removed = trimToRecentText(streamedCaption);
+        if (textOnGlasses == streamedCaption) {
+            textOnGlassesSent = Math.max(0, textOnGlassesSent - removed);
+        }
+        sendStreamedText(streamedCaption, traceId);
+    }
+
+    // Drops whole words from the front until the text fits in MAX_STREAMED_CAPTION_CHARS and
+    // returns how many characters were removed
+    private static int trimToRecentText(StringBuilder text) {
+        if (text.length() <= MAX_STREAMED_CAPTION_CHARS) {
+            return 0;
+        }
+        int cut = text.indexOf(" ", text.length() - MAX_STREAMED_CAPTION_CHARS);
+        int removed = cut < 0 ? text.length() - MAX_STREAMED_CAPTION_CHARS : cut + 1;
+        text.delete(0, removed);
+        return removed;
+    }
+
+    private void showCaptionTail(String tail, int traceId) {
+        if (tail.equals(captionTail)) {
+            return;
+        }
+        captionTail = tail;
+        sendStreamedText(streamedCaption, traceId);
+    }
+
+    // Appends the unsent end of a streamed text to the glasses, so the lines already shown are
+    // not sent again. Switching between caption and answer replaces what is on the glasses.
+    private void sendStreamedText(StringBuilder text, int traceId) {
+        String tail = text == streamedCaption ? captionTail : "";
+        if (text.length() == 0 && tail.isEmpty() && !captionTailOnGlasses) {
+            return;
+        }
+        if (!tail.isEmpty() || captionTailOnGlasses) {
+            // The tail is not a prefix of what comes next, so the text is shown again; the glasses
+            // replace only the last lines, where the tail was
+            StringBuilder shown = new StringBuilder(text);
+            if (!tail.isEmpty()) {
+                shown.append(shown.length() > 0 ? " [" : "[").append(tail).append(']');
+            }
+            if (shown.length() == 0) {
+                UltraliteSDKUtils.clearGlassesDisplay(); // Only the tail was showing
+            } else {
+                UltraliteSDKUtils.reviseTextOnGlasses(shown.toString(), settings.scrollingSpeed, traceId);
+            }
+        } else if (textOnGlasses != text || textOnGlassesSent > text.length()) {
+            UltraliteSDKUtils.displayTextOnGlasses(text.toString(), settings.scrollingSpeed, traceId);
+        } else if (textOnGlassesSent < text.length()) {
+            UltraliteSDKUtils.appendTextOnGlasses(text.substring(textOnGlassesSent), settings.scrollingSpeed, traceId);
+        }
+        textOnGlasses = text;
+        textOnGlassesSent = text.length();
+        captionTailOnGlasses = !tail.isEmpty();
+    }
+
+    private void processSpeechResultForTranslation(String recognizedText, int traceId) {
+        String fromLanguageCode = settings.fromLanguage;
+        String toLanguageCode = settings.toLanguage;
+        String displayLanguageCode = settings.displayLanguage;
+
+        Log.d(TAG, "Processing for Translation: '" + recognizedText + "' from " + fromLanguageCode + " to " + toLanguageCode + ", display as " + displayLanguageCode);
+        Toast.makeText(this, "Recognized: " + recognizedText, Toast.LENGTH_SHORT).show();
+
+        if (!fromLanguageCode.equals(toLanguageCode)) {
+            LanguageModelManager.get(this).recordUsage(fromLanguageCode, toLanguageCode);
+        }
+        if (translationPipeline == null) {
+            translationPipeline = new TranslationPipeline(this, this::showPipelineCaption);
+        }
+        // Split, translated, transliterated and laid out off the main thread, then shown below
+        translationPipeline.submit(recognizedText, traceId, fromLanguageCode, toLanguageCode, displayLanguageCode);
+    }
+
+    private void showPipelineCaption(String caption, int traceId) {
+        if (textOnGlasses == pipelineCaption && !caption.startsWith(pipelineCaption.toString())) {
+            textOnGlasses = null; // Older words were trimmed from the front; redraw instead of appending
+        }
+        pipelineCaption.setLength(0);
+        pipelineCaption.append(caption);
+        sendStreamedText(pipelineCaption, traceId);
+    }
+
+    private void processSpeechResultForAnswer(String recognizedText, int traceId) {
+        String displayLanguageCode = settings.displayLanguage;
+        Log.d(TAG, "Processing for Answer: '" + recognizedText + "', display answers in " + displayLanguageCode + " script.");
+        Toast.makeText(this, "Question: " + recognizedText, Toast.LENGTH_SHORT).show();
+
+        // Only the latest question is worth answering
+        if (currentAnswerStream != null) {
+            currentAnswerStream.cancel();
+        }
+        streamedAnswer.setLength(0);
+        if (textOnGlasses == streamedAnswer) {
+            textOnGlasses = null; // The next answer replaces the previous one
+        }
+        // AI answers are assumed to be in English. Each segment is transliterated to the
+        // selected display script as it arrives and the answer so far is sent to the glasses.
+        final StreamingTransliterator answerTransliterator =
+                TranslationUtils.newStreamingTransliterator(this, displayLanguageCode, streamedAnswer);
+
+        currentAnswerStream = GeminiUtils.streamAiAnswer(recognizedText, new GeminiUtils.AiAnswerStreamCallback() {
+            @Override
+            public void onAnswerSegment(String segment) {
+                LatencyTracer.mark(traceId, LatencyTracer.Stage.GEMINI_FIRST_TOKEN);
+                try {
+                    answerTransliterator.append(segment);
+                } catch (IOException e) {
+                    Log.e(TAG, "Transliteration failed for an AI answer segment: " + e.getMessage());
+                    return;
+                }
+                LatencyTracer.mark(traceId, LatencyTracer.Stage.TRANSLITERATION);
+                sendStreamedText(streamedAnswer, traceId);
+            }
+
+            @Override
+            public void onAnswerComplete(String fullAnswer) {
+                LatencyTracer.mark(traceId, LatencyTracer.Stage.GEMINI_LAST_TOKEN);
+                if (fullAnswer.trim().isEmpty()) {
+                    Log.w(TAG, "Gemini returned no answer.");
+                    Toast.makeText(PipelineService.this, "No AI answer found.", Toast.LENGTH_SHORT).show();
+                    return;
+                }
+                try {
+                    answerTransliterator.finish();
+                } catch (IOException e) {
+                    Log.e(TAG, "Transliteration failed for an AI answer: " + e.getMessage());
+                }
+                Log.i(TAG, "Final transliterated AI answer: " + streamedAnswer);
+                sendStreamedText(streamedAnswer, traceId);
+                Toast.makeText(PipelineService.this, "AI Answer (on glasses): " + streamedAnswer, Toast.LENGTH_LONG).show();
+            }
+        }, new GeminiUtils.AiErrorCallback() {
+            @Override
+            public void onError(String errorMessage) {
+                Log.e(TAG, "Gemini AI Error: " + errorMessage);
+                Toast.makeText(PipelineService.this, "AI Error: " + errorMessage, Toast.LENGTH_LONG).show();
+            }
+        });
+    }
+
+    private String getSpeechErrorMessage(int error) {
+        switch (error) {
+            case SpeechRecognizer.ERROR_AUDIO: return "Audio recording error";
+            case SpeechRecognizer.ERROR_CLIENT: return "Client side error";
+            case SpeechRecognizer.ERROR_INSUFFICIENT_PERMISSIONS: return "Insufficient permissions";
+            case SpeechRecognizer.ERROR_NETWORK: return "Network error";
+            case SpeechRecognizer.ERROR_NETWORK_TIMEOUT: return "Network timeout";
+            case SpeechRecognizer.ERROR_NO_MATCH: return "No match";
+            case SpeechRecognizer.ERROR_RECOGNIZER_BUSY: return "Recognizer busy";
+            case SpeechRecognizer.ERROR_SERVER: return "Error from server";
+            case SpeechRecognizer.ERROR_SPEECH_TIMEOUT: return "No speech input";
+            default: return "Unknown speech recognition error";
+        }
+    }
+
+    // What is known about the utterance of one recognizer session
+    private static final class Utterance {
+        final PartialResultStabilizer stabilizer = new PartialResultStabilizer();
+        int traceId = LatencyTracer.NO_TRACE;
+    }
+}
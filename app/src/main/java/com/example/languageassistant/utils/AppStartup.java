@@ -0,0 +1,108 @@
+package com.example.languageassistant.utils;
+
+import android.content.Context;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Cold start, once per process. The heavy components (answer and translation caches on disk,
+ * the instant answer index, transliteration tables, the Gemini model, the language model
+ * manager) are each built once by their own lazy getter; this starts those getters in parallel
+ * on background threads as soon as the process starts, so by the time the user taps Run they
+ * are already warm and the main thread never waits on them. A task that fails is logged.
+ * Anything else the first frame does not need is queued with
+ * {@link StartupOrchestrator#afterFirstFrame}.
+ *
+ * Where the time went is kept in a {@link StartupTrace} and written to {@link #TRACE_FILE_NAME}.
+ */
+public final class AppStartup {
+
+    private static final String TAG = "AppStartup";
+    public static final String ANSWER_CACHE_FILE_NAME = "answer_cache.log";
+    // Written by hand (or pushed to the device) and compiled into the .idx file next to it
+    public static final String INSTANT_ANSWERS_FILE_NAME = "instant_answers.txt";
+    public static final String INSTANT_ANSWERS_INDEX_FILE_NAME = "instant_answers.idx";
+    public static final String TRACE_FILE_NAME = "startup.csv";
+    public static final String ACTIVITY_CREATED = "activity_created";
+    public static final String SERVICE_BOUND = "service_bound";
+    // Glasses controlled and the service bound: the Run button can be pressed
+    public static final String RUN_ENABLED = "run_enabled";
+    // Each task is mostly disk reads, so a few threads are enough to overlap them
+    private static final int STARTUP_THREADS = 3;
+
+    private static StartupOrchestrator orchestrator;
+    private static ThreadPoolExecutor executor;
+
+    private AppStartup() { }
+
+    /** Starts the background warm-up on first call; later calls return the same orchestrator. */
+    public static synchronized StartupOrchestrator begin(Context context) {
+        if (orchestrator != null) {
+            return orchestrator;
+        }
+        final Context appContext = context.getApplicationContext();
+        StartupTrace trace = new StartupTrace(SystemClock.uptimeMillis() - Process.getStartUptimeMillis());
+        final AtomicInteger count = new AtomicInteger();
+        executor = new ThreadPoolExecutor(STARTUP_THREADS, STARTUP_THREADS, 5, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    Thread t = new Thread(r, "Startup-" + count.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        // The threads are only needed while starting up
+        executor.allowCoreThreadTimeOut(true);
+        orchestrator = new StartupOrchestrator(trace, executor,
+                (name, error) -> Log.w(TAG, "Startup task " + name + " failed: " + error.getMessage(), error));
+
+        // Repeated questions are answered from this cache, which persists across restarts
+        orchestrator.inBackground("answer_cache",
+                () -> GeminiUtils.initializeAnswerCache(new File(appContext.getFilesDir(), ANSWER_CACHE_FILE_NAME)));
+        orchestrator.inBackground("instant_answers", () -> GeminiUtils.initializeInstantAnswers(
+                new File(appContext.getFilesDir(), INSTANT_ANSWERS_FILE_NAME),
+                new File(appContext.getFilesDir(), INSTANT_ANSWERS_INDEX_FILE_NAME)));
+        orchestrator.inBackground("translation_cache", () -> TranslationUtils.getTranslationCache(appContext));
+        orchestrator.inBackground("language_models", () -> LanguageModelManager.get(appContext));
+        orchestrator.inBackground("transliteration_tables", () -> TranslationUtils.preloadTransliterationTables(appContext));
+        orchestrator.inBackground("gemini_model", GeminiUtils::getGeminiModel);
+        return orchestrator;
+    }
+
+    public static synchronized StartupTrace getTrace() {
+        return orchestrator != null ? orchestrator.getTrace() : null;
+    }
+
+    /** Records {@code name} and, when it is {@link #RUN_ENABLED}, logs and writes the trace. */
+    public static void milestone(Context context, String name) {
+        StartupTrace trace = getTrace();
+        if (trace == null || trace.getMilestoneMs(name) >= 0) {
+            return;
+        }
+        trace.milestone(name);
+        if (!RUN_ENABLED.equals(name)) {
+            return;
+        }
+        final File file = new File(context.getApplicationContext().getFilesDir(), TRACE_FILE_NAME);
+        Log.i(TAG, "Cold start:\n" + trace.getSummary());
+        executor.execute(() -> {
+            try {
+                trace.exportTo(file);
+            } catch (IOException e) {
+                Log.w(TAG, "Could not export startup trace: " + e.getMessage());
+            }
+        });
+    }
+
+    /** Milestones and where the time went, or an empty string before startup began. */
+    public static String getSummary() {
+        StartupTrace trace = getTrace();
+        return trace != null ? "Startup (ms since process start):\n" + trace.getSummary() : "";
+    }
+}
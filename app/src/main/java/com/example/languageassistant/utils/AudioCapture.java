@@ -0,0 +1,112 @@
+package com.example.languageassistant.utils;
+
+import android.media.AudioFormat;
+import android.media.AudioRecord;
+import android.media.MediaRecorder;
+import android.util.Log;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Captures 16 kHz mono PCM from the microphone into a {@link PcmCaptureStage}.
+ *
+ * One thread reads the AudioRecord into a preallocated buffer and hands it to the stage's ring
+ * buffer; a second thread runs voice activity detection, so a slow segment listener never stalls
+ * the microphone. Segment listeners are called on that processing thread. The caller must hold
+ * the RECORD_AUDIO permission.
+ */
+public class AudioCapture {
+
+    private static final String TAG = "AudioCapture";
+    public static final int SAMPLE_RATE = 16000;
+    private static final int READ_SAMPLES = SAMPLE_RATE / 100; // 10 ms per read
+    private static final long IDLE_PARK_NANOS = 5_000_000;
+
+    private final PcmCaptureStage stage;
+    private volatile boolean running;
+    private Thread captureThread;
+    private Thread processingThread;
+
+    public AudioCapture(VoiceActivityDetector.Config config, PcmCaptureStage.SegmentListener listener) {
+        config.sampleRate = SAMPLE_RATE;
+        stage = new PcmCaptureStage(config, listener);
+    }
+
+    /** Returns false if the microphone could not be opened. */
+    public synchronized boolean start() {
+        if (running) {
+            return true;
+        }
+        int minBufferBytes = AudioRecord.getMinBufferSize(SAMPLE_RATE, AudioFormat.CHANNEL_IN_MONO, AudioFormat.ENCODING_PCM_16BIT);
+        // Room for a few reads, so a late read does not overrun the driver buffer
+        int bufferBytes = Math.max(minBufferBytes, READ_SAMPLES * 2 * 8);
+        final AudioRecord record = new AudioRecord(MediaRecorder.AudioSource.VOICE_RECOGNITION, SAMPLE_RATE,
+                AudioFormat.CHANNEL_IN_MONO, AudioFormat.ENCODING_PCM_16BIT, bufferBytes);
+        if (record.getState() != AudioRecord.STATE_INITIALIZED) {
+            Log.e(TAG, "AudioRecord could not be initialized");
+            record.release();
+            return false;
+        }
+        running = true;
+        captureThread = new Thread(() -> captureLoop(record), "AudioCapture");
+        captureThread.setPriority(Thread.MAX_PRIORITY);
+        processingThread = new Thread(this::processingLoop, "AudioSegmenter");
+        captureThread.start();
+        processingThread.start();
+        return true;
+    }
+
+    /** Stops capture and reports the segment in progress, if any. */
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            captureThread.join();
+            processingThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        captureThread = null;
+        processingThread = null;
+        Log.d(TAG, "Stopped: " + stage.getStats());
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public String getStats() {
+        return stage.getStats();
+    }
+
+    private void captureLoop(AudioRecord record) {
+        short[] buffer = new short[READ_SAMPLES];
+        try {
+            record.startRecording();
+            while (running) {
+                int read = record.read(buffer, 0, buffer.length);
+                if (read < 0) {
+                    Log.e(TAG, "AudioRecord read failed: " + read);
+                    break;
+                }
+                stage.write(buffer, 0, read);
+            }
+        } finally {
+            record.stop();
+            record.release();
+            running = false;
+        }
+    }
+
+    private void processingLoop() {
+        while (running) {
+            if (stage.process() == 0) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+        stage.process();
+        stage.flush();
+    }
+}
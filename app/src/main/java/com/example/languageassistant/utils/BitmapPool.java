@@ -0,0 +1,90 @@
+package com.example.languageassistant.utils;
+
+import android.graphics.Bitmap;
+
+import java.util.ArrayDeque;
+
+/**
+ * Pool of same-sized bitmaps for rendered text slices. Rendering a caption line reuses a
+ * returned bitmap instead of allocating a new one, which keeps long captioning sessions free of
+ * large-object allocations and the GC pauses they cause.
+ *
+ * The pool holds at most {@code maxBytes} of idle bitmaps; anything returned beyond that is
+ * recycled.
+ */
+public class BitmapPool {
+
+    private final int width;
+    private final int height;
+    private final Bitmap.Config config;
+    private final long maxBytes;
+    private final ArrayDeque<Bitmap> idle = new ArrayDeque<>();
+    private long idleBytes = 0;
+
+    private long created;
+    private long reused;
+    private long discarded;
+
+    public BitmapPool(int width, int height, Bitmap.Config config, long maxBytes) {
+        this.width = width;
+        this.height = height;
+        this.config = config;
+        this.maxBytes = maxBytes;
+    }
+
+    /** Returns a bitmap of the pool's size, cleared to {@code color}. */
+    public synchronized Bitmap acquire(int color) {
+        Bitmap bitmap = idle.pollFirst();
+        if (bitmap != null) {
+            idleBytes -= bitmap.getAllocationByteCount();
+            reused++;
+        } else {
+            bitmap = Bitmap.createBitmap(width, height, config);
+            created++;
+        }
+        bitmap.eraseColor(color);
+        return bitmap;
+    }
+
+    /** Gives a bitmap back. The caller must not touch it afterwards. */
+    public synchronized void release(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled()) {
+            return;
+        }
+        int bytes = bitmap.getAllocationByteCount();
+        if (bitmap.getWidth() != width || bitmap.getHeight() != height || bitmap.getConfig() != config
+                || idleBytes + bytes > maxBytes) {
+            discarded++;
+            bitmap.recycle();
+            return;
+        }
+        idle.addFirst(bitmap); // Most recently used first, it is the most likely to be cache-warm
+        idleBytes += bytes;
+    }
+
+    /** Recycles every idle bitmap, e.g. when the system is low on memory. */
+    public synchronized void clear() {
+        for (Bitmap bitmap : idle) {
+            bitmap.recycle();
+        }
+        idle.clear();
+        idleBytes = 0;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public synchronized long getIdleBytes() {
+        return idleBytes;
+    }
+
+    public synchronized String getStats() {
+        return "created=" + created + " reused=" + reused + " discarded=" + discarded
+                + " idle=" + idle.size() + " idleBytes=" + idleBytes;
+    }
+}
@@ -0,0 +1,358 @@
+package com.example.languageassistant.utils;
+
+import android.content.Context;
+import android.content.Intent;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.speech.RecognitionListener;
+import android.speech.SpeechRecognizer;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Keeps a {@link SpeechRecognizer} listening across utterances for long sessions.
+ *
+ * In continuous mode the next session is started on a second, already bound recognizer as soon
+ * as the current one reports end of speech, so the next utterance is captured while the last is
+ * still being recognized. Recognizers that finish are reused as the spare. Some recognition
+ * services allow only one session at a time; if the overlapped start is refused as busy,
+ * overlap is turned off and the next session starts as soon as the result arrives.
+ *
+ * Restarts after silence and errors are paced by a {@link RecognizerRestartPolicy}. The gap
+ * between the end of one capture and the next session being ready for speech is recorded in
+ * milliseconds. Everything here runs on the main thread, as SpeechRecognizer requires.
+ */
+public class ContinuousRecognizer {
+
+    private static final String TAG = "ContinuousRecognizer";
+
+    /** Callbacks carry the session id, so a result can be matched to its utterance state. */
+    public interface Listener {
+        default void onReadyForSpeech(int session) { }
+        default void onBeginningOfSpeech(int session) { }
+        default void onEndOfSpeech(int session) { }
+        default void onPartialResults(int session, List<String> partials) { }
+        void onResults(int session, List<String> matches);
+        /** {@code restarting} is false when the error ended listening. */
+        void onError(int session, int error, boolean restarting);
+        /** Listening has ended and every session has delivered its result or error. */
+        default void onStopped() { }
+    }
+
+    private final Context context;
+    private final Listener listener;
+    private final RecognizerRestartPolicy policy = new RecognizerRestartPolicy();
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable restart = this::startSession;
+
+    private Intent intent;
+    private boolean continuous;
+    private boolean running;
+    private boolean overlapEnabled = true;
+    private int nextSessionId;
+    // The session capturing audio, and the one past end of speech still being recognized
+    private Session current;
+    private Session finishing;
+    private SpeechRecognizer spare;
+    private long lastCaptureEndMs;
+
+    private final LatencyHistogram gapMs = new LatencyHistogram();
+    private int sessions;
+    private int overlapped;
+    private int restarts;
+    private int busyErrors;
+    private int silentSessions;
+
+    public ContinuousRecognizer(Context context, Listener listener) {
+        this.context = context.getApplicationContext();
+        this.listener = listener;
+    }
+
+    /** Starts listening with {@code intent}; with {@code continuous} false it stops after one session. */
+    public void start(Intent intent, boolean continuous) {
+        if (running) {
+            return;
+        }
+        this.intent = intent;
+        this.continuous = continuous;
+        running = true;
+        overlapEnabled = true;
+        lastCaptureEndMs = 0;
+        policy.reset();
+        startSession();
+        if (continuous && spare == null) {
+            // Bind the second recognizer now, so the first overlapped start does not pay for it
+            spare = SpeechRecognizer.createSpeechRecognizer(context);
+        }
+    }
+
+    /** Finishes the utterance in progress; the session waiting for speech is dropped. */
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        handler.removeCallbacks(restart);
+        Session session = current;
+        if (session != null) {
+            if (session.speechStarted) {
+                session.recognizer.stopListening(); // Delivers the result of what was said
+            } else {
+                session.recognizer.cancel();
+                current = null;
+                recycle(session.recognizer);
+            }
+        }
+        notifyStoppedIfIdle();
+    }
+
+    public void destroy() {
+        running = false;
+        handler.removeCallbacks(restart);
+        if (current != null) {
+            current.recognizer.destroy();
+            current = null;
+        }
+        if (finishing != null) {
+            finishing.recognizer.destroy();
+            finishing = null;
+        }
+        if (spare != null) {
+            spare.destroy();
+            spare = null;
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public boolean isContinuous() {
+        return continuous;
+    }
+
+    /** Gap between sessions in milliseconds. */
+    public LatencyHistogram getGapHistogram() {
+        return gapMs;
+    }
+
+    public String getStats() {
+        return "sessions=" + sessions + " overlapped=" + overlapped + " restarts=" + restarts
+                + " busy=" + busyErrors + " silent=" + silentSessions + " gapMs: " + gapMs.summary();
+    }
+
+    private void startSession() {
+        if (!running || current != null) {
+            return;
+        }
+        SpeechRecognizer recognizer = spare != null ? spare : SpeechRecognizer.createSpeechRecognizer(context);
+        spare = null;
+        Session session = new Session(++nextSessionId, recognizer);
+        current = session;
+        sessions++;
+        recognizer.setRecognitionListener(session);
+        recognizer.startListening(intent);
+    }
+
+    private void onEndOfSpeech(Session session) {
+        markCaptureEnded(session);
+        if (session == current && running && continuous && overlapEnabled) {
+            // Start listening for the next utterance while this one is recognized
+            finishing = session;
+            current = null;
+            overlapped++;
+            startSession();
+        }
+    }
+
+    private void markCaptureEnded(Session session) {
+        if (!session.captureEnded) {
+            session.captureEnded = true;
+            lastCaptureEndMs = SystemClock.elapsedRealtime();
+        }
+    }
+
+    private void finish(Session session, RecognizerRestartPolicy.Outcome outcome, int error) {
+        markCaptureEnded(session);
+        if (session == finishing) {
+            finishing = null;
+        } else if (session == current) {
+            current = null;
+        }
+        RecognizerRestartPolicy.Decision decision = policy.onSessionEnded(outcome);
+        boolean restarting = running && continuous && !decision.stop;
+        if (decision.recreateRecognizer) {
+            session.recognizer.destroy();
+            if (spare != null) {
+                spare.destroy();
+                spare = null;
+            }
+        } else {
+            recycle(session.recognizer);
+        }
+
+        if (outcome == RecognizerRestartPolicy.Outcome.RESULT) {
+            listener.onResults(session.id, session.matches);
+        } else {
+            listener.onError(session.id, error, restarting);
+        }
+
+        if (!restarting) {
+            running = false;
+            handler.removeCallbacks(restart);
+            if (current != null && !current.speechStarted) {
+                current.recognizer.cancel();
+                recycle(current.recognizer);
+                current = null;
+            }
+            notifyStoppedIfIdle();
+        } else if (current == null) {
+            restarts++;
+            handler.removeCallbacks(restart);
+            if (decision.delayMs == 0) {
+                startSession();
+            } else {
+                handler.postDelayed(restart, decision.delayMs);
+            }
+        }
+    }
+
+    // The overlapped start was refused while the previous session was still being recognized
+    private void onOverlapRefused(Session session) {
+        Log.i(TAG, "Recognizer refused an overlapped session; restarting after each result instead");
+        overlapEnabled = false;
+        busyErrors++;
+        current = null;
+        session.recognizer.destroy();
+    }
+
+    private void recycle(SpeechRecognizer recognizer) {
+        if (spare == null && running && continuous) {
+            spare = recognizer;
+        } else {
+            recognizer.destroy();
+        }
+    }
+
+    private void notifyStoppedIfIdle() {
+        if (current == null && finishing == null) {
+            listener.onStopped();
+        }
+    }
+
+    private static RecognizerRestartPolicy.Outcome outcomeOf(int error) {
+        switch (error) {
+            case SpeechRecognizer.ERROR_NO_MATCH:
+            case SpeechRecognizer.ERROR_SPEECH_TIMEOUT:
+                return RecognizerRestartPolicy.Outcome.SILENCE;
+            case SpeechRecognizer.ERROR_RECOGNIZER_BUSY:
+                return RecognizerRestartPolicy.Outcome.BUSY;
+            case SpeechRecognizer.ERROR_INSUFFICIENT_PERMISSIONS:
+                return RecognizerRestartPolicy.Outcome.FATAL;
+            default:
+                return RecognizerRestartPolicy.Outcome.ERROR;
+        }
+    }
+
+    private final class Session implements RecognitionListener {
+        final int id;
+        final SpeechRecognizer recognizer;
+        boolean speechStarted;
+        boolean captureEnded;
+        List<String> matches = Collections.emptyList();
+
+        Session(int id, SpeechRecognizer recognizer) {
+            this.id = id;
+            this.recognizer = recognizer;
+        }
+
+        // Callbacks can still arrive for a session that was cancelled or destroyed
+        private boolean isLive() {
+            return this == current || this == finishing;
+        }
+
+        @Override
+        public void onReadyForSpeech(Bundle params) {
+            if (!isLive()) {
+                return;
+            }
+            if (lastCaptureEndMs != 0) {
+                gapMs.record(Math.max(0, SystemClock.elapsedRealtime() - lastCaptureEndMs));
+            }
+            listener.onReadyForSpeech(id);
+        }
+
+        @Override
+        public void onBeginningOfSpeech() {
+            if (!isLive()) {
+                return;
+            }
+            speechStarted = true;
+            listener.onBeginningOfSpeech(id);
+        }
+
+        @Override
+        public void onRmsChanged(float rmsdB) { }
+
+        @Override
+        public void onBufferReceived(byte[] buffer) { }
+
+        @Override
+        public void onEndOfSpeech() {
+            if (!isLive()) {
+                return;
+            }
+            listener.onEndOfSpeech(id);
+            ContinuousRecognizer.this.onEndOfSpeech(this);
+        }
+
+        @Override
+        public void onError(int error) {
+            if (!isLive()) {
+                return;
+            }
+            RecognizerRestartPolicy.Outcome outcome = outcomeOf(error);
+            if (outcome == RecognizerRestartPolicy.Outcome.BUSY && this == current && finishing != null) {
+                onOverlapRefused(this);
+                return;
+            }
+            if (outcome == RecognizerRestartPolicy.Outcome.BUSY) {
+                busyErrors++;
+            } else if (outcome == RecognizerRestartPolicy.Outcome.SILENCE) {
+                silentSessions++;
+            }
+            finish(this, outcome, error);
+        }
+
+        @Override
+        public void onResults(Bundle results) {
+            if (!isLive()) {
+                return;
+            }
+            ArrayList<String> found = results.getStringArrayList(SpeechRecognizer.RESULTS_RECOGNITION);
+            if (found != null) {
+                matches = found;
+            }
+            finish(this, RecognizerRestartPolicy.Outcome.RESULT, 0);
+        }
+
+        @Override
+        public void onPartialResults(Bundle partialResults) {
+            if (!isLive()) {
+                return;
+            }
+            ArrayList<String> partials = partialResults.getStringArrayList(SpeechRecognizer.RESULTS_RECOGNITION);
+            if (partials != null && !partials.isEmpty()) {
+                listener.onPartialResults(id, partials);
+            }
+        }
+
+        @Override
+        public void onEvent(int eventType, Bundle params) { }
+    }
+}
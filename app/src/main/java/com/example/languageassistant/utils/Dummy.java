@@ -1,5 +0,0 @@
-// This is a dummy file to create the utils package.
-package com.example.languageassistant.utils;
-
-public class Dummy {
-}
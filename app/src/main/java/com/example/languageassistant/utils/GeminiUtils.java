@@ -1,23 +1,42 @@
 package com.example.languageassistant.utils;
 
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.util.Log;
 import com.google.ai.client.generativeai.GenerativeModel;
 import com.google.ai.client.generativeai.java.GenerativeModelFutures;
 import com.google.ai.client.generativeai.type.Content;
+import com.google.ai.client.generativeai.type.GenerateContentResponse;
 import com.google.ai.client.generativeai.type.TextPart;
-import com.google.common.util.concurrent.FutureCallback;
-import com.google.common.util.concurrent.Futures;
-import com.google.common.util.concurrent.ListenableFuture;
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
+import java.util.Locale;
+
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
 
 public class GeminiUtils {
 
+    private static final String TAG = "GeminiUtils";
     public static final String GEMINI_API_KEY = "YOUR_API_KEY"; // Replace with your actual API key
-    public static GenerativeModel geminiModel;
-    private static final Executor executor = Executors.newSingleThreadExecutor();
+    public static final String MODEL_NAME = "gemini-pro";
+    private static GenerativeModel geminiModel;
+    private static AnswerCache answerCache;
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private static AnswerRequestManager requestManager;
+    // Sent first in every request; kept constant so the prompt prefix never changes
+    private static final String SYSTEM_PROMPT = "You answer questions heard through smart glasses. "
+            + "Keep answers short and plain, as they are read on a small display. "
+            + "Use the earlier conversation to understand follow-up questions.";
+    // A pause this long starts a new conversation
+    private static final long CONVERSATION_IDLE_MS = 5 * 60 * 1000L;
+    private static ConversationMemory conversation;
+    private static long lastTurnAtMs;
+    private static InstantAnswerIndex instantAnswers;
 
     public interface AiAnswerCallback {
         void onAnswerReceived(String answer);
@@ -27,45 +46,319 @@ public class GeminiUtils {
         void onError(String errorMessage);
     }
 
-    public static void initializeGeminiModel(String apiKey) {
-        geminiModel = new GenerativeModel(
-                "gemini-pro",
-                apiKey,
-                com.google.ai.client.generativeai.type.GenerationConfig.builder().build(),
-                new ArrayList<>()
-        );
+    /** Receives a streamed answer on the main thread. */
+    public interface AiAnswerStreamCallback {
+        /** A piece of the answer ending on a word or sentence boundary. */
+        void onAnswerSegment(String segment);
+
+        /** The stream has ended; {@code fullAnswer} is every segment concatenated. */
+        void onAnswerComplete(String fullAnswer);
     }
 
-    public static void getAiAnswers(String question, AiAnswerCallback callback, AiErrorCallback errorCallback) {
+    /**
+     * The model, built on first use and then kept: the key and settings never change, so there
+     * is nothing to gain from building it again.
+     */
+    public static synchronized GenerativeModel getGeminiModel() {
         if (geminiModel == null) {
-            errorCallback.onError("Gemini model is not initialized.");
+            geminiModel = new GenerativeModel(
+                    MODEL_NAME,
+                    GEMINI_API_KEY,
+                    com.google.ai.client.generativeai.type.GenerationConfig.builder().build(),
+                    new ArrayList<>()
+            );
+        }
+        return geminiModel;
+    }
+
+    /**
+     * Gives the answer cache a file so answers survive restarts; until then (or if this is never
+     * called) it is memory only. Runs on a startup thread, so a question may already have
+     * created the cache; the file is then attached to it rather than ignored.
+     */
+    public static void initializeAnswerCache(File diskFile) {
+        getAnswerCache().attachDisk(diskFile);
+    }
+
+    /**
+     * Loads the local answers to common questions from {@code source} (see
+     * {@link InstantAnswerIndex} for the format), compiling it into {@code indexFile} if it
+     * changed. Until this has run, or if it fails, every question goes to the model.
+     */
+    public static void initializeInstantAnswers(File source, File indexFile) {
+        InstantAnswerIndex index;
+        try {
+            index = InstantAnswerIndex.open(source, indexFile, InstantAnswerIndex.DEFAULT_MIN_CONFIDENCE);
+        } catch (IOException e) {
+            Log.w(TAG, "Could not load instant answers: " + e.getMessage());
             return;
         }
+        synchronized (GeminiUtils.class) {
+            instantAnswers = index;
+        }
+    }
 
-        Content content = new Content.Builder()
-                .addPart(new TextPart(question))
-                .build();
+    public static synchronized InstantAnswerIndex getInstantAnswers() {
+        if (instantAnswers == null) {
+            instantAnswers = InstantAnswerIndex.empty();
+        }
+        return instantAnswers;
+    }
+
+    // A confident local answer, remembered as part of the conversation; null to ask the model
+    private static String answerLocally(String question) {
+        InstantAnswerIndex.Match match = getInstantAnswers().lookup(question);
+        if (match == null) {
+            return null;
+        }
+        Log.d(TAG, "Answered locally, confidence " + String.format(Locale.ROOT, "%.2f", match.confidence));
+        rememberTurn(question, match.answer);
+        return match.answer;
+    }
+
+    /**
+     * All answer requests go through this manager: a new question cancels the previous one,
+     * every request has a deadline, and the same question asked twice shares one call.
+     */
+    public static synchronized AnswerRequestManager getRequestManager() {
+        if (requestManager == null) {
+            setAnswerBackend(new GeminiBackend());
+        }
+        return requestManager;
+    }
+
+    /** Replaces the model behind the request manager, e.g. with a {@link SimulatedAnswerBackend}. */
+    public static synchronized void setAnswerBackend(AnswerBackend backend) {
+        if (requestManager != null) {
+            requestManager.cancelAll();
+        }
+        requestManager = new AnswerRequestManager(backend, mainHandler::post,
+                AnswerRequestManager.DEFAULT_MAX_CONCURRENT, AnswerRequestManager.DEFAULT_MAX_QUEUED,
+                AnswerRequestManager.RejectionPolicy.DROP_OLDEST, true);
+    }
+
+    public static synchronized AnswerCache getAnswerCache() {
+        if (answerCache == null) {
+            answerCache = new AnswerCache(null);
+        }
+        return answerCache;
+    }
+
+    /**
+     * The conversation sent along with each question, so follow-ups can be answered. It is
+     * bounded by a token budget and forgotten after {@link #CONVERSATION_IDLE_MS} without a turn.
+     */
+    public static synchronized ConversationMemory getConversation() {
+        if (conversation == null) {
+            conversation = new ConversationMemory(SYSTEM_PROMPT);
+        } else if (SystemClock.uptimeMillis() - lastTurnAtMs > CONVERSATION_IDLE_MS) {
+            conversation.clear();
+        }
+        return conversation;
+    }
+
+    private static synchronized void rememberTurn(String question, String answer) {
+        getConversation().addTurn(question, answer);
+        lastTurnAtMs = SystemClock.uptimeMillis();
+    }
+
+    /** Asks {@code question} and delivers the whole answer at once, on the main thread. */
+    public static void getAiAnswers(String question, AiAnswerCallback callback, AiErrorCallback errorCallback) {
+        String local = answerLocally(question);
+        if (local != null) {
+            callback.onAnswerReceived(local);
+            return;
+        }
+        final AnswerCache cache = getAnswerCache();
+        // A follow-up depends on what came before, so its answer is neither reused nor kept
+        final boolean standalone = !ConversationMemory.isFollowUp(question);
+        String cached = standalone ? cache.get(MODEL_NAME, question) : null;
+        if (cached != null) {
+            Log.d(TAG, "Answer cache hit (" + cache.getStats() + ")");
+            rememberTurn(question, cached);
+            callback.onAnswerReceived(cached);
+            return;
+        }
+
+        getRequestManager().submit(question, AnswerRequestManager.DEFAULT_DEADLINE_MS, new AnswerRequestManager.AnswerListener() {
+            @Override
+            public void onDelta(String text) { }
 
-        ListenableFuture<com.google.ai.client.generativeai.type.GenerateContentResponse> future = GenerativeModelFutures.from(geminiModel).generateContentStream(content);
-        Futures.addCallback(future, new FutureCallback<com.google.ai.client.generativeai.type.GenerateContentResponse>() {
             @Override
-            public void onSuccess(com.google.ai.client.generativeai.type.GenerateContentResponse result) {
-                StringBuilder answer = new StringBuilder();
-                for (com.google.ai.client.generativeai.type.Candidate candidate : result.getCandidatesList()) {
-                    for (com.google.ai.client.generativeai.type.Content part : candidate.getContent().getPartsList()) {
-                        if (part instanceof TextPart) {
-                            answer.append(((TextPart) part).getText());
-                        }
-                    }
+            public void onComplete(String fullAnswer) {
+                if (standalone) {
+                    cache.put(MODEL_NAME, question, fullAnswer);
                 }
-                callback.onAnswerReceived(answer.toString());
+                rememberTurn(question, fullAnswer);
+                callback.onAnswerReceived(fullAnswer);
             }
 
             @Override
-            public void onFailure(Throwable t) {
-                Log.e("GeminiUtils", "Error generating content: " + t.getMessage(), t);
-                errorCallback.onError("Failed to get answer from AI: " + t.getMessage());
+            public void onFailure(Throwable error) {
+                Log.e(TAG, "Error generating content: " + error.getMessage(), error);
+                errorCallback.onError("Failed to get answer from AI: " + error.getMessage());
             }
-        }, executor);
+        });
+    }
+
+    /**
+     * Streams the answer to {@code question}: text is handed to {@code callback} segment by
+     * segment as the model produces it, instead of after the whole response. Returns a handle
+     * to cancel the request; once cancelled no further callbacks are made. A local or cached
+     * answer is delivered synchronously as a single segment.
+     */
+    public static AnswerStream streamAiAnswer(String question, AiAnswerStreamCallback callback, AiErrorCallback errorCallback) {
+        AnswerCache cache = getAnswerCache();
+        String local = answerLocally(question);
+        if (local != null) {
+            callback.onAnswerSegment(local);
+            callback.onAnswerComplete(local);
+            return new AnswerStream(question, null, callback, errorCallback);
+        }
+        boolean standalone = !ConversationMemory.isFollowUp(question);
+        AnswerStream stream = new AnswerStream(question, standalone ? cache : null, callback, errorCallback);
+        String cached = standalone ? cache.get(MODEL_NAME, question) : null;
+        if (cached != null) {
+            Log.d(TAG, "Answer cache hit (" + cache.getStats() + ")");
+            rememberTurn(question, cached);
+            callback.onAnswerSegment(cached);
+            callback.onAnswerComplete(cached);
+            return stream;
+        }
+        stream.ticket = getRequestManager().submit(question, AnswerRequestManager.DEFAULT_DEADLINE_MS, stream);
+        return stream;
+    }
+
+    /** One streamed answer. Deltas arrive on the main thread and are segmented there. */
+    public static final class AnswerStream implements AnswerRequestManager.AnswerListener {
+        private final String question;
+        // Null for a follow-up question, whose answer is not cached
+        private final AnswerCache cache;
+        private final AiAnswerStreamCallback callback;
+        private final AiErrorCallback errorCallback;
+        private final StreamingTextSegmenter segmenter = new StreamingTextSegmenter();
+        private AnswerRequestManager.Ticket ticket;
+        private boolean cancelled = false;
+
+        private AnswerStream(String question, AnswerCache cache, AiAnswerStreamCallback callback, AiErrorCallback errorCallback) {
+            this.question = question;
+            this.cache = cache;
+            this.callback = callback;
+            this.errorCallback = errorCallback;
+        }
+
+        /** Stops the request. Call on the main thread; safe to call more than once. */
+        public void cancel() {
+            cancelled = true;
+            if (ticket != null) {
+                ticket.cancel();
+            }
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public void onDelta(String text) {
+            String segment = segmenter.append(text);
+            if (!segment.isEmpty()) {
+                callback.onAnswerSegment(segment);
+            }
+        }
+
+        @Override
+        public void onComplete(String fullAnswer) {
+            if (cache != null) {
+                cache.put(MODEL_NAME, question, fullAnswer);
+            }
+            rememberTurn(question, fullAnswer);
+            String rest = segmenter.flush();
+            if (!rest.isEmpty()) {
+                callback.onAnswerSegment(rest);
+            }
+            callback.onAnswerComplete(fullAnswer);
+        }
+
+        @Override
+        public void onFailure(Throwable error) {
+            Log.e(TAG, "Error streaming content: " + error.getMessage(), error);
+            errorCallback.onError("Failed to get answer from AI: " + error.getMessage());
+        }
+    }
+
+    /**
+     * Streams from {@link #getGeminiModel()} through the SDK's reactive-streams Publisher. The
+     * question is sent after the system prompt and the bounded conversation so far.
+     */
+    private static final class GeminiBackend implements AnswerBackend {
+        @Override
+        public Call ask(String question, Listener listener) {
+            GenerativeModel model;
+            try {
+                model = getGeminiModel();
+            } catch (RuntimeException e) {
+                listener.onError(new IllegalStateException("Gemini model could not be created. Check API Key in GeminiUtils.", e));
+                return () -> { };
+            }
+            ConversationMemory.Prompt prompt = getConversation().buildPrompt(question);
+            Content[] history = new Content[prompt.messages.size()];
+            for (int i = 0; i < history.length; i++) {
+                ConversationMemory.Message message = prompt.messages.get(i);
+                history[i] = new Content(message.role == ConversationMemory.Role.USER ? "user" : "model",
+                        Collections.singletonList(new TextPart(message.text)));
+            }
+            Log.d(TAG, "Sending ~" + prompt.tokens + " prompt tokens (" + getConversation().getStats() + ")");
+            GeminiCall call = new GeminiCall(listener);
+            GenerativeModelFutures.from(model).generateContentStream(history).subscribe(call);
+            return call;
+        }
+    }
+
+    private static final class GeminiCall implements Subscriber<GenerateContentResponse>, AnswerBackend.Call {
+        private final AnswerBackend.Listener listener;
+        private volatile Subscription subscription;
+        private volatile boolean cancelled = false;
+
+        GeminiCall(AnswerBackend.Listener listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            Subscription s = subscription;
+            if (s != null) {
+                s.cancel();
+            }
+        }
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            subscription = s;
+            if (cancelled) {
+                s.cancel();
+            } else {
+                s.request(Long.MAX_VALUE);
+            }
+        }
+
+        @Override
+        public void onNext(GenerateContentResponse response) {
+            String delta = response.getText();
+            if (!cancelled && delta != null) {
+                listener.onDelta(delta);
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            listener.onError(t);
+        }
+
+        @Override
+        public void onComplete() {
+            listener.onComplete();
+        }
     }
 }
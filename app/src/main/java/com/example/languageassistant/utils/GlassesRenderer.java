@@ -0,0 +1,86 @@
+package com.example.languageassistant.utils;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Turns display text into one bitmap per line for {@code ScrollingTextView.sendScrollImage},
+ * replacing a fresh {@code TextToImageSlicer} per call. Lines are wrapped with
+ * {@link LineBreaker}, looked up in a {@link RenderedSliceCache} and only drawn on a miss, into
+ * a bitmap borrowed from a {@link BitmapPool}.
+ *
+ * Rendering is synchronized on the renderer because the Paint and Canvas are shared.
+ */
+public class GlassesRenderer implements DisplaySession.LineRenderer<RenderedSliceCache.Slice> {
+
+    public static final int DISPLAY_WIDTH = 640; // Z100 display width in pixels
+    public static final int HORIZONTAL_PADDING = 8;
+
+    private final int sliceHeight;
+    private final int fontSize;
+    private final RenderedSliceCache cache;
+    private final BitmapPool pool;
+    private final Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Canvas canvas = new Canvas();
+    private final float baseline;
+    private final LineBreaker.TextMeasurer measurer = (text, start, end) -> paint.measureText(text, start, end);
+
+    public GlassesRenderer(int sliceHeight, int fontSize, RenderedSliceCache cache, BitmapPool pool) {
+        if (pool.getWidth() != DISPLAY_WIDTH || pool.getHeight() != sliceHeight) {
+            throw new IllegalArgumentException("Bitmap pool does not match the slice size");
+        }
+        this.sliceHeight = sliceHeight;
+        this.fontSize = fontSize;
+        this.cache = cache;
+        this.pool = pool;
+        paint.setColor(Color.WHITE);
+        paint.setTextSize(fontSize);
+        // Center the text vertically in the slice
+        baseline = (sliceHeight - paint.ascent() - paint.descent()) / 2f;
+    }
+
+    public int getSliceHeight() {
+        return sliceHeight;
+    }
+
+    public int getFontSize() {
+        return fontSize;
+    }
+
+    @Override
+    public synchronized List<String> breakLines(CharSequence text) {
+        return LineBreaker.breakLines(text, DISPLAY_WIDTH - 2 * HORIZONTAL_PADDING, measurer);
+    }
+
+    /** Returns a slice for {@code line} with a reference taken; release it after sending. */
+    @Override
+    public RenderedSliceCache.Slice renderLine(String line) {
+        String key = RenderedSliceCache.key(line, fontSize, sliceHeight);
+        RenderedSliceCache.Slice cached = cache.acquire(key);
+        if (cached != null) {
+            return cached;
+        }
+        Bitmap bitmap = pool.acquire(Color.BLACK);
+        synchronized (this) {
+            canvas.setBitmap(bitmap);
+            canvas.drawText(line, HORIZONTAL_PADDING, baseline, paint);
+            canvas.setBitmap(null);
+        }
+        return cache.put(key, line, bitmap);
+    }
+
+    /** Wraps and renders {@code text}; every returned slice must be released. */
+    public List<RenderedSliceCache.Slice> render(CharSequence text) {
+        List<String> lines = breakLines(text);
+        List<RenderedSliceCache.Slice> slices = new ArrayList<>(lines.size());
+        for (String line : lines) {
+            slices.add(renderLine(line));
+        }
+        return slices;
+    }
+}
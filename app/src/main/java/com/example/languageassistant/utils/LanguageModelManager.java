@@ -0,0 +1,211 @@
+package com.example.languageassistant.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import androidx.lifecycle.MutableLiveData;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.mlkit.common.model.DownloadConditions;
+import com.google.mlkit.common.model.RemoteModelManager;
+import com.google.mlkit.nl.translate.TranslateLanguage;
+import com.google.mlkit.nl.translate.TranslateRemoteModel;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Background manager for ML Kit translation models.
+ *
+ * When the selected language pair changes, the models it needs are downloaded and a
+ * translator is warmed in {@link TranslatorPool}, so the first utterance does not block on a
+ * download. Pairs that usage history says are likely next are pre-downloaded too, and models
+ * that have not been used for the longest time are deleted once the disk budget is exceeded.
+ * Readiness of the selected pair is published through {@link #selectedPairState}.
+ */
+public class LanguageModelManager {
+
+    private static final String TAG = "LanguageModelManager";
+    private static final String PREFS_NAME = "language_model_manager";
+    private static final String PREF_HISTORY = "pair_usage_history";
+    // ML Kit translation models take roughly 30 MB each on disk
+    public static final long APPROX_MODEL_BYTES = 30L * 1024 * 1024;
+    public static final long DEFAULT_DISK_BUDGET_BYTES = 6 * APPROX_MODEL_BYTES;
+    private static final int PREDICTED_PAIRS = 2;
+    private static final String WARM_UP_TEXT = "ok";
+    private static final long PERSIST_INTERVAL_MS = 60 * 1000L;
+
+    public enum ModelState { UNKNOWN, DOWNLOADING, READY, FAILED }
+
+    private static LanguageModelManager instance;
+
+    public final MutableLiveData<ModelState> selectedPairState = new MutableLiveData<>(ModelState.UNKNOWN);
+
+    private final SharedPreferences prefs;
+    private final RemoteModelManager remoteModelManager = RemoteModelManager.getInstance();
+    private final PairUsageHistory history;
+    private final long diskBudgetBytes;
+    private final Map<String, Task<Void>> downloadsInFlight = new HashMap<>();
+    private String selectedPair;
+    // Languages of extra targets translated alongside the selected pair; never deleted while set
+    private final Set<String> extraTargetLanguages = new HashSet<>();
+    private String lastPersistedPair;
+    private long lastPersistedAtMs;
+
+    public static synchronized LanguageModelManager get(Context context) {
+        if (instance == null) {
+            instance = new LanguageModelManager(context.getApplicationContext(), DEFAULT_DISK_BUDGET_BYTES);
+        }
+        return instance;
+    }
+
+    private LanguageModelManager(Context context, long diskBudgetBytes) {
+        this.diskBudgetBytes = diskBudgetBytes;
+        this.prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        this.history = PairUsageHistory.deserialize(prefs.getString(PREF_HISTORY, null));
+    }
+
+    /** Called whenever the From/To selection changes. Must be called on the main thread. */
+    public void onPairSelected(String fromLanguage, String toLanguage) {
+        final String pair = PairUsageHistory.pairKey(fromLanguage, toLanguage);
+        selectedPair = pair;
+        if (fromLanguage.equals(toLanguage)) {
+            selectedPairState.setValue(ModelState.READY);
+            return;
+        }
+        if (!TranslateLanguage.getAllLanguages().contains(fromLanguage) || !TranslateLanguage.getAllLanguages().contains(toLanguage)) {
+            selectedPairState.setValue(ModelState.FAILED);
+            return;
+        }
+        selectedPairState.setValue(ModelState.DOWNLOADING);
+
+        ensurePair(fromLanguage, toLanguage)
+                .addOnSuccessListener(aVoid -> warmTranslator(pair, fromLanguage, toLanguage))
+                .addOnFailureListener(e -> {
+                    Log.w(TAG, "Model download for " + pair + " failed: " + e.getMessage());
+                    if (pair.equals(selectedPair)) {
+                        selectedPairState.setValue(ModelState.FAILED);
+                    }
+                });
+    }
+
+    /**
+     * Downloads and warms the models for extra target languages translated from
+     * {@code fromLanguage} alongside the selected pair. Must be called on the main thread.
+     */
+    public void onExtraTargetsSelected(String fromLanguage, List<String> toLanguages) {
+        extraTargetLanguages.clear();
+        extraTargetLanguages.add(fromLanguage);
+        for (final String toLanguage : toLanguages) {
+            if (fromLanguage.equals(toLanguage) || !TranslateLanguage.getAllLanguages().contains(toLanguage)) {
+                continue;
+            }
+            extraTargetLanguages.add(toLanguage);
+            final String pair = PairUsageHistory.pairKey(fromLanguage, toLanguage);
+            ensurePair(fromLanguage, toLanguage)
+                    .addOnSuccessListener(aVoid -> warmTranslator(pair, fromLanguage, toLanguage))
+                    .addOnFailureListener(e -> Log.w(TAG, "Model download for extra target " + pair + " failed: " + e.getMessage()));
+        }
+    }
+
+    /** Records that a translation in this pair actually happened. */
+    public void recordUsage(String fromLanguage, String toLanguage) {
+        long now = System.currentTimeMillis();
+        String pair = PairUsageHistory.pairKey(fromLanguage, toLanguage);
+        history.recordUse(fromLanguage, toLanguage, now);
+        // Streaming captions record a use per chunk; only persist on a pair change or periodically
+        if (!pair.equals(lastPersistedPair) || now - lastPersistedAtMs > PERSIST_INTERVAL_MS) {
+            lastPersistedPair = pair;
+            lastPersistedAtMs = now;
+            prefs.edit().putString(PREF_HISTORY, history.serialize()).apply();
+        }
+    }
+
+    private void warmTranslator(String pair, String fromLanguage, String toLanguage) {
+        // Translating a token forces ML Kit to load the model; the pool keeps the client open
+        final TranslatorPool.Lease lease = TranslatorPool.get().acquire(fromLanguage, toLanguage);
+        lease.whenReady()
+                .onSuccessTask(aVoid -> lease.getTranslator().translate(WARM_UP_TEXT))
+                .addOnCompleteListener(task -> {
+                    lease.close();
+                    if (pair.equals(selectedPair)) {
+                        selectedPairState.setValue(task.isSuccessful() ? ModelState.READY : ModelState.FAILED);
+                    }
+                    Log.d(TAG, "Warmed translator for " + pair + ": " + task.isSuccessful());
+                    prefetchPredictedPairs(pair);
+                });
+    }
+
+    private void prefetchPredictedPairs(String currentPair) {
+        List<String> predicted = history.predictNext(currentPair, PREDICTED_PAIRS, System.currentTimeMillis());
+        final Set<String> protectedLanguages = new HashSet<>(extraTargetLanguages);
+        Collections.addAll(protectedLanguages, PairUsageHistory.splitPair(currentPair));
+        if (selectedPair != null) {
+            Collections.addAll(protectedLanguages, PairUsageHistory.splitPair(selectedPair));
+        }
+        List<Task<Void>> downloads = new ArrayList<>();
+        for (String pair : predicted) {
+            String[] languages = PairUsageHistory.splitPair(pair);
+            Collections.addAll(protectedLanguages, languages);
+            downloads.add(ensurePair(languages[0], languages[1]));
+            Log.d(TAG, "Prefetching predicted pair " + pair);
+        }
+        Tasks.whenAllComplete(downloads).addOnCompleteListener(task -> enforceDiskBudget(protectedLanguages));
+    }
+
+    private Task<Void> ensurePair(String fromLanguage, String toLanguage) {
+        return Tasks.whenAll(ensureLanguage(fromLanguage), ensureLanguage(toLanguage));
+    }
+
+    private Task<Void> ensureLanguage(final String language) {
+        if (TranslateLanguage.ENGLISH.equals(language)) {
+            return Tasks.forResult(null); // Bundled with ML Kit, never downloaded or deleted
+        }
+        Task<Void> inFlight = downloadsInFlight.get(language);
+        if (inFlight != null) {
+            return inFlight;
+        }
+        DownloadConditions conditions = new DownloadConditions.Builder()
+                .requireWifi()
+                .build();
+        Task<Void> download = remoteModelManager.download(new TranslateRemoteModel.Builder(language).build(), conditions);
+        downloadsInFlight.put(language, download);
+        download.addOnCompleteListener(task -> downloadsInFlight.remove(language));
+        return download;
+    }
+
+    private void enforceDiskBudget(final Set<String> protectedLanguages) {
+        remoteModelManager.getDownloadedModels(TranslateRemoteModel.class)
+                .addOnSuccessListener(models -> {
+                    long maxModels = Math.max(1, diskBudgetBytes / APPROX_MODEL_BYTES);
+                    List<String> deletable = new ArrayList<>();
+                    int downloaded = 0;
+                    for (TranslateRemoteModel model : models) {
+                        String language = model.getLanguage();
+                        if (TranslateLanguage.ENGLISH.equals(language)) {
+                            continue;
+                        }
+                        downloaded++;
+                        if (!protectedLanguages.contains(language) && !downloadsInFlight.containsKey(language)) {
+                            deletable.add(language);
+                        }
+                    }
+                    // Least recently used languages go first
+                    Collections.sort(deletable, (a, b) -> Long.compare(history.lastUsedLanguage(a), history.lastUsedLanguage(b)));
+                    for (int i = 0; i < deletable.size() && downloaded > maxModels; i++, downloaded--) {
+                        String language = deletable.get(i);
+                        Log.i(TAG, "Deleting rarely used translation model: " + language);
+                        TranslatorPool.get().evictLanguage(language);
+                        remoteModelManager.deleteDownloadedModel(new TranslateRemoteModel.Builder(language).build());
+                    }
+                })
+                .addOnFailureListener(e -> Log.w(TAG, "Could not list downloaded models: " + e.getMessage()));
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.languageassistant.utils;
+
+import android.content.Context;
+import android.util.Log;
+import android.widget.Toast;
+
+import com.google.mlkit.nl.translate.TranslateLanguage;
+
+/**
+ * {@link TextTranslator} backed by ML Kit on-device translation. Each call borrows a warm
+ * translator for the language pair from {@link TranslatorPool} and returns it afterwards.
+ * Errors are also shown as a toast.
+ */
+public class MlKitTextTranslator implements TextTranslator {
+
+    private static final String TAG = "MlKitTextTranslator";
+
+    private final Context context;
+
+    public MlKitTextTranslator(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    @Override
+    public void translate(String text, String fromLanguage, String toLanguage, Callback callback) {
+        if (!TranslateLanguage.getAllLanguages().contains(fromLanguage) ||
+            !TranslateLanguage.getAllLanguages().contains(toLanguage)) {
+            String errorMsg = "Unsupported language for translation: " + fromLanguage + " or " + toLanguage;
+            Log.e(TAG, errorMsg);
+            Toast.makeText(context, errorMsg, Toast.LENGTH_LONG).show();
+            callback.onFailure(new Exception(errorMsg));
+            return;
+        }
+
+        // Borrow a warm translator for this language pair; it goes back to the pool afterwards
+        // instead of being closed, so the next utterance skips loading the model again.
+        TranslatorPool pool = TranslatorPool.get();
+        pool.attach(context);
+        final TranslatorPool.Lease lease = pool.acquire(fromLanguage, toLanguage);
+
+        lease.whenReady()
+                .addOnSuccessListener(aVoid -> {
+                    Log.d(TAG, "Language model for " + fromLanguage + "->" + toLanguage + " downloaded or already available.");
+                    lease.getTranslator().translate(text)
+                            .addOnSuccessListener(callback::onSuccess)
+                            .addOnFailureListener(e -> {
+                                Log.e(TAG, "ML Kit Translation failed: " + e.getMessage());
+                                Toast.makeText(context, "Translation Error: " + e.getMessage(), Toast.LENGTH_LONG).show();
+                                callback.onFailure(e);
+                            })
+                            .addOnCompleteListener(task -> lease.close());
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "ML Kit Model download failed: " + e.getMessage());
+                    Toast.makeText(context, "Model Download Error: " + e.getMessage(), Toast.LENGTH_LONG).show();
+                    callback.onFailure(e);
+                    lease.close();
+                });
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.languageassistant.utils;
+
+import android.graphics.Bitmap;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * LRU cache of rasterized text lines keyed by line text, font size and slice height, bounded by
+ * the bytes of the bitmaps it holds. A caption that scrolls or is re-sent is mostly lines that
+ * were already rendered, so they are served from here instead of being drawn again.
+ *
+ * Callers {@link #acquire} a {@link Slice} and {@link Slice#release()} it once the bitmap has
+ * been sent. A slice evicted while still in use keeps its bitmap until the last release, then
+ * the bitmap goes back to the {@link BitmapPool}; this is the same lease scheme
+ * {@link TranslatorPool} uses for translators.
+ */
+public class RenderedSliceCache {
+
+    public static final long DEFAULT_MAX_BYTES = 8L * 1024 * 1024;
+
+    private final long maxBytes;
+    private final BitmapPool pool;
+    // Access-ordered, so iteration starts at the least recently used line
+    private final LinkedHashMap<String, Slice> slices = new LinkedHashMap<>(64, 0.75f, true);
+    private long bytes = 0;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public RenderedSliceCache(long maxBytes, BitmapPool pool) {
+        this.maxBytes = maxBytes;
+        this.pool = pool;
+    }
+
+    /** A cached line bitmap. Release it exactly once per acquire. */
+    public static final class Slice {
+        private final RenderedSliceCache cache;
+        private final String key;
+        private final String text;
+        private final Bitmap bitmap;
+        private final int bytes;
+        private int refCount;
+        private boolean evicted;
+
+        private Slice(RenderedSliceCache cache, String key, String text, Bitmap bitmap) {
+            this.cache = cache;
+            this.key = key;
+            this.text = text;
+            this.bitmap = bitmap;
+            this.bytes = bitmap.getAllocationByteCount();
+        }
+
+        public Bitmap getBitmap() {
+            return bitmap;
+        }
+
+        /** The line of text drawn on this slice. */
+        public String getText() {
+            return text;
+        }
+
+        public void release() {
+            cache.release(this);
+        }
+    }
+
+    public static String key(String line, int fontSize, int sliceHeight) {
+        return fontSize + "/" + sliceHeight + "/" + line;
+    }
+
+    /** Returns the cached slice for {@code key} with a reference taken, or null on a miss. */
+    public synchronized Slice acquire(String key) {
+        Slice slice = slices.get(key);
+        if (slice == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        slice.refCount++;
+        return slice;
+    }
+
+    /**
+     * Caches a freshly rendered bitmap, which the cache now owns, and returns it with a
+     * reference taken. If another thread cached the same line first, that slice is returned
+     * and {@code bitmap} goes back to the pool.
+     */
+    public synchronized Slice put(String key, String line, Bitmap bitmap) {
+        Slice existing = slices.get(key);
+        if (existing != null) {
+            pool.release(bitmap);
+            existing.refCount++;
+            return existing;
+        }
+        Slice slice = new Slice(this, key, line, bitmap);
+        slice.refCount = 1;
+        slices.put(key, slice);
+        bytes += slice.bytes;
+        trimToBudget();
+        return slice;
+    }
+
+    private synchronized void release(Slice slice) {
+        if (slice.refCount <= 0) {
+            return;
+        }
+        slice.refCount--;
+        if (slice.refCount == 0 && slice.evicted) {
+            pool.release(slice.bitmap);
+        }
+    }
+
+    /**
+     * Drops every slice, e.g. on memory pressure. Bitmaps of unreferenced slices go back to the
+     * pool now; those of slices still queued for sending go back when they are released.
+     */
+    public synchronized void evictAll() {
+        Iterator<Slice> it = slices.values().iterator();
+        while (it.hasNext()) {
+            Slice slice = it.next();
+            it.remove();
+            evict(slice);
+        }
+    }
+
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    public synchronized String getStats() {
+        long lookups = hits + misses;
+        int hitRate = lookups == 0 ? 0 : (int) (hits * 100 / lookups);
+        return "hits=" + hits + " misses=" + misses + " (" + hitRate + "% hit rate) evictions=" + evictions
+                + " slices=" + slices.size() + " bytes=" + bytes + "/" + maxBytes + " pool[" + pool.getStats() + "]";
+    }
+
+    private void trimToBudget() {
+        Iterator<Map.Entry<String, Slice>> it = slices.entrySet().iterator();
+        while (bytes > maxBytes && it.hasNext()) {
+            Slice slice = it.next().getValue();
+            it.remove();
+            evict(slice);
+        }
+    }
+
+    private void evict(Slice slice) {
+        evictions++;
+        bytes -= slice.bytes;
+        slice.evicted = true;
+        if (slice.refCount == 0) {
+            pool.release(slice.bitmap);
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.example.languageassistant.utils;
+
+import android.content.Context;
+import android.content.Intent;
+import android.media.AudioFormat;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.ParcelFileDescriptor;
+import android.speech.RecognitionListener;
+import android.speech.RecognizerIntent;
+import android.speech.SpeechRecognizer;
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Recognizes speech segments cut by {@link PcmCaptureStage}, one at a time, by streaming each
+ * segment's PCM to a {@link SpeechRecognizer} through {@link RecognizerIntent#EXTRA_AUDIO_SOURCE}.
+ * The recognizer then sees exactly the audio the voice activity detector chose, instead of doing
+ * its own endpointing on the microphone.
+ *
+ * Needs Android 13; check {@link #isSupported()}. Methods and callbacks run on the main thread.
+ */
+public class SegmentRecognizer {
+
+    private static final String TAG = "SegmentRecognizer";
+
+    public interface Listener {
+        void onSegmentRecognized(int segmentId, List<String> matches);
+        void onSegmentFailed(int segmentId, int error);
+    }
+
+    private static final class Pending {
+        final int segmentId;
+        final short[] samples;
+
+        Pending(int segmentId, short[] samples) {
+            this.segmentId = segmentId;
+            this.samples = samples;
+        }
+    }
+
+    private final Context context;
+    private final Listener listener;
+    private final int sampleRate;
+    private final ArrayDeque<Pending> queue = new ArrayDeque<>();
+    // Writes segment audio into the recognizer's pipe
+    private final ExecutorService writer = Executors.newSingleThreadExecutor();
+    private SpeechRecognizer recognizer;
+    private Intent baseIntent;
+    private Pending active;
+    private ParcelFileDescriptor activeSource;
+    private int recognized;
+    private int failed;
+
+    public SegmentRecognizer(Context context, int sampleRate, Listener listener) {
+        this.context = context.getApplicationContext();
+        this.sampleRate = sampleRate;
+        this.listener = listener;
+    }
+
+    public static boolean isSupported() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU;
+    }
+
+    /** {@code intent} carries the language and other extras; the audio source is added per segment. */
+    public void setIntent(Intent intent) {
+        baseIntent = intent;
+    }
+
+    /** Queues a copy of a segment's audio for recognition. */
+    public void recognize(int segmentId, short[] samples) {
+        queue.add(new Pending(segmentId, samples));
+        if (active == null) {
+            startNext();
+        }
+    }
+
+    public int getQueueDepth() {
+        return queue.size() + (active != null ? 1 : 0);
+    }
+
+    public String getStats() {
+        return "recognized=" + recognized + " failed=" + failed + " queued=" + getQueueDepth();
+    }
+
+    public void destroy() {
+        queue.clear();
+        finishActive();
+        if (recognizer != null) {
+            recognizer.destroy();
+            recognizer = null;
+        }
+        writer.shutdownNow();
+    }
+
+    private void startNext() {
+        active = queue.poll();
+        if (active == null) {
+            return;
+        }
+        final ParcelFileDescriptor[] pipe;
+        try {
+            pipe = ParcelFileDescriptor.createPipe();
+        } catch (IOException e) {
+            Log.e(TAG, "Could not create an audio pipe: " + e.getMessage());
+            fail(SpeechRecognizer.ERROR_CLIENT);
+            return;
+        }
+        if (recognizer == null) {
+            recognizer = SpeechRecognizer.createSpeechRecognizer(context);
+        }
+        activeSource = pipe[0];
+        Intent intent = new Intent(baseIntent);
+        intent.putExtra(RecognizerIntent.EXTRA_AUDIO_SOURCE, pipe[0]);
+        intent.putExtra(RecognizerIntent.EXTRA_AUDIO_SOURCE_CHANNEL_COUNT, 1);
+        intent.putExtra(RecognizerIntent.EXTRA_AUDIO_SOURCE_ENCODING, AudioFormat.ENCODING_PCM_16BIT);
+        intent.putExtra(RecognizerIntent.EXTRA_AUDIO_SOURCE_SAMPLING_RATE, sampleRate);
+        recognizer.setRecognitionListener(new SegmentListener(active));
+        recognizer.startListening(intent);
+
+        final short[] samples = active.samples;
+        writer.execute(() -> writeSamples(samples, pipe[1]));
+    }
+
+    // Closing the write end tells the recognizer the segment is complete
+    private static void writeSamples(short[] samples, ParcelFileDescriptor sink) {
+        byte[] bytes = new byte[samples.length * 2];
+        for (int i = 0; i < samples.length; i++) {
+            bytes[2 * i] = (byte) samples[i];
+            bytes[2 * i + 1] = (byte) (samples[i] >> 8); // Little-endian
+        }
+        try (OutputStream out = new ParcelFileDescriptor.AutoCloseOutputStream(sink)) {
+            out.write(bytes);
+        } catch (IOException e) {
+            // The recognizer stopped reading, e.g. after an error it reports itself
+            Log.w(TAG, "Segment audio not fully written: " + e.getMessage());
+        }
+    }
+
+    private void fail(int error) {
+        Pending pending = active;
+        finishActive();
+        failed++;
+        listener.onSegmentFailed(pending.segmentId, error);
+        startNext();
+    }
+
+    private void finishActive() {
+        active = null;
+        if (activeSource != null) {
+            try {
+                activeSource.close();
+            } catch (IOException ignored) {
+                // Nothing left to read from it
+            }
+            activeSource = null;
+        }
+    }
+
+    private final class SegmentListener implements RecognitionListener {
+        private final Pending pending;
+
+        SegmentListener(Pending pending) {
+            this.pending = pending;
+        }
+
+        @Override
+        public void onReadyForSpeech(Bundle params) { }
+
+        @Override
+        public void onBeginningOfSpeech() { }
+
+        @Override
+        public void onRmsChanged(float rmsdB) { }
+
+        @Override
+        public void onBufferReceived(byte[] buffer) { }
+
+        @Override
+        public void onEndOfSpeech() { }
+
+        @Override
+        public void onError(int error) {
+            if (active != pending) {
+                return;
+            }
+            if (error == SpeechRecognizer.ERROR_CLIENT || error == SpeechRecognizer.ERROR_RECOGNIZER_BUSY) {
+                // Start the next segment on a fresh recognizer
+                recognizer.destroy();
+                recognizer = null;
+            }
+            fail(error);
+        }
+
+        @Override
+        public void onResults(Bundle results) {
+            if (active != pending) {
+                return;
+            }
+            ArrayList<String> matches = results.getStringArrayList(SpeechRecognizer.RESULTS_RECOGNITION);
+            finishActive();
+            recognized++;
+            listener.onSegmentRecognized(pending.segmentId, matches != null ? matches : Collections.<String>emptyList());
+            startNext();
+        }
+
+        @Override
+        public void onPartialResults(Bundle partialResults) { }
+
+        @Override
+        public void onEvent(int eventType, Bundle params) { }
+    }
+}
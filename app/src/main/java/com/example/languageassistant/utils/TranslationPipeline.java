@@ -0,0 +1,208 @@
+package com.example.languageassistant.utils;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.core.content.ContextCompat;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * The translate path as a pipeline of {@link PipelineStage}s: recognize, translate,
+ * transliterate, layout and send. Each stage has its own bounded queue, thread and overload
+ * policy, so a burst of fast speech cannot pile up unbounded work:
+ *
+ * - recognize splits final recognition results into sentences; utterances that arrive while it
+ *   is behind are coalesced into one, since it is fed from the main thread and must not block.
+ * - translate runs a few sentences at once and waits when transliterate is full.
+ * - transliterate and layout are quick and wait when the next stage is full.
+ * - send keeps only the newest caption, as older ones would be replaced on the glasses anyway.
+ *
+ * Sentences reach the glasses in the order they were spoken.
+ */
+public class TranslationPipeline {
+
+    private static final String TAG = "TranslationPipeline";
+    // Keep roughly the last few lines of the caption; older text has scrolled away
+    private static final int MAX_CAPTION_CHARS = 240;
+
+    /** Shows the caption on the glasses; called on the main thread. */
+    public interface Display {
+        void show(String caption, int traceId);
+    }
+
+    // Text on its way through the pipeline with the languages it was recognized for
+    private static final class Item {
+        final String text;
+        final int traceId;
+        final String fromLanguage;
+        final String toLanguage;
+        final String displayLanguage;
+
+        Item(String text, int traceId, String fromLanguage, String toLanguage, String displayLanguage) {
+            this.text = text;
+            this.traceId = traceId;
+            this.fromLanguage = fromLanguage;
+            this.toLanguage = toLanguage;
+            this.displayLanguage = displayLanguage;
+        }
+
+        Item withText(String newText) {
+            return new Item(newText, traceId, fromLanguage, toLanguage, displayLanguage);
+        }
+
+        boolean sameLanguages(Item other) {
+            return fromLanguage.equals(other.fromLanguage) && toLanguage.equals(other.toLanguage)
+                    && displayLanguage.equals(other.displayLanguage);
+        }
+    }
+
+    private static final class Caption {
+        final String text;
+        final int traceId;
+
+        Caption(String text, int traceId) {
+            this.text = text;
+            this.traceId = traceId;
+        }
+    }
+
+    private final Context context;
+    private final ExecutorService[] executors = {
+            PipelineStage.newExecutor("recognize", 1),
+            PipelineStage.newExecutor("translate", 1),
+            PipelineStage.newExecutor("transliterate", 1),
+            PipelineStage.newExecutor("layout", 1),
+            PipelineStage.newExecutor("send", 1),
+    };
+    private final PipelineStage<Item, Item> recognize;
+    private final PipelineStage<Item, Item> translate;
+    private final PipelineStage<Item, Item> transliterate;
+    private final PipelineStage<Item, Caption> layout;
+    private final PipelineStage<Caption, Void> send;
+
+    // Owned by the layout stage's thread
+    private final StringBuilder caption = new StringBuilder();
+    private volatile boolean resetCaption;
+
+    public TranslationPipeline(Context context, final Display display) {
+        this.context = context.getApplicationContext();
+        final Executor mainExecutor = ContextCompat.getMainExecutor(this.context);
+
+        recognize = new PipelineStage<>("recognize", 4, PipelineStage.OverloadPolicy.COALESCE,
+                (queued, newer) -> queued.sameLanguages(newer) ? queued.withText(queued.text + " " + newer.text) : newer,
+                1, executors[0], (utterance, out) -> {
+                    for (String sentence : SentenceSplitter.split(utterance.text)) {
+                        out.emit(utterance.withText(sentence));
+                    }
+                    out.done();
+                });
+
+        translate = new PipelineStage<>("translate", 8, PipelineStage.OverloadPolicy.BLOCK,
+                ParallelTranslator.DEFAULT_MAX_IN_FLIGHT, executors[1], (sentence, out) -> {
+                    if (sentence.fromLanguage.equals(sentence.toLanguage)) {
+                        out.emit(sentence);
+                        out.done();
+                        return;
+                    }
+                    TranslationUtils.getTranslator(this.context).translate(sentence.text, sentence.fromLanguage, sentence.toLanguage,
+                            new TextTranslator.Callback() {
+                                @Override
+                                public void onSuccess(String translatedText) {
+                                    LatencyTracer.mark(sentence.traceId, LatencyTracer.Stage.TRANSLATION);
+                                    out.emit(sentence.withText(translatedText));
+                                    out.done();
+                                }
+
+                                @Override
+                                public void onFailure(Exception e) {
+                                    Log.e(TAG, "Translation failed for a sentence: " + e.getMessage());
+                                    out.fail(e);
+                                }
+                            });
+                });
+
+        transliterate = new PipelineStage<>("transliterate", 8, PipelineStage.OverloadPolicy.BLOCK,
+                1, executors[2], (sentence, out) -> {
+                    Transliterator transliterator = TranslationUtils.getTransliterator(this.context, sentence.displayLanguage);
+                    if (transliterator != null) {
+                        sentence = sentence.withText(transliterator.transliterate(sentence.text));
+                    }
+                    LatencyTracer.mark(sentence.traceId, LatencyTracer.Stage.TRANSLITERATION);
+                    out.emit(sentence);
+                    out.done();
+                });
+
+        layout = new PipelineStage<>("layout", 8, PipelineStage.OverloadPolicy.BLOCK,
+                1, executors[3], (sentence, out) -> {
+                    if (resetCaption) {
+                        resetCaption = false;
+                        caption.setLength(0);
+                    }
+                    if (caption.length() > 0) {
+                        caption.append(' ');
+                    }
+                    caption.append(sentence.text);
+                    trimToRecentText(caption);
+                    out.emit(new Caption(caption.toString(), sentence.traceId));
+                    out.done();
+                });
+
+        // The glasses are driven from the main thread; a newer caption replaces one still waiting
+        send = new PipelineStage<>("send", 1, PipelineStage.OverloadPolicy.COALESCE,
+                (queued, newer) -> newer, 1, executors[4], (latest, out) -> mainExecutor.execute(() -> {
+                    try {
+                        display.show(latest.text, latest.traceId);
+                    } finally {
+                        out.done();
+                    }
+                }));
+
+        recognize.then(translate).then(transliterate).then(layout).then(send);
+    }
+
+    /** Queues a final recognition result; never blocks, so it is safe on the main thread. */
+    public void submit(String recognizedText, int traceId, String fromLanguage, String toLanguage, String displayLanguage) {
+        if (recognizedText == null || recognizedText.trim().isEmpty()) {
+            return;
+        }
+        recognize.offer(new Item(recognizedText, traceId, fromLanguage, toLanguage, displayLanguage));
+    }
+
+    /** Drops queued work and starts the next caption from scratch, e.g. when listening restarts. */
+    public void clear() {
+        recognize.clear();
+        translate.clear();
+        transliterate.clear();
+        layout.clear();
+        send.clear();
+        resetCaption = true;
+    }
+
+    /** One line per stage with its queue depth and service times. */
+    public String getStats() {
+        return recognize.getStats() + "\n" + translate.getStats() + "\n" + transliterate.getStats() + "\n"
+                + layout.getStats() + "\n" + send.getStats() + "\n";
+    }
+
+    public void shutdown() {
+        recognize.stop();
+        translate.stop();
+        transliterate.stop();
+        layout.stop();
+        send.stop();
+        for (ExecutorService executor : executors) {
+            executor.shutdown();
+        }
+    }
+
+    // Drops whole words from the front until the text fits in MAX_CAPTION_CHARS
+    private static void trimToRecentText(StringBuilder text) {
+        if (text.length() <= MAX_CAPTION_CHARS) {
+            return;
+        }
+        int cut = text.indexOf(" ", text.length() - MAX_CAPTION_CHARS);
+        text.delete(0, cut < 0 ? text.length() - MAX_CAPTION_CHARS : cut + 1);
+    }
+}
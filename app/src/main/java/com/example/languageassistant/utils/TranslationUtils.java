@@ -2,21 +2,37 @@ package com.example.languageassistant.utils;
 
 import android.content.Context;
 import android.util.Log;
-import android.widget.Toast;
 
-import com.google.mlkit.common.model.DownloadConditions;
-import com.google.mlkit.nl.translate.TranslateLanguage;
-import com.google.mlkit.nl.translate.Translation;
-import com.google.mlkit.nl.translate.Translator;
-import com.google.mlkit.nl.translate.TranslatorOptions;
+import androidx.core.content.ContextCompat;
 
-import java.util.Arrays;
+import com.example.languageassistant.R;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
 
 public class TranslationUtils {
 
     private static final String TAG = "TranslationUtils";
+    private static final String CACHE_FILE_NAME = "translation_cache.log";
+
+    private static TranslationCache translationCache;
+    private static CachingTranslator cachingTranslator;
+    private static ParallelTranslator translator;
 
-    public interface TranslationCallback {
+    // Script tables in res/raw, loaded once on the first transliteration
+    private static final int[] TRANSLITERATION_TABLES = {
+            R.raw.translit_devanagari,
+            R.raw.translit_kannada,
+            R.raw.translit_tamil,
+            R.raw.translit_telugu,
+    };
+
+    // The callback type is shared with TextTranslator so callers can pass either
+    public interface TranslationCallback extends TextTranslator.Callback {
         void onSuccess(String translatedText);
         void onFailure(Exception e);
     }
@@ -28,113 +44,106 @@ public class TranslationUtils {
             return;
         }
 
-        if (!Arrays.asList(TranslateLanguage.getAllLanguages()).contains(fromLanguage) ||
-            !Arrays.asList(TranslateLanguage.getAllLanguages()).contains(toLanguage)) {
-            String errorMsg = "Unsupported language for translation: " + fromLanguage + " or " + toLanguage;
-            Log.e(TAG, errorMsg);
-            Toast.makeText(context, errorMsg, Toast.LENGTH_LONG).show();
-            callback.onFailure(new Exception(errorMsg));
+        LanguageModelManager.get(context).recordUsage(fromLanguage, toLanguage);
+
+        // Repeated sentences are answered from the cache; misses go to ML Kit
+        getTranslator(context).translate(text, fromLanguage, toLanguage, callback);
+    }
+
+    /**
+     * Translates {@code text} sentence by sentence and hands each translated sentence to
+     * {@code callback} in order on the main thread, as soon as the sentences before it are done.
+     */
+    public static void translateSegments(Context context, String text, String fromLanguage, String toLanguage, ParallelTranslator.SegmentCallback callback) {
+        if (fromLanguage.equals(toLanguage)) {
+            callback.onSegment(0, text);
+            callback.onComplete(1, null);
             return;
         }
+        LanguageModelManager.get(context).recordUsage(fromLanguage, toLanguage);
+        getTranslator(context).translateSegments(text, fromLanguage, toLanguage, callback);
+    }
 
-        TranslatorOptions options =
-                new TranslatorOptions.Builder()
-                        .setSourceLanguage(fromLanguage)
-                        .setTargetLanguage(toLanguage)
-                        .build();
-        final Translator translator = Translation.getClient(options);
-
-        DownloadConditions conditions = new DownloadConditions.Builder()
-                .requireWifi()
-                .build();
-
-        translator.downloadModelIfNeeded(conditions)
-                .addOnSuccessListener(aVoid -> {
-                    Log.d(TAG, "Language model for " + fromLanguage + "->" + toLanguage + " downloaded or already available.");
-                    translator.translate(text)
-                            .addOnSuccessListener(callback::onSuccess)
-                            .addOnFailureListener(e -> {
-                                Log.e(TAG, "ML Kit Translation failed: " + e.getMessage());
-                                Toast.makeText(context, "Translation Error: " + e.getMessage(), Toast.LENGTH_LONG).show();
-                                callback.onFailure(e);
-                            })
-                            .addOnCompleteListener(task -> translator.close());
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "ML Kit Model download failed: " + e.getMessage());
-                    Toast.makeText(context, "Model Download Error: " + e.getMessage(), Toast.LENGTH_LONG).show();
-                    callback.onFailure(e);
-                    translator.close();
-                });
+    /**
+     * The app's translator: ML Kit behind the translation cache, split into sentences with a few
+     * in flight at once. ML Kit translates asynchronously, so pieces are dispatched from the main
+     * thread and the in-flight limit is what bounds the work.
+     */
+    public static synchronized ParallelTranslator getTranslator(Context context) {
+        if (translator == null) {
+            translator = newTargetTranslator(context);
+        }
+        return translator;
+    }
+
+    /**
+     * A translator for one more target language. It shares the cache and the warm ML Kit
+     * translators, but has its own in-flight limit, so a slow pair cannot hold up the others.
+     */
+    public static synchronized ParallelTranslator newTargetTranslator(Context context) {
+        if (cachingTranslator == null) {
+            cachingTranslator = new CachingTranslator(new MlKitTextTranslator(context), getTranslationCache(context));
+        }
+        Executor mainExecutor = ContextCompat.getMainExecutor(context.getApplicationContext());
+        return new ParallelTranslator(cachingTranslator, mainExecutor, mainExecutor,
+                ParallelTranslator.DEFAULT_MAX_IN_FLIGHT, SentenceSplitter.DEFAULT_MAX_CHARS);
+    }
+
+    public static synchronized TranslationCache getTranslationCache(Context context) {
+        if (translationCache == null) {
+            translationCache = new TranslationCache(new File(context.getApplicationContext().getFilesDir(), CACHE_FILE_NAME));
+        }
+        return translationCache;
     }
 
     public static void transliterateForDisplay(Context context, String text, String targetScriptLanguageCode, final TranslationCallback callback) {
-        // This is a VERY rudimentary placeholder for transliteration.
-        // A proper solution would require a comprehensive transliteration engine, library, or API.
         if (text == null || text.isEmpty()) {
             Log.w(TAG, "Input text for transliteration is empty. Returning original text.");
             callback.onSuccess(text);
             return;
         }
 
-        if ("en".equalsIgnoreCase(targetScriptLanguageCode)) {
-            Log.d(TAG, "Attempting basic transliteration for target script: " + targetScriptLanguageCode);
-            StringBuilder transliteratedText = new StringBuilder();
-            for (char c : text.toCharArray()) {
-                switch (c) {
-                    // Simple Kannada vowel and consonant mappings (very incomplete)
-                    case 'ಅ': transliteratedText.append("a"); break;
-                    case 'ಆ': transliteratedText.append("aa"); break;
-                    case 'ಇ': transliteratedText.append("i"); break;
-                    case 'ಈ': transliteratedText.append("ii"); break;
-                    case 'ಉ': transliteratedText.append("u"); break;
-                    case 'ಊ': transliteratedText.append("uu"); break;
-                    case 'ಕ': transliteratedText.append("ka"); break;
-                    case 'ಖ': transliteratedText.append("kha"); break;
-                    case 'ಗ': transliteratedText.append("ga"); break;
-                    case 'ಘ': transliteratedText.append("gha"); break;
-                    case 'ಚ': transliteratedText.append("cha"); break;
-                    case 'ಛ': transliteratedText.append("chha"); break;
-                    case 'ಜ': transliteratedText.append("ja"); break;
-                    case 'ಝ': transliteratedText.append("jha"); break;
-                    case 'ಟ': transliteratedText.append("ṭa"); break;
-                    case 'ಠ': transliteratedText.append("ṭha"); break;
-                    case 'ಡ': transliteratedText.append("ḍa"); break;
-                    case 'ಢ': transliteratedText.append("ḍha"); break;
-                    case 'ಣ': transliteratedText.append("ṇa"); break;
-                    case 'ತ': transliteratedText.append("ta"); break;
-                    case 'ಥ': transliteratedText.append("tha"); break;
-                    case 'ದ': transliteratedText.append("da"); break;
-                    case 'ಧ': transliteratedText.append("dha"); break;
-                    case 'ನ': transliteratedText.append("na"); break;
-                    case 'ಪ': transliteratedText.append("pa"); break;
-                    case 'ಫ': transliteratedText.append("pha"); break;
-                    case 'ಬ': transliteratedText.append("ba"); break;
-                    case 'ಭ': transliteratedText.append("bha"); break;
-                    case 'ಮ': transliteratedText.append("ma"); break;
-                    case 'ಯ': transliteratedText.append("ya"); break;
-                    case 'ರ': transliteratedText.append("ra"); break;
-                    case 'ಲ': transliteratedText.append("la"); break;
-                    case 'ವ': transliteratedText.append("va"); break;
-                    case 'ಶ': transliteratedText.append("sha"); break;
-                    case 'ಷ': transliteratedText.append("ṣa"); break;
-                    case 'ಸ': transliteratedText.append("sa"); break;
-                    case 'ಹ': transliteratedText.append("ha"); break;
-                    case 'ಳ': transliteratedText.append("ḷa"); break;
-                    case ' ': transliteratedText.append(" "); break;
-                    case '.': transliteratedText.append(". "); break;
-                    case ',': transliteratedText.append(", "); break;
-                    default:
-                        transliteratedText.append("?"); // Placeholder for unmapped chars
-                        Log.w(TAG, "Unmapped character in basic transliteration: " + c);
-                        break;
-                }
-            }
-            Log.d(TAG, "Basic transliteration performed. Original: '" + text + "', Transliterated: '" + transliteratedText.toString() + "'");
-            callback.onSuccess(transliteratedText.toString());
-        } else {
-            Log.w(TAG, "Transliteration for display language '" + targetScriptLanguageCode + "' is not implemented or not 'en'. Returning original text.");
+        Transliterator transliterator = getTransliterator(context, targetScriptLanguageCode);
+        if (transliterator == null) {
+            Log.w(TAG, "Transliteration for display language '" + targetScriptLanguageCode + "' is not supported. Returning original text.");
             callback.onSuccess(text);
+            return;
+        }
+        callback.onSuccess(transliterator.transliterate(text));
+    }
+
+    /** Returns the transliterator for a display language code, or null if it is not supported. */
+    public static Transliterator getTransliterator(Context context, String displayLanguageCode) {
+        ensureTransliterationTablesLoaded(context);
+        return Transliterators.forDisplayLanguage(displayLanguageCode);
+    }
+
+    /**
+     * Creates a transliterator for text that arrives in chunks (e.g. a streamed answer), writing
+     * into {@code sink}. Unsupported display languages pass the text through unchanged.
+     */
+    public static StreamingTransliterator newStreamingTransliterator(Context context, String displayLanguageCode, Appendable sink) {
+        return new StreamingTransliterator(getTransliterator(context, displayLanguageCode), sink);
+    }
+
+    /** Loads the transliteration tables now, so the first caption does not wait for them. */
+    public static void preloadTransliterationTables(Context context) {
+        ensureTransliterationTablesLoaded(context);
+    }
+
+    private static synchronized void ensureTransliterationTablesLoaded(Context context) {
+        if (Transliterators.isInstalled()) {
+            return;
+        }
+        List<ScriptTable> tables = new ArrayList<>();
+        for (int resId : TRANSLITERATION_TABLES) {
+            try (InputStream in = context.getResources().openRawResource(resId)) {
+                tables.add(ScriptTable.parse(in));
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to load transliteration table " + resId + ": " + e.getMessage(), e);
+            }
         }
+        Transliterators.install(tables);
+        Log.d(TAG, "Loaded " + tables.size() + " transliteration tables.");
     }
 }
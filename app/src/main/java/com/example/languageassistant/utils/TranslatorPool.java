@@ -0,0 +1,297 @@
+package com.example.languageassistant.utils;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.google.android.gms.tasks.Task;
+import com.google.mlkit.common.model.DownloadConditions;
+import com.google.mlkit.nl.translate.Translation;
+import com.google.mlkit.nl.translate.Translator;
+import com.google.mlkit.nl.translate.TranslatorOptions;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps ML Kit {@link Translator} clients open between utterances, keyed by language pair, so
+ * repeated translations in the same pair reuse a client whose model is already loaded.
+ *
+ * Callers {@link #acquire} a {@link Lease} and close it when their translation finishes. Idle
+ * clients are closed after {@link #DEFAULT_IDLE_TIMEOUT_MS} or when the pool grows past its
+ * maximum size, least recently used first. Clients that are still leased are never closed
+ * underneath a caller; they are closed when the last lease is returned.
+ */
+public class TranslatorPool {
+
+    private static final String TAG = "TranslatorPool";
+    public static final int DEFAULT_MAX_SIZE = 4;
+    public static final long DEFAULT_IDLE_TIMEOUT_MS = 5 * 60 * 1000L;
+
+    private static TranslatorPool instance;
+
+    private final int maxSize;
+    private final long idleTimeoutMs;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    // Access-ordered, so iteration starts at the least recently used pair
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private boolean sweepScheduled = false;
+    private Context registeredContext;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public static synchronized TranslatorPool get() {
+        if (instance == null) {
+            instance = new TranslatorPool(DEFAULT_MAX_SIZE, DEFAULT_IDLE_TIMEOUT_MS);
+        }
+        return instance;
+    }
+
+    public TranslatorPool(int maxSize, long idleTimeoutMs) {
+        this.maxSize = maxSize;
+        this.idleTimeoutMs = idleTimeoutMs;
+    }
+
+    private static final class Entry {
+        final String key;
+        final Translator translator;
+        final Task<Void> modelReady;
+        int refCount;
+        long lastReleasedAt;
+        boolean evicted;
+
+        Entry(String key, Translator translator, Task<Void> modelReady) {
+            this.key = key;
+            this.translator = translator;
+            this.modelReady = modelReady;
+        }
+    }
+
+    /** A borrowed translator. Close it exactly once when the translation has completed. */
+    public static final class Lease implements Closeable {
+        private final TranslatorPool pool;
+        private final Entry entry;
+        private boolean closed;
+
+        private Lease(TranslatorPool pool, Entry entry) {
+            this.pool = pool;
+            this.entry = entry;
+        }
+
+        public Translator getTranslator() {
+            return entry.translator;
+        }
+
+        /** Completes once the language model for this pair is downloaded and loaded. */
+        public Task<Void> whenReady() {
+            return entry.modelReady;
+        }
+
+        @Override
+        public void close() {
+            synchronized (pool) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+            }
+            pool.release(entry);
+        }
+    }
+
+    public static final class Stats {
+        public final long hits;
+        public final long misses;
+        public final long evictions;
+        public final int size;
+
+        Stats(long hits, long misses, long evictions, int size) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.size = size;
+        }
+
+        @Override
+        public String toString() {
+            long total = hits + misses;
+            int hitRate = total == 0 ? 0 : (int) (hits * 100 / total);
+            return "hits=" + hits + " misses=" + misses + " (" + hitRate + "% hit rate) evictions=" + evictions + " open=" + size;
+        }
+    }
+
+    /**
+     * Ties the pool to the application: idle translators are closed when the app is
+     * backgrounded or the system is low on memory.
+     */
+    public synchronized void attach(Context context) {
+        if (registeredContext != null) {
+            return;
+        }
+        registeredContext = context.getApplicationContext();
+        registeredContext.registerComponentCallbacks(componentCallbacks);
+    }
+
+    public synchronized Lease acquire(String fromLanguage, String toLanguage) {
+        String key = fromLanguage + "->" + toLanguage;
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            hits++;
+        } else {
+            misses++;
+            TranslatorOptions options = new TranslatorOptions.Builder()
+                    .setSourceLanguage(fromLanguage)
+                    .setTargetLanguage(toLanguage)
+                    .build();
+            Translator translator = Translation.getClient(options);
+            DownloadConditions conditions = new DownloadConditions.Builder()
+                    .requireWifi()
+                    .build();
+            entry = new Entry(key, translator, translator.downloadModelIfNeeded(conditions));
+            final Entry created = entry;
+            // A failed download must not stay cached, otherwise every later lease fails too
+            entry.modelReady.addOnFailureListener(e -> remove(created));
+            entries.put(key, entry);
+            trimToSize();
+            Log.d(TAG, "Opened translator for " + key + " (" + getStats() + ")");
+        }
+        entry.refCount++;
+        return new Lease(this, entry);
+    }
+
+    private synchronized void release(Entry entry) {
+        entry.refCount--;
+        entry.lastReleasedAt = SystemClock.elapsedRealtime();
+        if (entry.refCount == 0) {
+            if (entry.evicted) {
+                entry.translator.close();
+            } else {
+                scheduleSweep();
+            }
+        }
+    }
+
+    private synchronized void remove(Entry entry) {
+        if (entries.get(entry.key) == entry) {
+            entries.remove(entry.key);
+            evict(entry);
+        }
+    }
+
+    /** Closes every idle translator that has not been used for at least {@code minIdleMs}. */
+    public synchronized void evictIdle(long minIdleMs) {
+        long now = SystemClock.elapsedRealtime();
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            Entry entry = it.next();
+            if (entry.refCount == 0 && now - entry.lastReleasedAt >= minIdleMs) {
+                it.remove();
+                evict(entry);
+            }
+        }
+    }
+
+    /** Drops every translator that uses {@code language}, e.g. before its model is deleted. */
+    public synchronized void evictLanguage(String language) {
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            Entry entry = it.next();
+            if (entry.key.startsWith(language + "->") || entry.key.endsWith("->" + language)) {
+                it.remove();
+                evict(entry);
+            }
+        }
+    }
+
+    /** Closes all translators. Called when the app is finishing. */
+    public synchronized void closeAll() {
+        List<Entry> all = new ArrayList<>(entries.values());
+        entries.clear();
+        for (Entry entry : all) {
+            evict(entry);
+        }
+        handler.removeCallbacks(sweepRunnable);
+        sweepScheduled = false;
+        if (registeredContext != null) {
+            registeredContext.unregisterComponentCallbacks(componentCallbacks);
+            registeredContext = null;
+        }
+        Log.i(TAG, "Closed all translators (" + getStats() + ")");
+    }
+
+    public synchronized Stats getStats() {
+        return new Stats(hits, misses, evictions, entries.size());
+    }
+
+    private void trimToSize() {
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (entries.size() > maxSize && it.hasNext()) {
+            Entry entry = it.next().getValue();
+            if (entry.refCount == 0) {
+                it.remove();
+                evict(entry);
+            }
+        }
+    }
+
+    private void evict(Entry entry) {
+        evictions++;
+        entry.evicted = true;
+        if (entry.refCount == 0) {
+            entry.translator.close();
+        }
+        Log.d(TAG, "Evicted translator for " + entry.key);
+    }
+
+    private void scheduleSweep() {
+        if (!sweepScheduled) {
+            sweepScheduled = true;
+            handler.postDelayed(sweepRunnable, idleTimeoutMs);
+        }
+    }
+
+    private final Runnable sweepRunnable = new Runnable() {
+        @Override
+        public void run() {
+            synchronized (TranslatorPool.this) {
+                sweepScheduled = false;
+                evictIdle(idleTimeoutMs);
+                if (!entries.isEmpty()) {
+                    scheduleSweep();
+                }
+                Log.d(TAG, "Idle sweep done (" + getStats() + ")");
+            }
+        }
+    };
+
+    private final ComponentCallbacks2 componentCallbacks = new ComponentCallbacks2() {
+        @Override
+        public void onTrimMemory(int level) {
+            // Not on UI_HIDDEN: PipelineService keeps listening with the phone UI hidden, and
+            // this warm state is what it is there to keep. Only give it up once the process is
+            // cached in the background, or the system is about to start killing running apps.
+            if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND
+                    || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+                evictIdle(0);
+            }
+        }
+
+        @Override
+        public void onConfigurationChanged(Configuration newConfig) { }
+
+        @Override
+        public void onLowMemory() {
+            evictIdle(0);
+        }
+    };
+}
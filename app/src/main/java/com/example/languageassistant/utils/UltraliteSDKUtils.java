@@ -1,25 +1,29 @@
 package com.example.languageassistant.utils;
 
+import android.content.ComponentCallbacks2;
 import android.content.Context;
+import android.content.res.Configuration;
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
-import android.widget.EditText;
 import android.widget.Toast;
 import androidx.lifecycle.MutableLiveData;
-import com.vuzix.ultralite.Layout;
 import com.vuzix.ultralite.UltraliteSDK;
-import com.vuzix.ultralite.sdk.EventListener;
-import com.vuzix.ultralite.utils.scroll.TextToImageSlicer; // Assuming this is the correct import
 // import com.vuzix.ultralite.utils.scroll.AckWaiter; // Assuming this is the correct import for AckWaiter
 
-import static com.vuzix.ultralite.sdk.LinkStatusListener.LINK_STATUS_DISCONNECTED;
-
 public class UltraliteSDKUtils {
 
     private static final String TAG = "UltraliteSDKUtils";
     public static final int REQUEST_CONTROL_TIMEOUT_MS = 10000; // 10 seconds
+    public static final int SLICE_HEIGHT = 48;
+    public static final int FONT_SIZE = 35;
+    private static final long SLICE_POOL_BYTES = 2L * 1024 * 1024;
+    private static final String REGION_SCROLL_TEXT = "scrollText";
 
     private static Context context;
-    public static UltraliteSDK ultraliteSDK;
+    // All glasses I/O goes through this; the Vuzix SDK unless a simulator was set
+    private static GlassesTransport<Bitmap> transport;
 
     // LiveData for SDK status
     public static MutableLiveData<Boolean> isSdkAvailable = new MutableLiveData<>(false);
@@ -28,56 +32,147 @@ public class UltraliteSDKUtils {
     // Placeholder for actual scrolling text view if needed directly
     // private static UltraliteSDK.ScrollingTextView scrollingTextView; 
 
+    // Every SDK display call runs on this thread; UI and Gemini callbacks only post to it
+    private static final DisplayActor displayActor = new DisplayActor("GlassesDisplay");
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // Bumped whenever the scroll view is reset; slices queued for an older view are dropped
+    private static volatile int scrollViewGeneration = 0;
+    // Utterance whose text the actor last handed to the display session, for latency tracing
+    private static volatile int displayTraceId = LatencyTracer.NO_TRACE;
+
+    // Rendered lines are cached and their bitmaps pooled across display calls
+    private static final BitmapPool slicePool = new BitmapPool(GlassesRenderer.DISPLAY_WIDTH, SLICE_HEIGHT, Bitmap.Config.ARGB_8888, SLICE_POOL_BYTES);
+    private static final RenderedSliceCache sliceCache = new RenderedSliceCache(RenderedSliceCache.DEFAULT_MAX_BYTES, slicePool);
+    private static final GlassesRenderer renderer = new GlassesRenderer(SLICE_HEIGHT, FONT_SIZE, sliceCache, slicePool);
+    // Slices are paced by the sender's own thread and handed to the display actor to send
+    private static final SliceSender<RenderedSliceCache.Slice> sliceSender = new SliceSender<>(new SliceSender.SliceLink<RenderedSliceCache.Slice>() {
+        @Override
+        public void sendSlice(RenderedSliceCache.Slice slice, int sliceIndex, boolean scrollFirst, SliceSender.Transmission transmission) {
+            final int generation = scrollViewGeneration;
+            // Slices of the previous text still in flight are counted towards the newer utterance
+            final int traceId = displayTraceId;
+            displayActor.post(REGION_SCROLL_TEXT, DisplayActor.Mode.BARRIER, new DisplayActor.Command() {
+                @Override
+                public void run() {
+                    try {
+                        if (generation == scrollViewGeneration) {
+                            // The slice waited in the actor's queue; its ack latency starts now
+                            transmission.onSent();
+                            transport.sendScrollImage(slice.getBitmap(), sliceIndex, scrollFirst);
+                            LatencyTracer.mark(traceId, LatencyTracer.Stage.FIRST_SLICE_SENT);
+                            LatencyTracer.mark(traceId, LatencyTracer.Stage.LAST_SLICE_SENT);
+                        } else {
+                            transmission.onDropped();
+                        }
+                    } finally {
+                        slice.release();
+                    }
+                }
+
+                @Override
+                public void discard() {
+                    transmission.onDropped();
+                    slice.release();
+                }
+            });
+        }
+
+        @Override
+        public void discardSlice(RenderedSliceCache.Slice slice) {
+            slice.release();
+        }
+
+        @Override
+        public boolean reportsAcks() {
+            // Without per-image acks the timing model paces sends
+            return transport != null && transport.reportsAcks();
+        }
+    });
+    // Tracks what the glasses show, so layout calls and unchanged lines are not sent again
+    private static final DisplaySession<RenderedSliceCache.Slice> displaySession = new DisplaySession<>(new DisplaySession.Target() {
+        @Override
+        public void applyScrollLayout() {
+            scrollViewGeneration++;
+            transport.setScrollLayout();
+        }
+
+        @Override
+        public void configureScroll(DisplaySession.ScrollConfig config) {
+            scrollViewGeneration++;
+            transport.configureScroll(config.sliceHeight, config.lowestLineShowing, config.maxLinesShowing, config.scrollSpeed);
+        }
+    }, renderer, sliceSender);
+
 
     public static void init(Context appContext) {
+        if (context == null) {
+            // Registered once per process; init runs again when the activity is recreated
+            appContext.getApplicationContext().registerComponentCallbacks(memoryCallbacks);
+        }
         context = appContext.getApplicationContext();
-        ultraliteSDK = UltraliteSDK.get(context);
-        // scrollingTextView = ultraliteSDK.getScrollingTextView(); // Initialize if direct access is planned
-        
-        // Observe SDK availability
-        ultraliteSDK.getAvailable().observeForever(available -> {
-            isSdkAvailable.postValue(available);
-            if (available) {
-                Log.i(TAG, "Ultralite SDK is available.");
-                requestSdkControl();
-            } else {
-                Log.i(TAG, "Ultralite SDK is not available.");
-                isSdkControlled.postValue(false);
-            }
-        });
+        if (transport == null) {
+            transport = new VuzixGlassesTransport(UltraliteSDK.get(context));
+        }
+        displayActor.start();
+        sliceSender.start();
+        // SDK availability is observed while the event listener is registered
+    }
+
+    /**
+     * Replaces the glasses transport, e.g. with a {@link SimulatedGlassesTransport} to run the
+     * display path without glasses. Call before {@link #init} and {@link #addEventListener}.
+     */
+    public static void setTransport(GlassesTransport<Bitmap> glassesTransport) {
+        transport = glassesTransport;
     }
 
-    public static EventListener getEventListener() {
+    public static GlassesTransport.Listener getEventListener() {
         return eventListener;
     }
 
-    public static final EventListener eventListener = new EventListener() {
+    // Transports may call back on any thread; the handlers below show toasts, so hop to the main thread
+    public static final GlassesTransport.Listener eventListener = new GlassesTransport.Listener() {
         @Override
-        public void onControlGained() {
-            Log.i(TAG, "EventListener: Control Gained");
-            isSdkControlled.postValue(true);
-            handleControlGained();
+        public void onAvailabilityChanged(boolean available) {
+            mainHandler.post(() -> {
+                isSdkAvailable.postValue(available);
+                if (available) {
+                    Log.i(TAG, "Ultralite SDK is available.");
+                    requestSdkControl();
+                } else {
+                    Log.i(TAG, "Ultralite SDK is not available.");
+                    isSdkControlled.postValue(false);
+                }
+            });
         }
 
         @Override
-        public void onControlLost() {
-            Log.i(TAG, "EventListener: Control Lost");
-            isSdkControlled.postValue(false);
-            handleControlLost();
+        public void onControlGained() {
+            mainHandler.post(() -> {
+                Log.i(TAG, "EventListener: Control Gained");
+                isSdkControlled.postValue(true);
+                handleControlGained();
+            });
         }
 
         @Override
-        public void onConnectionStatusChanged(int status) {
-            Log.d(TAG, "EventListener: onConnectionStatusChanged - Status: " + status);
+        public void onControlLost() {
+            mainHandler.post(() -> {
+                Log.i(TAG, "EventListener: Control Lost");
+                isSdkControlled.postValue(false);
+                handleControlLost();
+            });
         }
 
         @Override
-        public void onLinkStatusChanged(int status) {
-            Log.d(TAG, "EventListener: onLinkStatusChanged - Status: " + status);
-            if (status == LINK_STATUS_DISCONNECTED) {
-                Log.w(TAG, "EventListener: Link Disconnected");
-                isSdkControlled.postValue(false);
-                Toast.makeText(context, "Connection to glasses lost or timed out.", Toast.LENGTH_LONG).show();
+        public void onLinkStatusChanged(boolean connected) {
+            Log.d(TAG, "EventListener: onLinkStatusChanged - Connected: " + connected);
+            if (!connected) {
+                mainHandler.post(() -> {
+                    Log.w(TAG, "EventListener: Link Disconnected");
+                    isSdkControlled.postValue(false);
+                    Toast.makeText(context, "Connection to glasses lost or timed out.", Toast.LENGTH_LONG).show();
+                });
             }
         }
 
@@ -85,19 +180,24 @@ public class UltraliteSDKUtils {
         public void onDisplayOnline(boolean isOnline) {
             Log.d(TAG, "EventListener: onDisplayOnline - Display is " + (isOnline ? "online" : "offline"));
         }
+
+        @Override
+        public void onImageAcked() {
+            sliceSender.onSliceAcked();
+        }
     };
 
     public static void requestSdkControl() {
-        if (ultraliteSDK == null) {
-            Log.e(TAG, "UltraliteSDK instance is null. Cannot request control.");
+        if (transport == null) {
+            Log.e(TAG, "Glasses transport is null. Cannot request control.");
             Toast.makeText(context, "SDK not initialized.", Toast.LENGTH_SHORT).show();
             return;
         }
 
-        if (Boolean.TRUE.equals(isSdkAvailable.getValue()) && (ultraliteSDK.getControlledByMe() == null || !ultraliteSDK.getControlledByMe().getValue())) {
+        if (Boolean.TRUE.equals(isSdkAvailable.getValue()) && !transport.isControlled()) {
             Log.d(TAG, "Requesting SDK control...");
             try {
-                boolean requested = ultraliteSDK.requestControl(REQUEST_CONTROL_TIMEOUT_MS);
+                boolean requested = transport.requestControl(REQUEST_CONTROL_TIMEOUT_MS);
                 if (requested) {
                     Log.d(TAG, "SDK control request successful. Waiting for onControlGained callback.");
                 } else {
@@ -110,7 +210,7 @@ public class UltraliteSDKUtils {
                 Toast.makeText(context, "Error requesting control: " + e.getMessage(), Toast.LENGTH_SHORT).show();
                 isSdkControlled.postValue(false);
             }
-        } else if (ultraliteSDK.getControlledByMe() != null && ultraliteSDK.getControlledByMe().getValue()) {
+        } else if (transport.isControlled()) {
             Log.d(TAG, "Already have SDK control.");
             isSdkControlled.postValue(true);
              handleControlGained(); // Call gain handler if already controlled
@@ -120,6 +220,8 @@ public class UltraliteSDKUtils {
     public static void handleControlGained() {
         Log.d(TAG, "handleControlGained: SDK control acquired.");
         Toast.makeText(context, "Vuzix Glasses Connected", Toast.LENGTH_SHORT).show();
+        // Whatever the session remembers may not be on the glasses any more
+        displayActor.post(REGION_SCROLL_TEXT, DisplayActor.Mode.BARRIER, displaySession::invalidate);
         // Any other setup needed when control is gained can be added here
         // e.g., initializing Gemini model if that's still relevant here or in MainActivity
     }
@@ -128,10 +230,19 @@ public class UltraliteSDKUtils {
         Log.d(TAG, "handleControlLost: SDK control lost.");
         Toast.makeText(context, "Vuzix Glasses Disconnected", Toast.LENGTH_SHORT).show();
         // Any cleanup when control is lost
+        displayActor.post(REGION_SCROLL_TEXT, DisplayActor.Mode.BARRIER, displaySession::invalidate);
         clearGlassesDisplay();
     }
     
-    public static void displayTextOnGlasses(String text, EditText editTextScrollingSpeed) {
+    public static void displayTextOnGlasses(String text, String scrollingSpeed) {
+        displayTextOnGlasses(text, scrollingSpeed, LatencyTracer.NO_TRACE);
+    }
+
+    /**
+     * Shows {@code text}; slices sent for it are marked on the {@link LatencyTracer} trace.
+     * {@code scrollingSpeed} is the speed as typed by the user, e.g. "1.0"; empty means the default.
+     */
+    public static void displayTextOnGlasses(String text, String scrollingSpeed, int traceId) {
         if (!Boolean.TRUE.equals(isSdkControlled.getValue())) {
             Log.w(TAG, "Cannot display text on glasses: SDK not controlled.");
             Toast.makeText(context, "Glasses not controlled.", Toast.LENGTH_SHORT).show();
@@ -143,110 +254,149 @@ public class UltraliteSDKUtils {
             return;
         }
 
-        try {
-            float speed = 1.0f; 
-            if (editTextScrollingSpeed != null) {
-                String speedStr = editTextScrollingSpeed.getText().toString();
-                if (!speedStr.isEmpty()) {
-                    try {
-                        speed = Float.parseFloat(speedStr);
-                        if (speed <= 0) {
-                            speed = 1.0f; 
-                            Toast.makeText(context, "Invalid speed, using default.", Toast.LENGTH_SHORT).show();
-                        }
-                    } catch (NumberFormatException e) {
-                        Log.w(TAG, "Invalid speed format, using default: " + speedStr);
-                        Toast.makeText(context, "Invalid speed format, using default.", Toast.LENGTH_SHORT).show();
-                    }
-                }
-            }
-            
-            final int sliceHeight = 48; 
-            final int fontSize = 35;    
-            final int lowestLineShowing = 0; // For Z100, this might be 0 for bottom line
-            final int maxLinesShowing = 3;   // Max lines on Z100 display
+        showOnGlasses(text, scrollingSpeed, traceId);
+        Toast.makeText(context, "Sending to glasses...", Toast.LENGTH_SHORT).show();
+    }
 
-            ultraliteSDK.setLayout(Layout.SCROLL, 0, true, true, 0); // Ensure this is the correct layout for Z100
-            UltraliteSDK.ScrollingTextView scrollingTextView = ultraliteSDK.getScrollingTextView();
-            
-            // Configure scrolling parameters. The speed parameter in scrollLayoutConfig might be an int.
-            // The boolean for `true` might mean "start scrolling immediately" or similar.
-            // The Z100 SDK documentation should be consulted for exact parameters.
-            // Example: scrollLayoutConfig(sliceHeight, lowestLine, maxLines, scrollSpeedInt, autoStart)
-            int scrollSpeedInt = (int) (speed * 10); // Example conversion, adjust as needed
-            scrollingTextView.scrollLayoutConfig(sliceHeight, lowestLineShowing, maxLinesShowing, scrollSpeedInt, true);
-            
-            chunkStringsToEngine(text, sliceHeight, fontSize, scrollingTextView, maxLinesShowing);
+    /**
+     * Replaces the text on the glasses without a toast, for text that is revised several times a
+     * second such as a caption's unstable last words. Only the lines that changed are sent.
+     */
+    public static void reviseTextOnGlasses(String text, String scrollingSpeed, int traceId) {
+        if (!Boolean.TRUE.equals(isSdkControlled.getValue()) || text == null || text.isEmpty()) {
+            return;
+        }
+        showOnGlasses(text, scrollingSpeed, traceId);
+    }
 
-            Log.i(TAG, "Displaying on glasses: '" + text + "' with speed factor: " + speed);
-            Toast.makeText(context, "Sending to glasses...", Toast.LENGTH_SHORT).show();
+    private static void showOnGlasses(String text, String scrollingSpeed, int traceId) {
+        final DisplaySession.ScrollConfig config = scrollConfig(scrollingSpeed);
+        // Superseded by any newer text before it is rendered
+        displayActor.post(REGION_SCROLL_TEXT, DisplayActor.Mode.REPLACE, () -> {
+            try {
+                // Only lines that differ from what is already on the glasses are rendered and sent
+                displayTraceId = traceId;
+                displaySession.show(text, config);
+                Log.i(TAG, "Displaying on glasses: '" + text + "' (" + displaySession.getStats() + "; " + sliceCache.getStats() + ")");
+            } catch (Exception e) {
+                Log.e(TAG, "Error displaying text on glasses: " + e.getMessage(), e);
+                mainHandler.post(() -> Toast.makeText(context, "Error sending to glasses.", Toast.LENGTH_SHORT).show());
+            }
+        });
+    }
 
-        } catch (Exception e) {
-            Log.e(TAG, "Error displaying text on glasses: " + e.getMessage(), e);
-            Toast.makeText(context, "Error sending to glasses.", Toast.LENGTH_SHORT).show();
-        }
+    /**
+     * Continues the text on the glasses with {@code delta}, e.g. the next words of a caption or
+     * answer. Only the last line and any new lines are sent.
+     */
+    public static void appendTextOnGlasses(String delta, String scrollingSpeed) {
+        appendTextOnGlasses(delta, scrollingSpeed, LatencyTracer.NO_TRACE);
     }
 
-    public static void clearGlassesDisplay() {
-        if (Boolean.TRUE.equals(isSdkControlled.getValue()) && ultraliteSDK != null) {
+    public static void appendTextOnGlasses(String delta, String scrollingSpeed, int traceId) {
+        if (!Boolean.TRUE.equals(isSdkControlled.getValue())) {
+            Log.w(TAG, "Cannot append text on glasses: SDK not controlled.");
+            return;
+        }
+        if (delta == null || delta.isEmpty()) {
+            return;
+        }
+        final DisplaySession.ScrollConfig config = scrollConfig(scrollingSpeed);
+        displayActor.post(REGION_SCROLL_TEXT, DisplayActor.Mode.APPEND, () -> {
             try {
-                 ultraliteSDK.clearDisplay(); // Use the new clearDisplay method
-                Log.i(TAG, "Cleared glasses display.");
-                Toast.makeText(context, "Display cleared.", Toast.LENGTH_SHORT).show();
+                displayTraceId = traceId;
+                displaySession.append(delta, config);
+                Log.d(TAG, "Appended to glasses: '" + delta + "' (" + displaySession.getStats() + ")");
             } catch (Exception e) {
-                Log.e(TAG, "Error clearing glasses display: " + e.getMessage(), e);
+                Log.e(TAG, "Error appending text on glasses: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    private static DisplaySession.ScrollConfig scrollConfig(String speedStr) {
+        float speed = 1.0f;
+        if (speedStr != null && !speedStr.isEmpty()) {
+            try {
+                speed = Float.parseFloat(speedStr);
+                if (speed <= 0) {
+                    speed = 1.0f;
+                    Toast.makeText(context, "Invalid speed, using default.", Toast.LENGTH_SHORT).show();
+                }
+            } catch (NumberFormatException e) {
+                Log.w(TAG, "Invalid speed format, using default: " + speedStr);
+                Toast.makeText(context, "Invalid speed format, using default.", Toast.LENGTH_SHORT).show();
             }
         }
+        final int lowestLineShowing = 0; // For Z100, this might be 0 for bottom line
+        final int maxLinesShowing = 3;   // Max lines on Z100 display
+        int scrollSpeedInt = (int) (speed * 10); // Example conversion, adjust as needed
+        return new DisplaySession.ScrollConfig(SLICE_HEIGHT, lowestLineShowing, maxLinesShowing, scrollSpeedInt);
     }
-    
-    // Added scrollingTextView and maxLinesShowing as parameters
-    private static void chunkStringsToEngine(String content, int sliceHeight, int fontSize, UltraliteSDK.ScrollingTextView scrollingTextView, int maxLinesShowing)  {
-        // AckWaiter might not be available or needed for Z100 direct scrolling text view.
-        // If it is, ensure it's initialized correctly:
-        // AckWaiter ackWaiter = new AckWaiter(ultraliteSDK); 
-        
-        TextToImageSlicer slicer = new TextToImageSlicer(content, sliceHeight, fontSize);
-        int i = 0;
-        
-        // Fill initial screen without scrolling
-        while (slicer.hasMoreSlices() && (i < maxLinesShowing)) {
-            final boolean scrollFirst = false;
-            // For Z100, sliceIndexNumber might need to be adjusted based on how lines are indexed
-            // Assuming 0 is bottom, maxLinesShowing - 1 is top, or vice-versa.
-            // Let's assume 0 is the first line to appear at the bottom, then moves up.
-            final int sliceIndexNumber = i; // This might need to be (maxLinesShowing - 1 - i) depending on indexing.
-            scrollingTextView.sendScrollImage(slicer.getNextSlice(), sliceIndexNumber, scrollFirst);
-            // if (ackWaiter != null) ackWaiter.waitForAck("Send line of text as image");
-            i++;
-        }
-        
-        // Scroll remaining slices
-        while (slicer.hasMoreSlices()) {
-            // Pausing might be handled by scroll speed or internally by SDK.
-            // If explicit pause is needed: try { Thread.sleep(2000); } catch (InterruptedException e) {}
-            final boolean scrollFirst = true; // Enable scrolling for subsequent lines
-            final int bottomSliceIndex = 0; // New lines are typically added to the bottom and scroll up
-            scrollingTextView.sendScrollImage(slicer.getNextSlice(), bottomSliceIndex, scrollFirst);
-            // if (ackWaiter != null) ackWaiter.waitForAck("Send scrolled line");
+
+    public static void clearGlassesDisplay() {
+        if (Boolean.TRUE.equals(isSdkControlled.getValue()) && transport != null) {
+            displayActor.post(REGION_SCROLL_TEXT, DisplayActor.Mode.REPLACE, () -> {
+                try {
+                    transport.clearDisplay();
+                    displaySession.invalidate();
+                    Log.i(TAG, "Cleared glasses display.");
+                } catch (Exception e) {
+                    Log.e(TAG, "Error clearing glasses display: " + e.getMessage(), e);
+                }
+            });
+            Toast.makeText(context, "Display cleared.", Toast.LENGTH_SHORT).show();
         }
     }
+    
+    /** Queue depth, in-flight window and send rate of the slice sender. */
+    public static String getSenderStats() {
+        return sliceSender.getStats();
+    }
+
+    /** Queue depth, coalesced updates and queue wait times of the display actor. */
+    public static String getDisplayActorStats() {
+        return displayActor.getStats();
+    }
 
     public static void releaseControl() {
-        if (ultraliteSDK != null && ultraliteSDK.getControlledByMe() != null && ultraliteSDK.getControlledByMe().getValue()) {
+        if (transport != null && transport.isControlled()) {
             Log.d(TAG, "Releasing SDK control.");
-            ultraliteSDK.releaseControl();
+            transport.releaseControl();
         }
     }
 
     public static void addEventListener() {
-        if (ultraliteSDK != null) {
-            ultraliteSDK.addEventListener(eventListener);
+        if (transport != null) {
+            transport.addListener(eventListener);
         }
     }
 
+    private static final ComponentCallbacks2 memoryCallbacks = new ComponentCallbacks2() {
+        @Override
+        public void onTrimMemory(int level) {
+            // Not on UI_HIDDEN: PipelineService keeps listening with the phone UI hidden, and
+            // this warm state is what it is there to keep. Only give it up once the process is
+            // cached in the background, or the system is about to start killing running apps.
+            if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND
+                    || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+                sliceCache.evictAll();
+                slicePool.clear();
+            }
+        }
+
+        @Override
+        public void onConfigurationChanged(Configuration newConfig) { }
+
+        @Override
+        public void onLowMemory() {
+            sliceCache.evictAll();
+            slicePool.clear();
+        }
+    };
+
     public static void removeEventListener() {
-         if (ultraliteSDK != null) {
-            ultraliteSDK.removeEventListener(eventListener);
+        if (transport != null) {
+            transport.removeListener(eventListener);
         }
     }
 }
@@ -0,0 +1,130 @@
+package com.example.languageassistant.utils;
+
+import android.graphics.Bitmap;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.Observer;
+import com.vuzix.ultralite.Layout;
+import com.vuzix.ultralite.UltraliteSDK;
+import com.vuzix.ultralite.sdk.EventListener;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static com.vuzix.ultralite.sdk.LinkStatusListener.LINK_STATUS_DISCONNECTED;
+
+/**
+ * {@link GlassesTransport} for Vuzix Z100 glasses through the UltraliteSDK.
+ *
+ * The SDK listener and the availability observer are attached while at least one listener is
+ * registered. Listeners must be added and removed on the main thread, as LiveData requires.
+ */
+public class VuzixGlassesTransport implements GlassesTransport<Bitmap> {
+
+    private final UltraliteSDK sdk;
+    private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    private final EventListener sdkListener = new EventListener() {
+        @Override
+        public void onControlGained() {
+            for (Listener listener : listeners) {
+                listener.onControlGained();
+            }
+        }
+
+        @Override
+        public void onControlLost() {
+            for (Listener listener : listeners) {
+                listener.onControlLost();
+            }
+        }
+
+        @Override
+        public void onLinkStatusChanged(int status) {
+            for (Listener listener : listeners) {
+                listener.onLinkStatusChanged(status != LINK_STATUS_DISCONNECTED);
+            }
+        }
+
+        @Override
+        public void onDisplayOnline(boolean isOnline) {
+            for (Listener listener : listeners) {
+                listener.onDisplayOnline(isOnline);
+            }
+        }
+    };
+
+    private final Observer<Boolean> availabilityObserver = available -> {
+        for (Listener listener : listeners) {
+            listener.onAvailabilityChanged(Boolean.TRUE.equals(available));
+        }
+    };
+
+    public VuzixGlassesTransport(UltraliteSDK sdk) {
+        this.sdk = sdk;
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return Boolean.TRUE.equals(sdk.getAvailable().getValue());
+    }
+
+    @Override
+    public boolean isControlled() {
+        LiveData<Boolean> controlledByMe = sdk.getControlledByMe();
+        return controlledByMe != null && Boolean.TRUE.equals(controlledByMe.getValue());
+    }
+
+    @Override
+    public boolean requestControl(int timeoutMs) {
+        return sdk.requestControl(timeoutMs);
+    }
+
+    @Override
+    public void releaseControl() {
+        sdk.releaseControl();
+    }
+
+    @Override
+    public void setScrollLayout() {
+        sdk.setLayout(Layout.SCROLL, 0, true, true, 0); // Ensure this is the correct layout for Z100
+    }
+
+    @Override
+    public void configureScroll(int sliceHeight, int lowestLineShowing, int maxLinesShowing, int scrollSpeed) {
+        // The final true starts scrolling as soon as images arrive
+        sdk.getScrollingTextView().scrollLayoutConfig(sliceHeight, lowestLineShowing, maxLinesShowing, scrollSpeed, true);
+    }
+
+    @Override
+    public void sendScrollImage(Bitmap image, int sliceIndex, boolean scrollFirst) {
+        sdk.getScrollingTextView().sendScrollImage(image, sliceIndex, scrollFirst);
+    }
+
+    @Override
+    public void clearDisplay() {
+        sdk.clearDisplay();
+    }
+
+    @Override
+    public boolean reportsAcks() {
+        return false; // The SDK gives no per-image ack
+    }
+
+    @Override
+    public void addListener(Listener listener) {
+        boolean first = listeners.isEmpty();
+        listeners.addIfAbsent(listener);
+        if (first) {
+            sdk.addEventListener(sdkListener);
+            // Delivers the current availability right away
+            sdk.getAvailable().observeForever(availabilityObserver);
+        }
+    }
+
+    @Override
+    public void removeListener(Listener listener) {
+        if (listeners.remove(listener) && listeners.isEmpty()) {
+            sdk.removeEventListener(sdkListener);
+            sdk.getAvailable().removeObserver(availabilityObserver);
+        }
+    }
+}
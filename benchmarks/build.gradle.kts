@@ -0,0 +1,36 @@
+// JMH benchmarks for the :core hot paths. Run with ./gradlew :benchmarks:jmh; results are
+// written as JSON to build/results/jmh/results.json for tracking regressions.
+plugins {
+    java
+    id("me.champeau.jmh")
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_1_8
+    targetCompatibility = JavaVersion.VERSION_1_8
+}
+
+dependencies {
+    implementation(project(":core"))
+}
+
+// The transliteration tables ship with the app as raw resources
+sourceSets.named("jmh") {
+    resources.srcDir("../app/src/main/res/raw")
+}
+
+tasks.withType<JavaCompile>().configureEach {
+    options.encoding = "UTF-8"
+}
+
+jmh {
+    resultFormat.set("JSON")
+    resultsFile.set(layout.buildDirectory.file("results/jmh/results.json"))
+    warmupIterations.set(3)
+    iterations.set(5)
+    fork.set(1)
+    // e.g. ./gradlew :benchmarks:jmh -Pjmh.includes=Transliteration
+    (project.findProperty("jmh.includes") as String?)?.let { includes.set(listOf(it)) }
+    // e.g. -Pjmh.profilers=gc to report allocation per operation
+    (project.findProperty("jmh.profilers") as String?)?.let { profilers.set(it.split(",")) }
+}
@@ -0,0 +1,61 @@
+package com.example.languageassistant.benchmarks;
+
+import com.example.languageassistant.utils.AnswerCache;
+import com.example.languageassistant.utils.TranslationCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/** Memory-tier lookups in the translation and answer caches, including key normalization. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CacheBenchmark {
+
+    private static final int ENTRIES = 400;
+    private static final String MODEL = "gemini-pro";
+
+    private TranslationCache translationCache;
+    private AnswerCache answerCache;
+    private String[] phrases;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        translationCache = new TranslationCache(null);
+        answerCache = new AnswerCache(null);
+        phrases = new String[ENTRIES];
+        for (int i = 0; i < ENTRIES; i++) {
+            phrases[i] = Fixtures.ENGLISH_SENTENCES[i % Fixtures.ENGLISH_SENTENCES.length] + " #" + i;
+            translationCache.put("en", "hi", phrases[i], Fixtures.HINDI_SENTENCES[i % Fixtures.HINDI_SENTENCES.length]);
+        }
+        for (String sentence : Fixtures.ENGLISH_SENTENCES) {
+            answerCache.put(MODEL, sentence, "An answer to: " + sentence);
+        }
+    }
+
+    @Benchmark
+    public String translationHit() {
+        next = (next + 1) % ENTRIES;
+        return translationCache.get("en", "hi", phrases[next]);
+    }
+
+    @Benchmark
+    public String translationMiss() {
+        next = (next + 1) % ENTRIES;
+        return translationCache.get("en", "ta", phrases[next]);
+    }
+
+    // Same question with different filler words and punctuation, as speech recognition returns it
+    @Benchmark
+    public String answerHitRephrased() {
+        next = (next + 1) % Fixtures.ENGLISH_SENTENCES.length;
+        return answerCache.get(MODEL, "Um, " + Fixtures.ENGLISH_SENTENCES[next].toUpperCase());
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.languageassistant.benchmarks;
+
+import com.example.languageassistant.utils.PcmCaptureStage;
+import com.example.languageassistant.utils.VoiceActivityDetector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one 10 ms capture buffer through the ring buffer and voice activity detection, on
+ * synthetic audio that alternates speech-like bursts with background noise so segments start and
+ * end throughout. Run with {@code -Pjmh.profilers=gc}: gc.alloc.rate.norm should be about
+ * 0 B/op, since steady-state capture must not allocate.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CaptureBenchmark {
+
+    private static final int SAMPLE_RATE = 16000;
+    private static final int CHUNK_SAMPLES = SAMPLE_RATE / 100;
+
+    private short[] audio;
+    private int position;
+    private PcmCaptureStage stage;
+    private Blackhole blackhole;
+
+    @Setup(Level.Trial)
+    public void setUp(Blackhole blackhole) {
+        this.blackhole = blackhole;
+        audio = Fixtures.syntheticSpeech(SAMPLE_RATE, 20);
+        VoiceActivityDetector.Config config = new VoiceActivityDetector.Config();
+        config.sampleRate = SAMPLE_RATE;
+        stage = new PcmCaptureStage(config, segment -> this.blackhole.consume(segment.getLength()));
+    }
+
+    @Benchmark
+    public int captureChunk() {
+        if (position + CHUNK_SAMPLES > audio.length) {
+            position = 0;
+        }
+        stage.write(audio, position, CHUNK_SAMPLES);
+        position += CHUNK_SAMPLES;
+        return stage.process();
+    }
+
+    /** The same audio processed a whole recording at a time, as when testing with WAV files. */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public long feedRecording() {
+        stage.feed(audio, 0, audio.length);
+        stage.flush();
+        return stage.getDroppedSamples();
+    }
+}
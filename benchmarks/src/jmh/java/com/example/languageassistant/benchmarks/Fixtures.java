@@ -0,0 +1,160 @@
+package com.example.languageassistant.benchmarks;
+
+import com.example.languageassistant.utils.DisplaySession;
+import com.example.languageassistant.utils.LineBreaker;
+import com.example.languageassistant.utils.ScriptTable;
+import com.example.languageassistant.utils.TextTranslator;
+import com.example.languageassistant.utils.Transliterators;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/** Shared inputs and stubs for the benchmarks. */
+final class Fixtures {
+
+    static final String[] SCRIPT_TABLES = {
+            "translit_devanagari.txt", "translit_kannada.txt", "translit_tamil.txt", "translit_telugu.txt",
+    };
+
+    // Hindi sentences standing in for translated captions
+    static final String[] HINDI_SENTENCES = {
+            "नमस्ते, आप कैसे हैं?",
+            "मैं आज बाज़ार जा रहा हूँ।",
+            "क्या आप मुझे स्टेशन का रास्ता बता सकते हैं?",
+            "यह खाना बहुत स्वादिष्ट है।",
+            "कल सुबह दस बजे हमारी बैठक है।",
+            "मुझे हिंदी थोड़ी थोड़ी आती है।",
+            "कृपया धीरे बोलिए, मैं समझ नहीं पाया।",
+            "इस शहर में बहुत सारे पुराने मंदिर हैं।",
+    };
+
+    static final String HINDI_PARAGRAPH = String.join(" ", HINDI_SENTENCES);
+
+    static final String[] ENGLISH_SENTENCES = {
+            "Hello, how are you?",
+            "I am going to the market today.",
+            "Can you tell me the way to the station?",
+            "This food is very tasty.",
+            "We have a meeting at ten tomorrow morning.",
+            "I know a little Hindi.",
+            "Please speak slowly, I did not understand.",
+            "There are many old temples in this city.",
+    };
+
+    // Roughly the advance of a 35px font on the 624px line the glasses renderer wraps to
+    static final float CHAR_WIDTH = 18f;
+    static final float LINE_WIDTH = 624f;
+    static final LineBreaker.TextMeasurer MEASURER = (text, start, end) -> (end - start) * CHAR_WIDTH;
+
+    private Fixtures() {
+    }
+
+    static synchronized void installScriptTables() throws IOException {
+        if (Transliterators.isInstalled()) {
+            return;
+        }
+        List<ScriptTable> tables = new ArrayList<>();
+        for (String name : SCRIPT_TABLES) {
+            try (InputStream in = Fixtures.class.getResourceAsStream("/" + name)) {
+                if (in == null) {
+                    throw new IOException("Missing script table " + name);
+                }
+                tables.add(ScriptTable.parse(in));
+            }
+        }
+        Transliterators.install(tables);
+    }
+
+    /** Wraps lines like the glasses renderer and uses the line text itself as the slice. */
+    static final class StringLineRenderer implements DisplaySession.LineRenderer<String> {
+        private long rendered;
+
+        @Override
+        public List<String> breakLines(CharSequence text) {
+            return LineBreaker.breakLines(text, LINE_WIDTH, MEASURER);
+        }
+
+        @Override
+        public String renderLine(String line) {
+            rendered++;
+            return line;
+        }
+
+        /** Slices handed out so far; each one is queued on the sender. */
+        long getRendered() {
+            return rendered;
+        }
+    }
+
+    /** Translates the English sample sentences to their Hindi counterparts on the caller's thread. */
+    static final class StubTranslator implements TextTranslator {
+        private long calls;
+
+        @Override
+        public void translate(String text, String fromLanguage, String toLanguage, Callback callback) {
+            calls++;
+            int index = Math.floorMod(text.hashCode(), HINDI_SENTENCES.length);
+            callback.onSuccess(HINDI_SENTENCES[index]);
+        }
+
+        long getCalls() {
+            return calls;
+        }
+    }
+
+    /**
+     * Like {@link StubTranslator}, but takes {@code baseMs} plus {@code microsPerChar} for each
+     * character on the calling thread, as on-device translation grows with the input length.
+     */
+    static final class SlowTranslator implements TextTranslator {
+        private final long baseMs;
+        private final long microsPerChar;
+
+        SlowTranslator(long baseMs, long microsPerChar) {
+            this.baseMs = baseMs;
+            this.microsPerChar = microsPerChar;
+        }
+
+        @Override
+        public void translate(String text, String fromLanguage, String toLanguage, Callback callback) {
+            try {
+                TimeUnit.MICROSECONDS.sleep(baseMs * 1000 + microsPerChar * text.length());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                callback.onFailure(e);
+                return;
+            }
+            int index = Math.floorMod(text.hashCode(), HINDI_SENTENCES.length);
+            callback.onSuccess(HINDI_SENTENCES[index]);
+        }
+    }
+
+    /**
+     * Audio that alternates 1.5 s of speech-like sound, a 150 Hz voice with two formant-like
+     * overtones and a slow syllable envelope, with 0.8 s of quiet noise.
+     */
+    static short[] syntheticSpeech(int sampleRate, int seconds) {
+        short[] audio = new short[sampleRate * seconds];
+        Random random = new Random(1);
+        int speech = sampleRate * 3 / 2;
+        int period = speech + sampleRate * 4 / 5;
+        for (int i = 0; i < audio.length; i++) {
+            double noise = random.nextGaussian() * 60;
+            int inPeriod = i % period;
+            double value = noise;
+            if (inPeriod < speech) {
+                double t = (double) i / sampleRate;
+                double envelope = 0.6 + 0.4 * Math.sin(2 * Math.PI * 4 * t);
+                value += envelope * (4000 * Math.sin(2 * Math.PI * 150 * t)
+                        + 2000 * Math.sin(2 * Math.PI * 700 * t)
+                        + 1000 * Math.sin(2 * Math.PI * 1200 * t));
+            }
+            audio[i] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, Math.round(value)));
+        }
+        return audio;
+    }
+}
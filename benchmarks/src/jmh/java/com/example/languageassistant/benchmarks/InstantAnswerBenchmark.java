@@ -0,0 +1,70 @@
+package com.example.languageassistant.benchmarks;
+
+import com.example.languageassistant.utils.InstantAnswerIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/** Lookups in a memory-mapped instant answer index, for a rephrased known question and for a miss. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class InstantAnswerBenchmark {
+
+    private static final int ENTRIES = 500;
+
+    private File dir;
+    private InstantAnswerIndex index;
+    private String[] questions;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("instant-answers").toFile();
+        File source = new File(dir, "instant_answers.txt");
+        questions = new String[ENTRIES];
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(source), StandardCharsets.UTF_8)) {
+            for (int i = 0; i < ENTRIES; i++) {
+                String topic = Fixtures.ENGLISH_SENTENCES[i % Fixtures.ENGLISH_SENTENCES.length];
+                out.write("Q: " + topic + " room" + i + "\n");
+                out.write("Q: Where is room" + i + " for " + topic + "\n");
+                out.write("A: Room " + i + " is on floor " + (i % 7) + ".\n\n");
+                questions[i] = "Um, where's ROOM" + i + "?";
+            }
+        }
+        index = InstantAnswerIndex.open(source, new File(dir, "instant_answers.idx"), InstantAnswerIndex.DEFAULT_MIN_CONFIDENCE);
+    }
+
+    @TearDown
+    public void tearDown() {
+        for (File file : dir.listFiles()) {
+            file.delete();
+        }
+        dir.delete();
+    }
+
+    @Benchmark
+    public InstantAnswerIndex.Match hitRephrased() {
+        next = (next + 1) % ENTRIES;
+        return index.lookup(questions[next]);
+    }
+
+    @Benchmark
+    public InstantAnswerIndex.Match miss() {
+        return index.lookup("Can you recommend a good vegetarian restaurant nearby?");
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.languageassistant.benchmarks;
+
+import com.example.languageassistant.utils.DisplaySession;
+import com.example.languageassistant.utils.LineBreaker;
+import com.example.languageassistant.utils.SliceSender;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wrapping text into glasses lines, and the display session working out which slices to send
+ * when a caption is replaced or extended. The sender is never started, so queued slices are
+ * simply cleared after each operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LayoutBenchmark {
+
+    private static final DisplaySession.ScrollConfig CONFIG = new DisplaySession.ScrollConfig(48, 0, 3, 10);
+
+    private String paragraph;
+    private String[] words;
+    private SliceSender<String> sender;
+    private DisplaySession<String> session;
+    private int nextWord;
+
+    @Setup
+    public void setUp() {
+        paragraph = String.join(" ", Fixtures.ENGLISH_SENTENCES);
+        words = paragraph.split(" ");
+        sender = new SliceSender<>(new SliceSender.SliceLink<String>() {
+            @Override
+            public void sendSlice(String slice, int sliceIndex, boolean scrollFirst, SliceSender.Transmission transmission) {
+            }
+
+            @Override
+            public void discardSlice(String slice) {
+            }
+
+            @Override
+            public boolean reportsAcks() {
+                return false;
+            }
+        });
+        session = new DisplaySession<>(new DisplaySession.Target() {
+            @Override
+            public void applyScrollLayout() {
+            }
+
+            @Override
+            public void configureScroll(DisplaySession.ScrollConfig config) {
+            }
+        }, new Fixtures.StringLineRenderer(), sender);
+        session.show(paragraph, CONFIG);
+        sender.clear();
+    }
+
+    @Benchmark
+    public List<String> breakParagraph() {
+        return LineBreaker.breakLines(paragraph, Fixtures.LINE_WIDTH, Fixtures.MEASURER);
+    }
+
+    // The same caption again with one more word: only the last line differs
+    @Benchmark
+    public void showExtendedCaption() {
+        session.show(paragraph + " " + words[nextWord], CONFIG);
+        nextWord = (nextWord + 1) % words.length;
+        sender.clear();
+    }
+
+    @Benchmark
+    public void appendWord() {
+        session.append(" " + words[nextWord], CONFIG);
+        nextWord = (nextWord + 1) % words.length;
+        sender.clear();
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.languageassistant.benchmarks;
+
+import com.example.languageassistant.utils.ParallelTranslator;
+import com.example.languageassistant.utils.SentenceSplitter;
+import com.example.languageassistant.utils.TextTranslator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time until the first translated sentence of an eight-sentence monologue is available, and
+ * until all of it is, with a stub translator that takes 5 ms plus 400 us per character.
+ * {@code split=false} is the old single call for the whole text; with splitting, the first
+ * sentence is ready after its own translation, and {@code maxInFlight} overlaps the rest.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ParallelTranslationBenchmark {
+
+    private static final String MONOLOGUE = String.join(" ", Fixtures.ENGLISH_SENTENCES);
+
+    @Param({"false", "true"})
+    public boolean split;
+
+    @Param({"1", "4"})
+    public int maxInFlight;
+
+    private ExecutorService executor;
+    private Fixtures.SlowTranslator slowTranslator;
+    private ParallelTranslator translator;
+    private CountDownLatch completed;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(maxInFlight);
+        slowTranslator = new Fixtures.SlowTranslator(5, 400);
+        translator = new ParallelTranslator(slowTranslator, executor, Runnable::run, maxInFlight,
+                SentenceSplitter.DEFAULT_MAX_CHARS);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public void timeToFirstSegment() throws InterruptedException {
+        CountDownLatch first = new CountDownLatch(1);
+        completed = new CountDownLatch(1);
+        translate(first, completed);
+        first.await();
+    }
+
+    // The rest of the monologue is still in flight after timeToFirstSegment returns
+    @TearDown(Level.Invocation)
+    public void awaitRest() throws InterruptedException {
+        if (completed != null) {
+            completed.await();
+            completed = null;
+        }
+    }
+
+    @Benchmark
+    public void timeToWholeText() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        translate(new CountDownLatch(1), done);
+        done.await();
+    }
+
+    private void translate(CountDownLatch first, CountDownLatch done) {
+        if (!split) {
+            executor.execute(() -> slowTranslator.translate(MONOLOGUE, "en", "hi", new TextTranslator.Callback() {
+                @Override
+                public void onSuccess(String translatedText) {
+                    first.countDown();
+                    done.countDown();
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    first.countDown();
+                    done.countDown();
+                }
+            }));
+            return;
+        }
+        translator.translateSegments(MONOLOGUE, "en", "hi", new ParallelTranslator.SegmentCallback() {
+            @Override
+            public void onSegment(int index, String translatedText) {
+                first.countDown();
+            }
+
+            @Override
+            public void onComplete(int segments, Exception failure) {
+                first.countDown();
+                done.countDown();
+            }
+        });
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.languageassistant.benchmarks;
+
+import com.example.languageassistant.utils.CachingTranslator;
+import com.example.languageassistant.utils.DisplaySession;
+import com.example.languageassistant.utils.GlassesTransport;
+import com.example.languageassistant.utils.SimulatedGlassesTransport;
+import com.example.languageassistant.utils.SliceSender;
+import com.example.languageassistant.utils.TextTranslator;
+import com.example.languageassistant.utils.TranslationCache;
+import com.example.languageassistant.utils.Transliterator;
+import com.example.languageassistant.utils.Transliterators;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Utterances per second through translate, transliterate, line layout and the paced sender on
+ * a fast simulated link, with a stub translator behind the translation cache. With repeated
+ * phrases most translations are cache hits, as in a conversation that keeps coming back to
+ * the same words.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PipelineBenchmark {
+
+    private static final DisplaySession.ScrollConfig CONFIG = new DisplaySession.ScrollConfig(48, 0, 3, 10);
+    private static final int SLICE_BYTES = 2 * 1024;
+    private static final long LINK_BYTES_PER_SECOND = 64L * 1024 * 1024;
+
+    @Param({"true", "false"})
+    public boolean repeatedPhrases;
+
+    private TextTranslator translator;
+    private Transliterator transliterator;
+    private SimulatedGlassesTransport<String> transport;
+    private SliceSender<String> sender;
+    private Fixtures.StringLineRenderer renderer;
+    private DisplaySession<String> session;
+    private long utterance;
+    private String displayText;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Fixtures.installScriptTables();
+        transliterator = Transliterators.forDisplayLanguage("en");
+        translator = new CachingTranslator(new Fixtures.StubTranslator(), new TranslationCache(null));
+        transport = new SimulatedGlassesTransport<>(slice -> SLICE_BYTES, LINK_BYTES_PER_SECOND, 0, 1);
+        sender = new SliceSender<>(new SliceSender.SliceLink<String>() {
+            @Override
+            public void sendSlice(String slice, int sliceIndex, boolean scrollFirst, SliceSender.Transmission transmission) {
+                transport.sendScrollImage(slice, sliceIndex, scrollFirst);
+            }
+
+            @Override
+            public void discardSlice(String slice) {
+            }
+
+            @Override
+            public boolean reportsAcks() {
+                return transport.reportsAcks();
+            }
+        }, 4, 1);
+        transport.addListener(new GlassesTransport.Listener() {
+            @Override
+            public void onImageAcked() {
+                sender.onSliceAcked();
+            }
+        });
+        renderer = new Fixtures.StringLineRenderer();
+        session = new DisplaySession<>(new DisplaySession.Target() {
+            @Override
+            public void applyScrollLayout() {
+                transport.setScrollLayout();
+            }
+
+            @Override
+            public void configureScroll(DisplaySession.ScrollConfig config) {
+                transport.configureScroll(config.sliceHeight, config.lowestLineShowing, config.maxLinesShowing, config.scrollSpeed);
+            }
+        }, renderer, sender);
+        sender.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        sender.stop();
+        transport.shutdown();
+    }
+
+    @Benchmark
+    public boolean utterance() throws InterruptedException {
+        String english = Fixtures.ENGLISH_SENTENCES[(int) (utterance % Fixtures.ENGLISH_SENTENCES.length)];
+        String spoken = repeatedPhrases ? english : english + " (" + utterance + ")";
+        utterance++;
+        translator.translate(spoken, "en", "hi", new TextTranslator.Callback() {
+            @Override
+            public void onSuccess(String translatedText) {
+                displayText = transliterator.transliterate(translatedText);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                displayText = spoken;
+            }
+        });
+        session.append(" " + displayText, CONFIG);
+        // Done once every slice rendered so far has crossed the link
+        return transport.awaitImages(renderer.getRendered(), 10000);
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.languageassistant.benchmarks;
+
+import com.example.languageassistant.utils.GlassesTransport;
+import com.example.languageassistant.utils.SimulatedGlassesTransport;
+import com.example.languageassistant.utils.SliceSender;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to push a burst of slices through the paced sender to a simulated pair of glasses, for
+ * different window sizes and ack latencies. Shows how much the window hides link latency.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SliceSenderBenchmark {
+
+    private static final int SLICES_PER_BURST = 30;
+    private static final int SLICE_BYTES = 4 * 1024;
+    private static final long LINK_BYTES_PER_SECOND = 1024 * 1024;
+
+    @Param({"1", "2", "4"})
+    public int windowSize;
+
+    @Param({"5", "20"})
+    public long ackLatencyMs;
+
+    private SimulatedGlassesTransport<String> transport;
+    private SliceSender<String> sender;
+    private long expectedImages;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        transport = new SimulatedGlassesTransport<>(slice -> SLICE_BYTES, LINK_BYTES_PER_SECOND, ackLatencyMs, 1);
+        sender = new SliceSender<>(new SliceSender.SliceLink<String>() {
+            @Override
+            public void sendSlice(String slice, int sliceIndex, boolean scrollFirst, SliceSender.Transmission transmission) {
+                transport.sendScrollImage(slice, sliceIndex, scrollFirst);
+            }
+
+            @Override
+            public void discardSlice(String slice) {
+            }
+
+            @Override
+            public boolean reportsAcks() {
+                return transport.reportsAcks();
+            }
+        }, windowSize, ackLatencyMs);
+        transport.addListener(new GlassesTransport.Listener() {
+            @Override
+            public void onImageAcked() {
+                sender.onSliceAcked();
+            }
+        });
+        transport.configureScroll(48, 0, 3, 10);
+        sender.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        sender.stop();
+        transport.shutdown();
+    }
+
+    @Benchmark
+    public boolean burst() throws InterruptedException {
+        for (int i = 0; i < SLICES_PER_BURST; i++) {
+            sender.enqueue("line " + i, 0, true);
+        }
+        expectedImages += SLICES_PER_BURST;
+        return transport.awaitImages(expectedImages, 10000);
+    }
+}
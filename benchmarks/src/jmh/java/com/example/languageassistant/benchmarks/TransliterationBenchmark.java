@@ -0,0 +1,53 @@
+package com.example.languageassistant.benchmarks;
+
+import com.example.languageassistant.utils.StreamingTransliterator;
+import com.example.languageassistant.utils.Transliterator;
+import com.example.languageassistant.utils.Transliterators;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/** Hindi text rendered to Latin and to Kannada script, in one go and as streamed words. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TransliterationBenchmark {
+
+    @Param({"en", "kn"})
+    public String displayLanguage;
+
+    private Transliterator transliterator;
+    private String[] words;
+    private final StringBuilder out = new StringBuilder();
+
+    @Setup
+    public void setUp() throws IOException {
+        Fixtures.installScriptTables();
+        transliterator = Transliterators.forDisplayLanguage(displayLanguage);
+        words = Fixtures.HINDI_PARAGRAPH.split("(?<= )");
+    }
+
+    @Benchmark
+    public String paragraph() {
+        return transliterator.transliterate(Fixtures.HINDI_PARAGRAPH);
+    }
+
+    @Benchmark
+    public int streamedByWord() throws IOException {
+        out.setLength(0);
+        StreamingTransliterator streaming = new StreamingTransliterator(transliterator, out);
+        for (String word : words) {
+            streaming.append(word);
+        }
+        streaming.finish();
+        return out.length();
+    }
+}
@@ -0,0 +1,22 @@
+// Android-free logic shared by :app and :benchmarks; runs on a plain JVM
+plugins {
+    `java-library`
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_1_8
+    targetCompatibility = JavaVersion.VERSION_1_8
+}
+
+tasks.withType<JavaCompile>().configureEach {
+    options.encoding = "UTF-8"
+}
+
+dependencies {
+    testImplementation("junit:junit:4.13.2")
+}
+
+// The transliteration tables ship with the app as raw resources
+sourceSets.named("test") {
+    resources.srcDir("../app/src/main/res/raw")
+}
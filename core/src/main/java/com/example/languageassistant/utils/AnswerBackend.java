@@ -0,0 +1,25 @@
+package com.example.languageassistant.utils;
+
+/**
+ * A model that answers questions as a stream of text deltas: Gemini in the app, or
+ * {@link SimulatedAnswerBackend} when measuring behavior without the network.
+ */
+public interface AnswerBackend {
+
+    /** Handle to one upstream request. */
+    interface Call {
+        /** Stops the request; the listener may still see callbacks already in flight. */
+        void cancel();
+    }
+
+    /** Callbacks for one request. They may arrive on any thread, but never concurrently. */
+    interface Listener {
+        void onDelta(String text);
+
+        void onComplete();
+
+        void onError(Throwable error);
+    }
+
+    Call ask(String question, Listener listener);
+}
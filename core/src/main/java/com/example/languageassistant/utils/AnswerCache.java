@@ -0,0 +1,123 @@
+package com.example.languageassistant.utils;
+
+import java.io.File;
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Cache of AI answers keyed by model and normalized question, so asking the same thing again
+ * is answered locally instead of costing a network round trip and API quota.
+ *
+ * Questions are normalized more aggressively than translation text: case, punctuation, filler
+ * words and whitespace are all ignored, so "Um, what's the capital of France?" and "what's the
+ * capital of france" share an entry. Entries expire after a TTL, since answers go stale, and the
+ * memory tier is bounded by entry count and total characters. Like {@link TranslationCache},
+ * entries live in a {@link TwoTierStringCache}, whose optional disk tier keeps answers across
+ * restarts.
+ */
+public class AnswerCache {
+
+    public static final int DEFAULT_MEMORY_ENTRIES = 128;
+    public static final long DEFAULT_MEMORY_CHARS = 256 * 1024;
+    public static final long DEFAULT_DISK_BYTES = 2L * 1024 * 1024;
+    public static final long DEFAULT_TTL_MS = 24L * 60 * 60 * 1000; // 1 day
+
+    // Hesitations that never change what is being asked, wherever they occur
+    private static final Set<String> FILLER_WORDS = new HashSet<>(Arrays.asList(
+            "um", "umm", "uh", "uhh", "uhm", "er", "erm", "ah", "hmm", "mm"));
+    // Words that only lead into a question ("okay so what time is it"); elsewhere they carry
+    // meaning ("how well does it work", "what do you like"), so they are kept there
+    private static final Set<String> LEADING_WORDS = new HashSet<>(Arrays.asList(
+            "hey", "ok", "okay", "so", "well", "please", "just", "actually", "basically", "like"));
+
+    private final TwoTierStringCache store;
+
+    /**
+     * @param diskFile backing file for persistence across restarts, or null for memory only
+     * @param ttlMs    answers older than this are treated as missing; 0 or less keeps them forever
+     */
+    public AnswerCache(File diskFile, int memoryEntries, long memoryChars, long diskBytes, long ttlMs) {
+        this.store = new TwoTierStringCache("AnswerCacheWriter", memoryEntries, memoryChars, diskBytes, ttlMs);
+        if (diskFile != null) {
+            store.attachDisk(diskFile);
+        }
+    }
+
+    public AnswerCache(File diskFile) {
+        this(diskFile, DEFAULT_MEMORY_ENTRIES, DEFAULT_MEMORY_CHARS, DEFAULT_DISK_BYTES, DEFAULT_TTL_MS);
+    }
+
+    /**
+     * Adds persistence to a cache that was created memory only, e.g. because a question was
+     * asked before the file was opened at startup. Answers cached before this stay memory only.
+     * Does nothing if the cache already has a file.
+     */
+    public void attachDisk(File diskFile) {
+        store.attachDisk(diskFile);
+    }
+
+    /** Returns the cached answer, or null if this question has not been answered recently. */
+    public String get(String model, String question) {
+        String key = key(model, question);
+        return key == null ? null : store.get(key);
+    }
+
+    public void put(String model, String question, String answer) {
+        String key = key(model, question);
+        if (key == null || answer == null || answer.trim().isEmpty()) {
+            return;
+        }
+        store.put(key, answer);
+    }
+
+    /**
+     * Normalizes a spoken question for lookup: Unicode NFKC, lower case, punctuation removed,
+     * hesitations ("um", "uh") dropped, lead-in words ("okay so") dropped from the start only,
+     * and whitespace collapsed. Apostrophes are removed rather than split on, so "what's" and
+     * "whats" match.
+     */
+    public static String normalizeQuestion(String question) {
+        String folded = Normalizer.normalize(question, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+        StringBuilder sb = new StringBuilder(folded.length());
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i <= folded.length(); i++) {
+            char c = i < folded.length() ? folded.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c) || Character.getType(c) == Character.NON_SPACING_MARK
+                    || Character.getType(c) == Character.COMBINING_SPACING_MARK) {
+                word.append(c);
+            } else if (c == '\'' || c == '’') {
+                // Part of a contraction; drop it without ending the word
+            } else if (word.length() > 0) {
+                String w = word.toString();
+                if (!FILLER_WORDS.contains(w) && !(sb.length() == 0 && LEADING_WORDS.contains(w))) {
+                    if (sb.length() > 0) {
+                        sb.append(' ');
+                    }
+                    sb.append(w);
+                }
+                word.setLength(0);
+            }
+        }
+        return sb.toString();
+    }
+
+    static String key(String model, String question) {
+        if (question == null) {
+            return null;
+        }
+        String normalized = normalizeQuestion(question);
+        return normalized.isEmpty() ? null : model + '\u0000' + normalized;
+    }
+
+    /** Fraction of lookups answered from either tier, between 0 and 1. */
+    public double getHitRate() {
+        return store.getHitRate();
+    }
+
+    public String getStats() {
+        return store.getStats();
+    }
+}
@@ -0,0 +1,408 @@
+package com.example.languageassistant.utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Manages the answer requests in flight to an {@link AnswerBackend}:
+ * <ul>
+ *   <li>Latest wins: with {@code latestWins} set, a new question cancels every older one, so a
+ *       stale answer is never displayed after a newer question was asked.</li>
+ *   <li>Deadlines: each request fails with a {@link TimeoutException} once its deadline passes,
+ *       counted from submission, so a slow backend cannot hang the caller.</li>
+ *   <li>De-duplication: questions that normalize to the same text (see
+ *       {@link AnswerCache#normalizeQuestion}) share one upstream call. A late joiner first
+ *       receives the text streamed so far.</li>
+ *   <li>Bounded work: at most {@code maxConcurrent} upstream calls run at a time and at most
+ *       {@code maxQueued} wait. When the queue is full the {@link RejectionPolicy} decides
+ *       whether the new or the oldest waiting request fails.</li>
+ * </ul>
+ *
+ * Listener callbacks run on {@code callbackExecutor}, which should be a single thread such as
+ * the main looper so that they arrive in order. After {@link Ticket#cancel()} returns on that
+ * thread, the listener receives no further callbacks.
+ */
+public class AnswerRequestManager {
+
+    public enum RejectionPolicy {
+        /** Fail the request being submitted. */
+        REJECT_NEW,
+        /** Fail the oldest queued request to make room for the new one. */
+        DROP_OLDEST
+    }
+
+    public static final int DEFAULT_MAX_CONCURRENT = 2;
+    public static final int DEFAULT_MAX_QUEUED = 4;
+    public static final long DEFAULT_DEADLINE_MS = 15000;
+
+    public interface AnswerListener {
+        void onDelta(String text);
+
+        void onComplete(String fullAnswer);
+
+        /** A {@link TimeoutException}, {@link RejectedExecutionException} or backend error. */
+        void onFailure(Throwable error);
+    }
+
+    private final AnswerBackend backend;
+    private final Executor callbackExecutor;
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final RejectionPolicy rejectionPolicy;
+    private final boolean latestWins;
+    private final ScheduledExecutorService deadlineTimer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "AnswerDeadlines");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Queued and running calls by normalized question
+    private final Map<String, UpstreamCall> calls = new HashMap<>();
+    private final ArrayDeque<UpstreamCall> queue = new ArrayDeque<>();
+    private int running = 0;
+
+    private long submitted;
+    private long merged;
+    private long superseded;
+    private long timedOut;
+    private long rejected;
+    private long completed;
+    private long failed;
+    private long upstreamCalls;
+    private long maxLatencyMs;
+
+    public AnswerRequestManager(AnswerBackend backend, Executor callbackExecutor, int maxConcurrent, int maxQueued,
+                                RejectionPolicy rejectionPolicy, boolean latestWins) {
+        if (maxConcurrent < 1 || maxQueued < 0) {
+            throw new IllegalArgumentException("maxConcurrent must be >= 1 and maxQueued >= 0");
+        }
+        this.backend = backend;
+        this.callbackExecutor = callbackExecutor;
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueued = maxQueued;
+        this.rejectionPolicy = rejectionPolicy;
+        this.latestWins = latestWins;
+    }
+
+    /** One caller's interest in an answer. */
+    public final class Ticket {
+        private final String question;
+        private final AnswerListener listener;
+        private final long submittedAtMs = System.currentTimeMillis();
+        private UpstreamCall call;
+        private ScheduledFuture<?> deadline;
+        private boolean closed = false; // No more callbacks will be scheduled; guarded by the manager
+        private volatile boolean cancelled = false; // Drop callbacks that are already scheduled
+
+        private Ticket(String question, AnswerListener listener) {
+            this.question = question;
+            this.listener = listener;
+        }
+
+        public String getQuestion() {
+            return question;
+        }
+
+        /** Stops delivery to this ticket; the upstream call is cancelled if nobody else shares it. */
+        public void cancel() {
+            cancelled = true;
+            synchronized (AnswerRequestManager.this) {
+                detach(this);
+            }
+        }
+
+        public boolean isDone() {
+            synchronized (AnswerRequestManager.this) {
+                return closed;
+            }
+        }
+    }
+
+    public static final class Stats {
+        public final long submitted;
+        public final long merged;
+        public final long superseded;
+        public final long timedOut;
+        public final long rejected;
+        public final long completed;
+        public final long failed;
+        public final long upstreamCalls;
+        public final long maxLatencyMs;
+        public final int running;
+        public final int queued;
+
+        Stats(AnswerRequestManager m) {
+            submitted = m.submitted;
+            merged = m.merged;
+            superseded = m.superseded;
+            timedOut = m.timedOut;
+            rejected = m.rejected;
+            completed = m.completed;
+            failed = m.failed;
+            upstreamCalls = m.upstreamCalls;
+            maxLatencyMs = m.maxLatencyMs;
+            running = m.running;
+            queued = m.queue.size();
+        }
+
+        @Override
+        public String toString() {
+            return "submitted=" + submitted + " upstream=" + upstreamCalls + " merged=" + merged
+                    + " superseded=" + superseded + " timedOut=" + timedOut + " rejected=" + rejected
+                    + " completed=" + completed + " failed=" + failed + " maxLatencyMs=" + maxLatencyMs
+                    + " running=" + running + " queued=" + queued;
+        }
+    }
+
+    /**
+     * Asks {@code question}. The returned ticket is already done if the request was rejected;
+     * the listener is told why in {@link AnswerListener#onFailure}.
+     *
+     * @param deadlineMs time from now after which the request fails; 0 or less for none
+     */
+    public synchronized Ticket submit(String question, long deadlineMs, AnswerListener listener) {
+        submitted++;
+        Ticket ticket = new Ticket(question, listener);
+        String key = AnswerCache.normalizeQuestion(question);
+        if (key.isEmpty()) {
+            key = question;
+        }
+        if (latestWins) {
+            supersedeAllExcept(key);
+        }
+
+        UpstreamCall call = calls.get(key);
+        if (call != null) {
+            merged++;
+            if (call.soFar.length() > 0) {
+                deliverDelta(ticket, call.soFar.toString());
+            }
+            attach(ticket, call);
+        } else {
+            call = new UpstreamCall(key, question);
+            if (running < maxConcurrent) {
+                calls.put(key, call);
+                // Attached first: a backend that fails inside ask() reports to this ticket
+                attach(ticket, call);
+                start(call);
+            } else if (queue.size() < maxQueued) {
+                calls.put(key, call);
+                queue.addLast(call);
+                attach(ticket, call);
+            } else if (rejectionPolicy == RejectionPolicy.DROP_OLDEST && !queue.isEmpty()) {
+                UpstreamCall oldest = queue.pollFirst();
+                calls.remove(oldest.key);
+                rejected += oldest.tickets.size();
+                finishCall(oldest, new RejectedExecutionException("Dropped from the answer queue for a newer question"), false);
+                calls.put(key, call);
+                queue.addLast(call);
+                attach(ticket, call);
+            } else {
+                rejected++;
+                ticket.closed = true;
+                deliverEnd(ticket, null, new RejectedExecutionException("Answer queue is full"));
+                return ticket;
+            }
+        }
+        if (deadlineMs > 0 && !ticket.closed) {
+            ticket.deadline = deadlineTimer.schedule(() -> onDeadline(ticket), deadlineMs, TimeUnit.MILLISECONDS);
+        }
+        return ticket;
+    }
+
+    /** Cancels everything queued or running. */
+    public synchronized void cancelAll() {
+        for (UpstreamCall call : new ArrayList<>(calls.values())) {
+            for (Ticket ticket : new ArrayList<>(call.tickets)) {
+                ticket.cancelled = true;
+                detach(ticket);
+            }
+        }
+    }
+
+    public synchronized Stats getStats() {
+        return new Stats(this);
+    }
+
+    private void supersedeAllExcept(String key) {
+        for (UpstreamCall call : new ArrayList<>(calls.values())) {
+            if (call.key.equals(key)) {
+                continue;
+            }
+            for (Ticket ticket : new ArrayList<>(call.tickets)) {
+                superseded++;
+                ticket.cancelled = true;
+                detach(ticket);
+            }
+        }
+    }
+
+    private synchronized void onDeadline(Ticket ticket) {
+        if (ticket.closed) {
+            return;
+        }
+        timedOut++;
+        recordLatency(ticket);
+        detach(ticket);
+        deliverEnd(ticket, null, new TimeoutException("No answer within the deadline"));
+    }
+
+    private void detach(Ticket ticket) {
+        if (ticket.closed) {
+            return;
+        }
+        ticket.closed = true;
+        if (ticket.deadline != null) {
+            ticket.deadline.cancel(false);
+        }
+        UpstreamCall call = ticket.call;
+        if (call == null || !call.tickets.remove(ticket) || !call.tickets.isEmpty() || call.finished) {
+            return;
+        }
+        // Nobody is waiting for this answer any more
+        call.finished = true;
+        if (calls.get(call.key) == call) {
+            calls.remove(call.key);
+        }
+        if (!queue.remove(call)) {
+            running--;
+            if (call.upstream != null) {
+                call.upstream.cancel();
+            }
+            startQueued();
+        }
+    }
+
+    private void attach(Ticket ticket, UpstreamCall call) {
+        call.tickets.add(ticket);
+        ticket.call = call;
+    }
+
+    private void start(UpstreamCall call) {
+        running++;
+        upstreamCalls++;
+        try {
+            AnswerBackend.Call upstream = backend.ask(call.question, call);
+            if (call.finished) {
+                upstream.cancel();
+            } else {
+                call.upstream = upstream;
+            }
+        } catch (RuntimeException e) {
+            call.onError(e);
+        }
+    }
+
+    private void startQueued() {
+        while (running < maxConcurrent && !queue.isEmpty()) {
+            start(queue.pollFirst());
+        }
+    }
+
+    private void finishCall(UpstreamCall call, Throwable error, boolean wasRunning) {
+        call.finished = true;
+        if (calls.get(call.key) == call) {
+            calls.remove(call.key);
+        }
+        String answer = call.soFar.toString();
+        for (Ticket ticket : call.tickets) {
+            if (ticket.closed) {
+                continue;
+            }
+            ticket.closed = true;
+            if (ticket.deadline != null) {
+                ticket.deadline.cancel(false);
+            }
+            recordLatency(ticket);
+            deliverEnd(ticket, error == null ? answer : null, error);
+        }
+        call.tickets.clear();
+        if (wasRunning) {
+            running--;
+            startQueued();
+        }
+    }
+
+    private void recordLatency(Ticket ticket) {
+        maxLatencyMs = Math.max(maxLatencyMs, System.currentTimeMillis() - ticket.submittedAtMs);
+    }
+
+    private void deliverDelta(Ticket ticket, String text) {
+        callbackExecutor.execute(() -> {
+            if (!ticket.cancelled) {
+                ticket.listener.onDelta(text);
+            }
+        });
+    }
+
+    private void deliverEnd(Ticket ticket, String answer, Throwable error) {
+        callbackExecutor.execute(() -> {
+            if (ticket.cancelled) {
+                return;
+            }
+            if (error != null) {
+                ticket.listener.onFailure(error);
+            } else {
+                ticket.listener.onComplete(answer);
+            }
+        });
+    }
+
+    /** One upstream request, shared by every ticket asking the same question. */
+    private final class UpstreamCall implements AnswerBackend.Listener {
+        final String key;
+        final String question;
+        final List<Ticket> tickets = new ArrayList<>(1);
+        final StringBuilder soFar = new StringBuilder();
+        AnswerBackend.Call upstream;
+        boolean finished = false;
+
+        UpstreamCall(String key, String question) {
+            this.key = key;
+            this.question = question;
+        }
+
+        @Override
+        public void onDelta(String text) {
+            synchronized (AnswerRequestManager.this) {
+                if (finished || text == null || text.isEmpty()) {
+                    return;
+                }
+                soFar.append(text);
+                for (Ticket ticket : tickets) {
+                    deliverDelta(ticket, text);
+                }
+            }
+        }
+
+        @Override
+        public void onComplete() {
+            synchronized (AnswerRequestManager.this) {
+                if (!finished) {
+                    completed++;
+                    finishCall(this, null, true);
+                }
+            }
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            synchronized (AnswerRequestManager.this) {
+                if (!finished) {
+                    failed++;
+                    finishCall(this, error, true);
+                }
+            }
+        }
+    }
+}
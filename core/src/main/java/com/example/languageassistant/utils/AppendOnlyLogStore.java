@@ -0,0 +1,256 @@
+package com.example.languageassistant.utils;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persistent string key/value store backed by a single append-only file.
+ *
+ * Every put appends a record {@code [keyLength][valueLength][timestamp][key][value]}; an
+ * in-memory index points at the newest record for each key, so a lookup is one seek and one
+ * read. When the file grows past its byte budget it is compacted: expired and superseded
+ * records are dropped and, if still needed, the oldest entries too. A record that was cut
+ * short by a crash is discarded when the file is reopened.
+ *
+ * Thread-safe; all file access is serialized on this object.
+ */
+public class AppendOnlyLogStore implements Closeable {
+
+    private static final int MAGIC = 0x4C415331; // "LAS1"
+    private static final int FILE_HEADER_BYTES = 4;
+    private static final int RECORD_HEADER_BYTES = 4 + 4 + 8;
+    private static final int MAX_RECORD_PART_BYTES = 1 << 20;
+    // Compaction keeps the file well under budget so it does not run again on the next put
+    private static final double COMPACTED_FILL_RATIO = 0.75;
+    private static final long MIN_COMPACTION_BYTES = 64 * 1024;
+
+    private static final class Location {
+        final long valueOffset;
+        final int valueLength;
+        final long timestampMs;
+        final int recordLength;
+
+        Location(long valueOffset, int valueLength, long timestampMs, int recordLength) {
+            this.valueOffset = valueOffset;
+            this.valueLength = valueLength;
+            this.timestampMs = timestampMs;
+            this.recordLength = recordLength;
+        }
+    }
+
+    private final File file;
+    private final long maxBytes;
+    private final long maxAgeMs;
+    private final Map<String, Location> index = new HashMap<>();
+    private RandomAccessFile raf;
+    private long liveBytes;
+
+    /**
+     * @param maxAgeMs records older than this are ignored and dropped on compaction; 0 or less
+     *                 keeps records until the byte budget forces them out
+     */
+    public AppendOnlyLogStore(File file, long maxBytes, long maxAgeMs) throws IOException {
+        this.file = file;
+        this.maxBytes = maxBytes;
+        this.maxAgeMs = maxAgeMs;
+        open();
+    }
+
+    public synchronized String get(String key) throws IOException {
+        ensureOpen();
+        Location location = index.get(key);
+        if (location == null) {
+            return null;
+        }
+        if (isExpired(location.timestampMs, System.currentTimeMillis())) {
+            return null;
+        }
+        byte[] value = new byte[location.valueLength];
+        raf.seek(location.valueOffset);
+        raf.readFully(value);
+        return new String(value, StandardCharsets.UTF_8);
+    }
+
+    /** Timestamp of the stored value for {@code key}, or -1 if there is none. */
+    public synchronized long getTimestamp(String key) {
+        Location location = index.get(key);
+        return location == null ? -1 : location.timestampMs;
+    }
+
+    public synchronized void put(String key, String value) throws IOException {
+        put(key, value, System.currentTimeMillis());
+    }
+
+    public synchronized void put(String key, String value, long timestampMs) throws IOException {
+        ensureOpen();
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        byte[] valueBytes = value.getBytes(StandardCharsets.UTF_8);
+        if (keyBytes.length > MAX_RECORD_PART_BYTES || valueBytes.length > MAX_RECORD_PART_BYTES) {
+            return; // Not worth persisting; the memory tier still has it.
+        }
+        long offset = raf.length();
+        int recordLength = writeRecord(raf, offset, keyBytes, valueBytes, timestampMs);
+        Location previous = index.put(key, new Location(offset + RECORD_HEADER_BYTES + keyBytes.length,
+                valueBytes.length, timestampMs, recordLength));
+        if (previous != null) {
+            liveBytes -= previous.recordLength;
+        }
+        liveBytes += recordLength;
+        long fileLength = raf.length();
+        // Compact when over budget, or when most of the file is superseded records
+        if (fileLength > maxBytes || (fileLength > MIN_COMPACTION_BYTES && liveBytes < fileLength / 2)) {
+            compact();
+        }
+    }
+
+    public synchronized int size() {
+        return index.size();
+    }
+
+    public synchronized long fileBytes() throws IOException {
+        ensureOpen();
+        return raf.length();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (raf != null) {
+            raf.close();
+            raf = null;
+        }
+    }
+
+    /** Rewrites the file with only live, unexpired records that fit the byte budget. */
+    public synchronized void compact() throws IOException {
+        ensureOpen();
+        long now = System.currentTimeMillis();
+        List<Map.Entry<String, Location>> live = new ArrayList<>();
+        for (Map.Entry<String, Location> entry : index.entrySet()) {
+            if (!isExpired(entry.getValue().timestampMs, now)) {
+                live.add(entry);
+            }
+        }
+        // Newest first, so the oldest entries are the ones that fall outside the budget
+        Collections.sort(live, (a, b) -> Long.compare(b.getValue().timestampMs, a.getValue().timestampMs));
+
+        long budget = (long) (maxBytes * COMPACTED_FILL_RATIO);
+        long used = FILE_HEADER_BYTES;
+        List<String> keys = new ArrayList<>();
+        List<byte[]> values = new ArrayList<>();
+        List<Long> timestamps = new ArrayList<>();
+        for (Map.Entry<String, Location> entry : live) {
+            Location location = entry.getValue();
+            if (used + location.recordLength > budget) {
+                break;
+            }
+            byte[] value = new byte[location.valueLength];
+            raf.seek(location.valueOffset);
+            raf.readFully(value);
+            keys.add(entry.getKey());
+            values.add(value);
+            timestamps.add(location.timestampMs);
+            used += location.recordLength;
+        }
+
+        File tmp = new File(file.getPath() + ".tmp");
+        try (RandomAccessFile out = new RandomAccessFile(tmp, "rw")) {
+            out.setLength(0);
+            out.writeInt(MAGIC);
+            // Oldest first, matching the order a freshly appended log would have
+            for (int i = keys.size() - 1; i >= 0; i--) {
+                writeRecord(out, out.length(), keys.get(i).getBytes(StandardCharsets.UTF_8), values.get(i), timestamps.get(i));
+            }
+            out.getFD().sync();
+        }
+        raf.close();
+        if (!tmp.renameTo(file)) {
+            throw new IOException("Could not replace " + file + " with compacted log");
+        }
+        open();
+    }
+
+    private void open() throws IOException {
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Could not create " + parent);
+        }
+        raf = new RandomAccessFile(file, "rw");
+        index.clear();
+        liveBytes = 0;
+        if (raf.length() < FILE_HEADER_BYTES || readMagic() != MAGIC) {
+            raf.setLength(0);
+            raf.writeInt(MAGIC);
+            return;
+        }
+
+        long length = raf.length();
+        long offset = FILE_HEADER_BYTES;
+        byte[] header = new byte[RECORD_HEADER_BYTES];
+        ByteBuffer headerBuffer = ByteBuffer.wrap(header);
+        while (offset + RECORD_HEADER_BYTES <= length) {
+            raf.seek(offset);
+            raf.readFully(header);
+            headerBuffer.clear();
+            int keyLength = headerBuffer.getInt();
+            int valueLength = headerBuffer.getInt();
+            long timestampMs = headerBuffer.getLong();
+            if (keyLength < 0 || valueLength < 0 || keyLength > MAX_RECORD_PART_BYTES || valueLength > MAX_RECORD_PART_BYTES) {
+                break; // Corrupt record; everything from here on is unreliable.
+            }
+            int recordLength = RECORD_HEADER_BYTES + keyLength + valueLength;
+            if (offset + recordLength > length) {
+                break; // Torn write at the tail.
+            }
+            byte[] keyBytes = new byte[keyLength];
+            raf.readFully(keyBytes);
+            String key = new String(keyBytes, StandardCharsets.UTF_8);
+            Location previous = index.put(key, new Location(offset + RECORD_HEADER_BYTES + keyLength,
+                    valueLength, timestampMs, recordLength));
+            if (previous != null) {
+                liveBytes -= previous.recordLength;
+            }
+            liveBytes += recordLength;
+            offset += recordLength;
+        }
+        if (offset < length) {
+            raf.setLength(offset);
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (raf == null) {
+            throw new IOException("Store is closed: " + file);
+        }
+    }
+
+    private int readMagic() throws IOException {
+        raf.seek(0);
+        return raf.readInt();
+    }
+
+    private static int writeRecord(RandomAccessFile out, long offset, byte[] keyBytes, byte[] valueBytes, long timestampMs) throws IOException {
+        int recordLength = RECORD_HEADER_BYTES + keyBytes.length + valueBytes.length;
+        ByteBuffer record = ByteBuffer.allocate(recordLength);
+        record.putInt(keyBytes.length);
+        record.putInt(valueBytes.length);
+        record.putLong(timestampMs);
+        record.put(keyBytes);
+        record.put(valueBytes);
+        out.seek(offset);
+        out.write(record.array());
+        return recordLength;
+    }
+
+    private boolean isExpired(long timestampMs, long now) {
+        return maxAgeMs > 0 && now - timestampMs > maxAgeMs;
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.languageassistant.utils;
+
+/**
+ * Answers repeated phrases from a {@link TranslationCache} on the caller's thread and only
+ * sends misses to the wrapped translator, caching what it returns. Text already in the target
+ * language is passed through.
+ */
+public class CachingTranslator implements TextTranslator {
+
+    private final TextTranslator translator;
+    private final TranslationCache cache;
+
+    public CachingTranslator(TextTranslator translator, TranslationCache cache) {
+        this.translator = translator;
+        this.cache = cache;
+    }
+
+    @Override
+    public void translate(String text, String fromLanguage, String toLanguage, Callback callback) {
+        if (fromLanguage.equals(toLanguage)) {
+            callback.onSuccess(text);
+            return;
+        }
+        String cached = cache.get(fromLanguage, toLanguage, text);
+        if (cached != null) {
+            callback.onSuccess(cached);
+            return;
+        }
+        translator.translate(text, fromLanguage, toLanguage, new Callback() {
+            @Override
+            public void onSuccess(String translatedText) {
+                cache.put(fromLanguage, toLanguage, text, translatedText);
+                callback.onSuccess(translatedText);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                callback.onFailure(e);
+            }
+        });
+    }
+
+    public TranslationCache getCache() {
+        return cache;
+    }
+}
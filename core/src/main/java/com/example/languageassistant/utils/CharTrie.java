@@ -0,0 +1,210 @@
+package com.example.languageassistant.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable trie over short char sequences, used for longest-match rule lookup.
+ *
+ * Edges live in one open-addressing hash table keyed by (node, char), and edges out of the
+ * root additionally get a direct-indexed table over the range of first characters, which is
+ * where nearly every lookup starts. Matching allocates nothing.
+ */
+final class CharTrie {
+
+    private static final int NO_VALUE = -1;
+    private static final int EMPTY = -1;
+    private static final int MAX_NODES = 1 << 15;
+
+    private final int[] edgeKeys;
+    private final int[] edgeTargets;
+    private final int edgeMask;
+    private final int[] nodeValues;
+    private final boolean[] nodeHasChildren;
+    private final int rootMin;
+    private final int[] rootTargets;
+
+    static final class Builder {
+        private final List<Map<Character, Integer>> children = new ArrayList<>();
+        private final List<Integer> values = new ArrayList<>();
+
+        Builder() {
+            newNode();
+        }
+
+        /** Maps {@code key} to {@code value}; a later put for the same key wins. */
+        Builder put(CharSequence key, int value) {
+            if (key.length() == 0 || value < 0) {
+                throw new IllegalArgumentException("Trie keys must be non-empty and values non-negative");
+            }
+            int node = 0;
+            for (int i = 0; i < key.length(); i++) {
+                Integer next = children.get(node).get(key.charAt(i));
+                if (next == null) {
+                    next = newNode();
+                    children.get(node).put(key.charAt(i), next);
+                }
+                node = next;
+            }
+            values.set(node, value);
+            return this;
+        }
+
+        private int newNode() {
+            if (children.size() >= MAX_NODES) {
+                throw new IllegalStateException("Trie too large");
+            }
+            children.add(new HashMap<>());
+            values.add(NO_VALUE);
+            return children.size() - 1;
+        }
+
+        CharTrie build() {
+            return new CharTrie(this);
+        }
+    }
+
+    private CharTrie(Builder builder) {
+        int nodeCount = builder.children.size();
+        nodeValues = new int[nodeCount];
+        nodeHasChildren = new boolean[nodeCount];
+        int edgeCount = 0;
+        int min = Character.MAX_VALUE;
+        int max = 0;
+        for (int node = 0; node < nodeCount; node++) {
+            nodeValues[node] = builder.values.get(node);
+            nodeHasChildren[node] = !builder.children.get(node).isEmpty();
+            edgeCount += builder.children.get(node).size();
+        }
+        for (char c : builder.children.get(0).keySet()) {
+            min = Math.min(min, c);
+            max = Math.max(max, c);
+        }
+
+        int capacity = Integer.highestOneBit(Math.max(4, edgeCount * 2) - 1) << 1;
+        edgeKeys = new int[capacity];
+        edgeTargets = new int[capacity];
+        edgeMask = capacity - 1;
+        Arrays.fill(edgeKeys, EMPTY);
+        for (int node = 0; node < nodeCount; node++) {
+            for (Map.Entry<Character, Integer> edge : builder.children.get(node).entrySet()) {
+                int key = edgeKey(node, edge.getKey());
+                int slot = hash(key) & edgeMask;
+                while (edgeKeys[slot] != EMPTY) {
+                    slot = (slot + 1) & edgeMask;
+                }
+                edgeKeys[slot] = key;
+                edgeTargets[slot] = edge.getValue();
+            }
+        }
+
+        if (max < min) {
+            rootMin = 1;
+            rootTargets = new int[0];
+        } else {
+            rootMin = min;
+            rootTargets = new int[max - min + 1];
+            Arrays.fill(rootTargets, EMPTY);
+            for (Map.Entry<Character, Integer> edge : builder.children.get(0).entrySet()) {
+                rootTargets[edge.getKey() - min] = edge.getValue();
+            }
+        }
+    }
+
+    /** True if some key starts with {@code c}. */
+    boolean isFirstChar(char c) {
+        int index = c - rootMin;
+        return index >= 0 && index < rootTargets.length && rootTargets[index] != EMPTY;
+    }
+
+    /**
+     * Finds the longest key that starts at {@code start} and ends at or before {@code end}.
+     *
+     * @return {@code (value << 32) | matchEnd}, or -1 if no key matches
+     */
+    long longestMatch(CharSequence text, int start, int end) {
+        if (start >= end) {
+            return -1;
+        }
+        int index = text.charAt(start) - rootMin;
+        if (index < 0 || index >= rootTargets.length || rootTargets[index] == EMPTY) {
+            return -1;
+        }
+        int node = rootTargets[index];
+        int pos = start + 1;
+        long best = nodeValues[node] == NO_VALUE ? -1 : pack(nodeValues[node], pos);
+        while (pos < end) {
+            node = child(node, text.charAt(pos));
+            if (node == EMPTY) {
+                break;
+            }
+            pos++;
+            if (nodeValues[node] != NO_VALUE) {
+                best = pack(nodeValues[node], pos);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * True if the text from {@code start} to {@code end} is a proper prefix of some longer key,
+     * i.e. the longest match at {@code start} could change if more text followed {@code end}.
+     * Streaming callers use this to hold input back at a chunk boundary.
+     */
+    boolean mayExtendPast(CharSequence text, int start, int end) {
+        if (start >= end) {
+            return false;
+        }
+        int index = text.charAt(start) - rootMin;
+        if (index < 0 || index >= rootTargets.length || rootTargets[index] == EMPTY) {
+            return false;
+        }
+        int node = rootTargets[index];
+        for (int pos = start + 1; pos < end; pos++) {
+            node = child(node, text.charAt(pos));
+            if (node == EMPTY) {
+                return false;
+            }
+        }
+        return nodeHasChildren[node];
+    }
+
+    static int matchValue(long match) {
+        return (int) (match >>> 32);
+    }
+
+    static int matchEnd(long match) {
+        return (int) match;
+    }
+
+    private int child(int node, char c) {
+        int key = edgeKey(node, c);
+        int slot = hash(key) & edgeMask;
+        while (true) {
+            int k = edgeKeys[slot];
+            if (k == key) {
+                return edgeTargets[slot];
+            }
+            if (k == EMPTY) {
+                return EMPTY;
+            }
+            slot = (slot + 1) & edgeMask;
+        }
+    }
+
+    private static int edgeKey(int node, char c) {
+        return (node << 16) | c;
+    }
+
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static long pack(int value, int end) {
+        return ((long) value << 32) | (end & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,295 @@
+package com.example.languageassistant.utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * What the model is told about the conversation so far, within a fixed token budget.
+ *
+ * A prompt is laid out as:
+ * - the system prompt, which never changes, so every request starts with the same prefix;
+ * - short summaries of older turns;
+ * - the most recent turns, word for word;
+ * - the new question.
+ *
+ * When a turn no longer fits in the recent window it is compacted into a one-line summary
+ * (the question and the first sentence of the answer), and the oldest summaries are dropped
+ * once they outgrow their share of the budget. The prompt therefore stays the same size
+ * however long the session gets. Summaries are made locally rather than by asking the model,
+ * which would cost another round trip per turn.
+ *
+ * Tokens are estimated from the text length; the exact count would need a call to the service.
+ * The memory is thread-safe.
+ */
+public class ConversationMemory {
+
+    public static final int DEFAULT_TOKEN_BUDGET = 2048;
+    public static final int DEFAULT_RECENT_TURNS = 4;
+    // Roughly four characters per token for English text
+    private static final int CHARS_PER_TOKEN = 4;
+    // Room kept for the question when deciding how many recent turns fit
+    private static final int QUESTION_RESERVE_TOKENS = 128;
+    private static final int SUMMARY_QUESTION_CHARS = 80;
+    private static final int SUMMARY_ANSWER_CHARS = 160;
+    // Sent between the fixed parts so the roles keep alternating, starting with the user
+    static final String SYSTEM_ACK = "Understood.";
+    static final String SUMMARY_HEADER = "Summary of the earlier conversation:";
+    static final String SUMMARY_ACK = "Noted.";
+    // Words that point back at something said earlier
+    private static final Set<String> BACK_REFERENCES = new HashSet<>(Arrays.asList(
+            "it", "its", "itself", "they", "them", "their", "theirs", "he", "him", "his", "she", "her", "hers",
+            "that", "those", "this", "these", "there", "then", "else", "same", "another", "previous", "earlier"));
+    private static final Set<String> CONTINUATION_OPENERS = new HashSet<>(Arrays.asList(
+            "and", "but", "or", "also", "then", "why"));
+    private static final Set<String> THERE_IS = new HashSet<>(Arrays.asList("is", "are", "was", "were"));
+
+    /** Who sent a message. */
+    public enum Role { USER, MODEL }
+
+    /** One message of the prompt. */
+    public static final class Message {
+        public final Role role;
+        public final String text;
+
+        Message(Role role, String text) {
+            this.role = role;
+            this.text = text;
+        }
+    }
+
+    /** The messages to send for one question, and roughly how many tokens they are. */
+    public static final class Prompt {
+        public final List<Message> messages;
+        public final int tokens;
+
+        Prompt(List<Message> messages, int tokens) {
+            this.messages = Collections.unmodifiableList(messages);
+            this.tokens = tokens;
+        }
+    }
+
+    private static final class Turn {
+        final String question;
+        final String answer;
+        final int tokens;
+
+        Turn(String question, String answer) {
+            this.question = question;
+            this.answer = answer;
+            this.tokens = estimateTokens(question) + estimateTokens(answer);
+        }
+    }
+
+    private final String systemPrompt;
+    private final int tokenBudget;
+    private final int maxRecentTurns;
+    private final int systemTokens;
+    private final int summaryBudgetTokens;
+    private final int recentBudgetTokens;
+
+    private final Deque<Turn> recent = new ArrayDeque<>();
+    private final Deque<String> summaries = new ArrayDeque<>();
+    private int recentTokens;
+    private int summaryTokens;
+
+    private int requests;
+    private long promptTokensSent;
+    private int lastPromptTokens;
+    private int maxPromptTokens;
+    private int compactedTurns;
+    private int droppedSummaries;
+
+    public ConversationMemory(String systemPrompt) {
+        this(systemPrompt, DEFAULT_TOKEN_BUDGET, DEFAULT_RECENT_TURNS);
+    }
+
+    /**
+     * @param tokenBudget the most tokens a prompt may take, question included, unless the
+     *                    question alone is larger
+     * @param maxRecentTurns how many turns are kept word for word
+     */
+    public ConversationMemory(String systemPrompt, int tokenBudget, int maxRecentTurns) {
+        this.systemPrompt = systemPrompt;
+        this.tokenBudget = tokenBudget;
+        this.maxRecentTurns = maxRecentTurns;
+        this.systemTokens = estimateTokens(systemPrompt) + estimateTokens(SYSTEM_ACK);
+        // A quarter of what is left goes to summaries, the rest to recent turns
+        int available = Math.max(0, tokenBudget - systemTokens - QUESTION_RESERVE_TOKENS);
+        this.summaryBudgetTokens = available / 4;
+        this.recentBudgetTokens = available - summaryBudgetTokens;
+    }
+
+    /** A rough token count: about four characters per token. */
+    public static int estimateTokens(String text) {
+        return text == null ? 0 : (text.length() + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+    }
+
+    /** Remembers a question and its answer, compacting older turns that no longer fit. */
+    public synchronized void addTurn(String question, String answer) {
+        Turn turn = new Turn(question, answer);
+        recent.addLast(turn);
+        recentTokens += turn.tokens;
+        while (!recent.isEmpty() && (recent.size() > maxRecentTurns || recentTokens > recentBudgetTokens)) {
+            compact(recent.removeFirst());
+        }
+    }
+
+    /**
+     * The prompt for {@code question}: the fixed prefix, the summaries and as many recent turns
+     * as fit, newest kept first. Counts the tokens it will send.
+     */
+    public synchronized Prompt buildPrompt(String question) {
+        int questionTokens = estimateTokens(question);
+        int available = tokenBudget - systemTokens - questionTokens;
+
+        List<Message> messages = new ArrayList<>();
+        messages.add(new Message(Role.USER, systemPrompt));
+        messages.add(new Message(Role.MODEL, SYSTEM_ACK));
+        int tokens = systemTokens;
+
+        // Summaries first, as they are bounded; a long question can still squeeze them out
+        List<String> keptSummaries = new ArrayList<>(summaries);
+        int summaryCost = summaryMessageTokens(keptSummaries);
+        while (!keptSummaries.isEmpty() && summaryCost > available) {
+            keptSummaries.remove(0);
+            summaryCost = summaryMessageTokens(keptSummaries);
+        }
+        if (!keptSummaries.isEmpty()) {
+            StringBuilder summary = new StringBuilder(SUMMARY_HEADER);
+            for (String line : keptSummaries) {
+                summary.append("\n- ").append(line);
+            }
+            messages.add(new Message(Role.USER, summary.toString()));
+            messages.add(new Message(Role.MODEL, SUMMARY_ACK));
+            tokens += summaryCost;
+            available -= summaryCost;
+        }
+
+        // Walk back from the newest turn while they fit, then add them oldest first
+        List<Turn> keptTurns = new ArrayList<>();
+        for (Iterator<Turn> it = recent.descendingIterator(); it.hasNext(); ) {
+            Turn turn = it.next();
+            if (turn.tokens > available) {
+                break;
+            }
+            keptTurns.add(0, turn);
+            available -= turn.tokens;
+            tokens += turn.tokens;
+        }
+        for (Turn turn : keptTurns) {
+            messages.add(new Message(Role.USER, turn.question));
+            messages.add(new Message(Role.MODEL, turn.answer));
+        }
+
+        messages.add(new Message(Role.USER, question));
+        tokens += questionTokens;
+
+        requests++;
+        promptTokensSent += tokens;
+        lastPromptTokens = tokens;
+        maxPromptTokens = Math.max(maxPromptTokens, tokens);
+        return new Prompt(messages, tokens);
+    }
+
+    /**
+     * True when {@code question} leans on what was said before: it refers back with a pronoun
+     * ("how much is it?", "where are they?") or opens as a continuation ("and on Sunday?",
+     * "what about children?"). Other questions mean the same whatever came before, so their
+     * answers can be cached and reused. Errs towards follow-up, which only costs a cache miss.
+     */
+    public static boolean isFollowUp(String question) {
+        String[] words = AnswerCache.normalizeQuestion(question).split(" ");
+        if (words.length == 0 || words[0].isEmpty()) {
+            return false;
+        }
+        if (CONTINUATION_OPENERS.contains(words[0])
+                || (words.length > 1 && words[1].equals("about") && (words[0].equals("what") || words[0].equals("how")))) {
+            return true;
+        }
+        for (int i = 0; i < words.length; i++) {
+            // "is there parking?" asks about existence; "how do I get there?" points back
+            if (words[i].equals("there") && i > 0 && THERE_IS.contains(words[i - 1])) {
+                continue;
+            }
+            if (BACK_REFERENCES.contains(words[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Forgets the conversation; the counters are kept. */
+    public synchronized void clear() {
+        recent.clear();
+        summaries.clear();
+        recentTokens = 0;
+        summaryTokens = 0;
+    }
+
+    public int getTokenBudget() {
+        return tokenBudget;
+    }
+
+    public synchronized int getLastPromptTokens() {
+        return lastPromptTokens;
+    }
+
+    public synchronized String getStats() {
+        long averageTokens = requests == 0 ? 0 : promptTokensSent / requests;
+        return "conversation: " + recent.size() + " recent, " + summaries.size() + " summarized"
+                + " (" + compactedTurns + " compacted, " + droppedSummaries + " dropped)"
+                + ", tokens/request last=" + lastPromptTokens + " avg=" + averageTokens
+                + " max=" + maxPromptTokens + " budget=" + tokenBudget;
+    }
+
+    private void compact(Turn turn) {
+        recentTokens -= turn.tokens;
+        String summary = "Q: " + shorten(turn.question, SUMMARY_QUESTION_CHARS)
+                + " A: " + shorten(firstSentence(turn.answer), SUMMARY_ANSWER_CHARS);
+        summaries.addLast(summary);
+        summaryTokens += summaryLineTokens(summary);
+        compactedTurns++;
+        while (summaryTokens + estimateTokens(SUMMARY_HEADER) + estimateTokens(SUMMARY_ACK) > summaryBudgetTokens
+                && !summaries.isEmpty()) {
+            summaryTokens -= summaryLineTokens(summaries.removeFirst());
+            droppedSummaries++;
+        }
+    }
+
+    private static int summaryLineTokens(String line) {
+        return estimateTokens("\n- " + line);
+    }
+
+    private static int summaryMessageTokens(List<String> lines) {
+        if (lines.isEmpty()) {
+            return 0;
+        }
+        int tokens = estimateTokens(SUMMARY_HEADER) + estimateTokens(SUMMARY_ACK);
+        for (String line : lines) {
+            tokens += summaryLineTokens(line);
+        }
+        return tokens;
+    }
+
+    private static String firstSentence(String text) {
+        List<String> sentences = SentenceSplitter.split(text, SUMMARY_ANSWER_CHARS);
+        return sentences.isEmpty() ? "" : sentences.get(0);
+    }
+
+    // Cuts at a word boundary and marks the cut
+    private static String shorten(String text, int maxChars) {
+        String trimmed = text.trim().replaceAll("\\s+", " ");
+        if (trimmed.length() <= maxChars) {
+            return trimmed;
+        }
+        int cut = trimmed.lastIndexOf(' ', maxChars - 1);
+        return trimmed.substring(0, cut > 0 ? cut : maxChars - 1) + "...";
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.languageassistant.utils;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs display commands one at a time on a single thread, so the glasses are only ever driven
+ * from one place no matter which thread asks for an update.
+ *
+ * Commands are posted to a lock-free queue and never block the caller. Each command belongs to
+ * a region of the display. A {@link Mode#REPLACE} command supersedes everything posted before
+ * it for the same region, so when updates arrive faster than they can be rendered only the
+ * newest text is drawn and the skipped commands are {@link Command#discard() discarded}.
+ * {@link Mode#APPEND} commands run in order unless a later replace supersedes them, and
+ * {@link Mode#BARRIER} commands always run.
+ *
+ * The time each command waits in the queue is recorded and reported by {@link #getStats()}.
+ */
+public class DisplayActor {
+
+    public enum Mode {
+        /** Shows new content for the region; earlier commands for it are no longer needed. */
+        REPLACE,
+        /** Builds on what the region shows; dropped only if a later replace supersedes it. */
+        APPEND,
+        /** Always runs, e.g. resetting state after the glasses reconnect. */
+        BARRIER
+    }
+
+    public interface Command {
+        void run();
+
+        /** Called instead of {@link #run()} when the command was superseded or the actor stopped. */
+        default void discard() {
+        }
+    }
+
+    private static final class Posted {
+        final Object region;
+        final Mode mode;
+        final Command command;
+        final long sequence;
+        final long postedAtNanos;
+
+        Posted(Object region, Mode mode, Command command, long sequence, long postedAtNanos) {
+            this.region = region;
+            this.mode = mode;
+            this.command = command;
+            this.sequence = sequence;
+            this.postedAtNanos = postedAtNanos;
+        }
+    }
+
+    private final String name;
+    private final ConcurrentLinkedQueue<Posted> queue = new ConcurrentLinkedQueue<>();
+    // Sequence of the newest replace posted for each region
+    private final ConcurrentHashMap<Object, Long> latestReplace = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicInteger depth = new AtomicInteger();
+    private volatile Thread thread;
+
+    // Written only by the actor thread
+    private volatile long executed;
+    private volatile long coalesced;
+    private volatile long failures;
+    private volatile long totalWaitNanos;
+    private volatile long maxWaitNanos;
+
+    public DisplayActor(String name) {
+        this.name = name;
+    }
+
+    public synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+        Thread actorThread = new Thread(this::runLoop, name);
+        actorThread.setDaemon(true);
+        thread = actorThread;
+        actorThread.start();
+    }
+
+    /** Stops the actor after the command it is running; queued commands are discarded. */
+    public synchronized void stop() {
+        Thread actorThread = thread;
+        thread = null;
+        if (actorThread != null) {
+            LockSupport.unpark(actorThread);
+        }
+    }
+
+    /** Queues {@code command} for {@code region} and returns immediately. */
+    public void post(Object region, Mode mode, Command command) {
+        long seq = sequence.incrementAndGet();
+        if (mode == Mode.REPLACE) {
+            // Published before the command is queued, so whatever it supersedes is skipped
+            latestReplace.merge(region, seq, Math::max);
+        }
+        queue.offer(new Posted(region, mode, command, seq, System.nanoTime()));
+        depth.incrementAndGet();
+        Thread actorThread = thread;
+        if (actorThread != null) {
+            LockSupport.unpark(actorThread);
+        }
+    }
+
+    /** Whether the calling thread is the actor, e.g. to assert that display state is confined. */
+    public boolean isActorThread() {
+        return Thread.currentThread() == thread;
+    }
+
+    public int getQueueDepth() {
+        return depth.get();
+    }
+
+    public String getStats() {
+        long runs = executed;
+        long avgWaitMicros = runs == 0 ? 0 : totalWaitNanos / runs / 1000;
+        return "queued=" + depth.get() + " executed=" + runs + " coalesced=" + coalesced + " failures=" + failures
+                + " avgWaitMs=" + avgWaitMicros / 1000.0 + " maxWaitMs=" + maxWaitNanos / 1000000;
+    }
+
+    private void runLoop() {
+        Thread self = Thread.currentThread();
+        while (thread == self) {
+            Posted next = queue.poll();
+            if (next == null) {
+                LockSupport.park(this);
+                continue;
+            }
+            depth.decrementAndGet();
+            Long latest = latestReplace.get(next.region);
+            if (next.mode != Mode.BARRIER && latest != null && next.sequence < latest) {
+                coalesced++;
+                discard(next);
+                continue;
+            }
+            long waited = System.nanoTime() - next.postedAtNanos;
+            totalWaitNanos += waited;
+            if (waited > maxWaitNanos) {
+                maxWaitNanos = waited;
+            }
+            try {
+                next.command.run();
+            } catch (RuntimeException e) {
+                // One failed update must not stop the display
+                failures++;
+            }
+            executed++;
+        }
+        Posted left;
+        while ((left = queue.poll()) != null) {
+            depth.decrementAndGet();
+            discard(left);
+        }
+    }
+
+    private void discard(Posted posted) {
+        try {
+            posted.command.discard();
+        } catch (RuntimeException e) {
+            failures++;
+        }
+    }
+}
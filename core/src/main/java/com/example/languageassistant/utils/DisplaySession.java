@@ -0,0 +1,294 @@
+package com.example.languageassistant.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * What is currently on the glasses' scrolling text view, so each update sends only the
+ * difference.
+ *
+ * The session remembers the layout and scroll configuration it last applied and skips
+ * reconfiguring while they stay the same. It also keeps the wrapped lines of the current text:
+ * {@link #show} compares new text with them line by line and {@link #append} re-wraps only the
+ * open last line, and in both cases only changed lines are replaced in place and new lines
+ * scrolled in. A full redraw happens only when a line that already scrolled out of view would
+ * change, or after {@link #invalidate()}.
+ *
+ * Slot indexes follow the Z100 scroll view: slot 0 is the bottom line and the screen fills from
+ * the top slot down, after which every new line scrolls in at slot 0.
+ *
+ * @param <S> rendered slice type handed to the {@link SliceSender}
+ */
+public class DisplaySession<S> {
+
+    // Lines that scrolled out of view more than this long ago are forgotten
+    private static final int MAX_HISTORY_LINES = 64;
+
+    /** Renders lines for the glasses. Returned slices are owned by the sender once queued. */
+    public interface LineRenderer<S> {
+        List<String> breakLines(CharSequence text);
+
+        S renderLine(String line);
+    }
+
+    /** Applies layout changes on the glasses. */
+    public interface Target {
+        void applyScrollLayout();
+
+        void configureScroll(ScrollConfig config);
+    }
+
+    public static final class ScrollConfig {
+        public final int sliceHeight;
+        public final int lowestLineShowing;
+        public final int maxLinesShowing;
+        public final int scrollSpeed;
+
+        public ScrollConfig(int sliceHeight, int lowestLineShowing, int maxLinesShowing, int scrollSpeed) {
+            this.sliceHeight = sliceHeight;
+            this.lowestLineShowing = lowestLineShowing;
+            this.maxLinesShowing = maxLinesShowing;
+            this.scrollSpeed = scrollSpeed;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof ScrollConfig)) {
+                return false;
+            }
+            ScrollConfig other = (ScrollConfig) o;
+            return sliceHeight == other.sliceHeight && lowestLineShowing == other.lowestLineShowing
+                    && maxLinesShowing == other.maxLinesShowing && scrollSpeed == other.scrollSpeed;
+        }
+
+        @Override
+        public int hashCode() {
+            return ((sliceHeight * 31 + lowestLineShowing) * 31 + maxLinesShowing) * 31 + scrollSpeed;
+        }
+    }
+
+    private final Target target;
+    private final LineRenderer<S> renderer;
+    private final SliceSender<S> sender;
+
+    private boolean layoutApplied = false;
+    private ScrollConfig config;
+    private final List<String> lines = new ArrayList<>();
+    private int visibleStart = 0; // Index in lines of the top visible line
+    private int forgottenLines = 0; // Lines of the current text dropped from the front of lines
+    private String openLine = null; // Raw text of the last line, which appends may still extend
+
+    private long updates;
+    private long fullRedraws;
+    private long linesSent;
+    private long linesSkipped;
+    private long reconfigurations;
+
+    public DisplaySession(Target target, LineRenderer<S> renderer, SliceSender<S> sender) {
+        this.target = target;
+        this.renderer = renderer;
+        this.sender = sender;
+    }
+
+    /** Shows {@code text}, replacing whatever is on the glasses. */
+    public synchronized void show(CharSequence text, ScrollConfig scrollConfig) {
+        updates++;
+        boolean reset = configure(scrollConfig);
+        List<String> newLines = renderer.breakLines(text);
+        if (reset) {
+            redraw(newLines);
+        } else {
+            int offset = forgottenLines;
+            int common = 0;
+            while (offset + common < newLines.size() && common < lines.size()
+                    && lines.get(common).equals(newLines.get(offset + common))) {
+                common++;
+            }
+            linesSkipped += common;
+            // With history forgotten, unrelated text cannot be lined up with what is shown
+            if ((offset > 0 && common == 0) || !applyFrom(common, newLines.subList(Math.min(offset + common, newLines.size()), newLines.size()))) {
+                restart(newLines);
+            }
+        }
+        openLine = lines.isEmpty() ? null : lastLineFor(text, lines.get(lines.size() - 1));
+    }
+
+    /** Continues the current text with {@code delta}, e.g. the next words of a caption. */
+    public synchronized void append(CharSequence delta, ScrollConfig scrollConfig) {
+        updates++;
+        boolean reset = configure(scrollConfig);
+        if (reset) {
+            // The view was cleared, so the old lines have to be sent again
+            List<String> oldLines = new ArrayList<>(lines);
+            lines.clear();
+            visibleStart = 0;
+            redraw(oldLines);
+        }
+        String raw = (openLine != null ? openLine : "") + delta;
+        int start = openLine != null ? lines.size() - 1 : lines.size();
+        List<String> wrapped = renderer.breakLines(raw);
+        if (!applyFrom(start, wrapped)) {
+            List<String> all = new ArrayList<>(lines.subList(0, start));
+            all.addAll(wrapped);
+            restart(all);
+        }
+        if (!wrapped.isEmpty()) {
+            openLine = lastLineFor(raw, wrapped.get(wrapped.size() - 1));
+        }
+    }
+
+    /**
+     * Forgets the glasses' state, e.g. after losing control or clearing the display. The next
+     * update reapplies the layout and redraws.
+     */
+    public synchronized void invalidate() {
+        layoutApplied = false;
+        config = null;
+        lines.clear();
+        visibleStart = 0;
+        forgottenLines = 0;
+        openLine = null;
+        sender.clear();
+    }
+
+    public synchronized String getStats() {
+        return "updates=" + updates + " fullRedraws=" + fullRedraws + " reconfigurations=" + reconfigurations
+                + " linesSent=" + linesSent + " linesSkipped=" + linesSkipped
+                + " lines=" + lines.size() + " visibleFrom=" + visibleStart;
+    }
+
+    // Applies the layout and scroll settings if they changed; true if the view was reset
+    private boolean configure(ScrollConfig scrollConfig) {
+        boolean reset = false;
+        if (!layoutApplied) {
+            sender.clear();
+            target.applyScrollLayout();
+            layoutApplied = true;
+            reset = true;
+        }
+        if (reset || !scrollConfig.equals(config)) {
+            sender.clear();
+            target.configureScroll(scrollConfig);
+            config = scrollConfig;
+            reconfigurations++;
+            reset = true;
+        }
+        return reset;
+    }
+
+    /**
+     * Replaces lines[start..] with tail, touching only the lines that differ. Returns false,
+     * without sending anything, if that would change a line that already scrolled out of view.
+     */
+    private boolean applyFrom(int start, List<String> tail) {
+        int common = 0;
+        while (common < tail.size() && start + common < lines.size() && lines.get(start + common).equals(tail.get(common))) {
+            common++;
+        }
+        int first = start + common;
+        if (first < lines.size() && first < visibleStart) {
+            return false;
+        }
+        linesSkipped += common;
+
+        int end = start + tail.size();
+        if (end < lines.size() && visibleStart > 0) {
+            shrinkScrolled(first, start, tail);
+            return true;
+        }
+        int replaceEnd = Math.min(lines.size(), end);
+        for (int i = first; i < replaceEnd; i++) {
+            String line = tail.get(i - start);
+            lines.set(i, line);
+            send(line, slotOf(i), false);
+        }
+        // The new text is shorter: blank the lines that are no longer part of it
+        for (int i = lines.size() - 1; i >= end; i--) {
+            send("", slotOf(i), false);
+            lines.remove(i);
+        }
+        for (int i = Math.max(replaceEnd, first); i < end; i++) {
+            appendLine(tail.get(i - start));
+        }
+        return true;
+    }
+
+    /**
+     * Like {@link #applyFrom}, for text that gets shorter after lines scrolled out of view. The
+     * view cannot scroll back, so the lines before the removed ones are sent again one slot
+     * lower instead of leaving the bottom slots blank.
+     */
+    private void shrinkScrolled(int first, int start, List<String> tail) {
+        String[] shown = new String[config.maxLinesShowing];
+        for (int i = visibleStart; i < lines.size() && i < visibleStart + shown.length; i++) {
+            shown[slotOf(i)] = lines.get(i);
+        }
+        int end = start + tail.size();
+        for (int i = first; i < end; i++) {
+            lines.set(i, tail.get(i - start));
+        }
+        lines.subList(end, lines.size()).clear();
+        visibleStart = Math.max(0, end - config.maxLinesShowing);
+        for (int i = visibleStart; i < visibleStart + shown.length; i++) {
+            String line = i < lines.size() ? lines.get(i) : "";
+            int slot = slotOf(i);
+            if (line.equals(shown[slot])) {
+                linesSkipped++;
+            } else {
+                send(line, slot, false);
+            }
+        }
+    }
+
+    // Resets the scroll view and sends newLines from the top
+    private void restart(List<String> newLines) {
+        sender.clear();
+        target.configureScroll(config);
+        reconfigurations++;
+        redraw(newLines);
+    }
+
+    private void redraw(List<String> newLines) {
+        fullRedraws++;
+        lines.clear();
+        visibleStart = 0;
+        forgottenLines = 0;
+        for (String line : newLines) {
+            appendLine(line);
+        }
+    }
+
+    private void appendLine(String line) {
+        int visible = lines.size() - visibleStart;
+        lines.add(line);
+        if (visible < config.maxLinesShowing) {
+            // Screen not full yet: fill the next slot down without scrolling
+            send(line, config.maxLinesShowing - 1 - visible, false);
+        } else {
+            send(line, 0, true);
+            visibleStart++;
+        }
+        if (visibleStart > MAX_HISTORY_LINES) {
+            lines.subList(0, visibleStart).clear();
+            forgottenLines += visibleStart;
+            visibleStart = 0;
+        }
+    }
+
+    private int slotOf(int lineIndex) {
+        return config.maxLinesShowing - 1 - (lineIndex - visibleStart);
+    }
+
+    private void send(String line, int slot, boolean scrollFirst) {
+        linesSent++;
+        sender.enqueue(renderer.renderLine(line), slot, scrollFirst);
+    }
+
+    // The open last line keeps a trailing space so the next appended word stays separate
+    private static String lastLineFor(CharSequence raw, String lastLine) {
+        if (raw.length() > 0 && Character.isWhitespace(raw.charAt(raw.length() - 1))) {
+            return raw.charAt(raw.length() - 1) == '\n' ? null : lastLine + " ";
+        }
+        return lastLine;
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.languageassistant.utils;
+
+/**
+ * Everything the app sends to or hears from the glasses: control, the scroll layout, scroll
+ * images, clearing the display and link events. The app's {@code VuzixGlassesTransport} talks
+ * to Z100 glasses through the UltraliteSDK; {@link SimulatedGlassesTransport} runs in the JVM so
+ * the display path can be load-tested without hardware.
+ *
+ * @param <I> image type sent to the scroll view, a {@code Bitmap} on the device
+ */
+public interface GlassesTransport<I> {
+
+    /** Link and control events. Callbacks may arrive on any thread. */
+    interface Listener {
+        default void onAvailabilityChanged(boolean available) {
+        }
+
+        default void onControlGained() {
+        }
+
+        default void onControlLost() {
+        }
+
+        default void onLinkStatusChanged(boolean connected) {
+        }
+
+        default void onDisplayOnline(boolean online) {
+        }
+
+        /** The glasses confirmed the oldest unacknowledged scroll image; see {@link #reportsAcks()}. */
+        default void onImageAcked() {
+        }
+    }
+
+    boolean isAvailable();
+
+    boolean isControlled();
+
+    /** Asks for control; {@link Listener#onControlGained()} follows if it is granted. */
+    boolean requestControl(int timeoutMs);
+
+    void releaseControl();
+
+    void setScrollLayout();
+
+    void configureScroll(int sliceHeight, int lowestLineShowing, int maxLinesShowing, int scrollSpeed);
+
+    void sendScrollImage(I image, int sliceIndex, boolean scrollFirst);
+
+    void clearDisplay();
+
+    /** Whether {@link Listener#onImageAcked()} is called for every image sent. */
+    boolean reportsAcks();
+
+    void addListener(Listener listener);
+
+    void removeListener(Listener listener);
+}
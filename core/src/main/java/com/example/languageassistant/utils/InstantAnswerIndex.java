@@ -0,0 +1,405 @@
+package com.example.languageassistant.utils;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * On-device answers to predictable questions (opening hours, prices, directions), found by
+ * BM25 ranking over an inverted index so they can be shown without going to the network.
+ *
+ * The questions and answers are written by hand in a text file, one entry per block:
+ * <pre>
+ * # Lines starting with # are comments
+ * Q: What are your opening hours?
+ * Q: When do you open?
+ * A: We are open 9am to 6pm, Monday to Saturday.
+ * </pre>
+ * An entry may have several Q: lines, each indexed as its own document, and its answer may run
+ * over several lines. Entries are separated by a blank line.
+ *
+ * The text file is compiled into a binary index next to it, rebuilt whenever the text file
+ * changes. The term dictionary is read into memory when the index is opened; postings, document
+ * lengths and answers stay in the file, which is memory-mapped, so a lookup reads only the
+ * postings of the question's terms.
+ *
+ * A match is only returned when its confidence reaches the threshold. Confidence is the best
+ * BM25 score over the score a document matching every question term once would get, so words
+ * of the question that the index does not know pull it down. Thread-safe; the mapped buffer
+ * is only read with absolute gets.
+ */
+public class InstantAnswerIndex {
+
+    public static final double DEFAULT_MIN_CONFIDENCE = 0.7;
+    // Bumped whenever tokenization changes, so indexes compiled with the old terms are rebuilt
+    private static final int MAGIC = 0x49415832; // "IAX2"
+    private static final int HEADER_BYTES = 4 + 8 + 8 + 4 * 4 + 4 * 4;
+    private static final int POSTING_BYTES = 4 + 4;
+    private static final int DOC_BYTES = 4 + 4;
+    private static final int ANSWER_BYTES = 4 + 4;
+    // Standard BM25 parameters
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    // Words that say a question is being asked but not what it is about
+    private static final Set<String> STOP_WORDS = new HashSet<>(Arrays.asList(
+            "a", "an", "the", "is", "are", "am", "was", "were", "be", "do", "does", "did", "can", "could",
+            "will", "would", "should", "i", "me", "my", "we", "our", "you", "your", "it", "its", "this",
+            "that", "there", "what", "whats", "when", "where", "wheres", "how", "hows", "which", "who",
+            "to", "of", "in", "on", "at", "for", "from", "with", "and", "or", "if", "tell", "know"));
+
+    /** The answer found for a question and how sure the index is of it, from 0 to 1. */
+    public static final class Match {
+        public final String answer;
+        public final double confidence;
+
+        Match(String answer, double confidence) {
+            this.answer = answer;
+            this.confidence = confidence;
+        }
+    }
+
+    private final ByteBuffer buffer;
+    private final double minConfidence;
+    private final int docCount;
+    private final float averageDocLength;
+    private final int postingsOffset;
+    private final int docsOffset;
+    private final int answersOffset;
+    // term -> {document frequency, index of its first posting}
+    private final Map<String, int[]> dictionary;
+
+    private long lookups;
+    private long hits;
+    private long lookupNanos;
+    private long maxLookupNanos;
+
+    private InstantAnswerIndex(ByteBuffer buffer, double minConfidence) throws IOException {
+        this.buffer = buffer;
+        this.minConfidence = minConfidence;
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not an instant answer index");
+        }
+        docCount = buffer.getInt(20);
+        int termCount = buffer.getInt(28);
+        averageDocLength = buffer.getFloat(32);
+        int termsOffset = buffer.getInt(36);
+        postingsOffset = buffer.getInt(40);
+        docsOffset = buffer.getInt(44);
+        answersOffset = buffer.getInt(48);
+        dictionary = new HashMap<>(termCount * 2);
+        int position = termsOffset;
+        for (int i = 0; i < termCount; i++) {
+            int length = buffer.getShort(position) & 0xFFFF;
+            byte[] bytes = new byte[length];
+            for (int j = 0; j < length; j++) {
+                bytes[j] = buffer.get(position + 2 + j);
+            }
+            position += 2 + length;
+            dictionary.put(new String(bytes, StandardCharsets.UTF_8),
+                    new int[]{buffer.getInt(position), buffer.getInt(position + 4)});
+            position += 8;
+        }
+    }
+
+    /** An index with no entries, which never matches. */
+    public static InstantAnswerIndex empty() {
+        try {
+            return new InstantAnswerIndex(ByteBuffer.wrap(compile(new ArrayList<>(), 0, 0)), DEFAULT_MIN_CONFIDENCE);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Opens the index compiled from {@code source}, compiling it into {@code indexFile} first if
+     * that is missing or was compiled from a different version of the source. Without a source
+     * file the index is empty.
+     */
+    public static InstantAnswerIndex open(File source, File indexFile, double minConfidence) throws IOException {
+        if (!source.exists()) {
+            return empty();
+        }
+        if (!isCurrent(source, indexFile)) {
+            build(source, indexFile);
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(indexFile, "r"); FileChannel channel = raf.getChannel()) {
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new InstantAnswerIndex(mapped, minConfidence);
+        }
+    }
+
+    /** Compiles {@code source} into {@code indexFile}, replacing it only once complete. */
+    public static void build(File source, File indexFile) throws IOException {
+        List<String[]> entries = parse(source);
+        byte[] compiled = compile(entries, source.length(), source.lastModified());
+        File temp = new File(indexFile.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            out.write(compiled);
+        }
+        if (!temp.renameTo(indexFile)) {
+            indexFile.delete();
+            if (!temp.renameTo(indexFile)) {
+                throw new IOException("Could not replace " + indexFile);
+            }
+        }
+    }
+
+    /**
+     * The answer to {@code question} if one matches with at least the minimum confidence,
+     * otherwise null so the question can go to the model.
+     */
+    public Match lookup(String question) {
+        long start = System.nanoTime();
+        Match best = find(question);
+        if (best != null && best.confidence < minConfidence) {
+            best = null;
+        }
+        long elapsed = System.nanoTime() - start;
+        synchronized (this) {
+            lookups++;
+            if (best != null) {
+                hits++;
+            }
+            lookupNanos += elapsed;
+            maxLookupNanos = Math.max(maxLookupNanos, elapsed);
+        }
+        return best;
+    }
+
+    /** The best match for {@code question} whatever its confidence, or null if nothing shares a term. */
+    public Match find(String question) {
+        if (docCount == 0 || question == null) {
+            return null;
+        }
+        Set<String> terms = new LinkedHashSet<>(tokenize(question));
+        if (terms.isEmpty()) {
+            return null;
+        }
+        float[] scores = new float[docCount];
+        double perfectScore = 0;
+        for (String term : terms) {
+            int[] entry = dictionary.get(term);
+            int df = entry != null ? entry[0] : 0;
+            double idf = Math.log(1 + (docCount - df + 0.5) / (df + 0.5));
+            // A document with this term once and of average length scores exactly idf for it
+            perfectScore += idf;
+            if (entry == null) {
+                continue;
+            }
+            int position = postingsOffset + entry[1] * POSTING_BYTES;
+            for (int i = 0; i < df; i++, position += POSTING_BYTES) {
+                int doc = buffer.getInt(position);
+                int tf = buffer.getInt(position + 4);
+                double lengthNorm = 1 - B + B * buffer.getInt(docsOffset + doc * DOC_BYTES) / averageDocLength;
+                scores[doc] += (float) (idf * tf * (K1 + 1) / (tf + K1 * lengthNorm));
+            }
+        }
+        int bestDoc = -1;
+        for (int doc = 0; doc < docCount; doc++) {
+            if (scores[doc] > 0 && (bestDoc < 0 || scores[doc] > scores[bestDoc])) {
+                bestDoc = doc;
+            }
+        }
+        if (bestDoc < 0) {
+            return null;
+        }
+        double confidence = Math.min(1.0, scores[bestDoc] / perfectScore);
+        return new Match(readAnswer(buffer.getInt(docsOffset + bestDoc * DOC_BYTES + 4)), confidence);
+    }
+
+    /** Number of indexed questions. */
+    public int size() {
+        return docCount;
+    }
+
+    public synchronized String getStats() {
+        long averageMicros = lookups == 0 ? 0 : lookupNanos / lookups / 1000;
+        return "instant answers: " + docCount + " questions, " + hits + "/" + lookups + " answered locally"
+                + ", lookup avg=" + averageMicros + "us max=" + maxLookupNanos / 1000 + "us";
+    }
+
+    /**
+     * Splits a question into index terms: normalized as {@link AnswerCache#normalizeQuestion}
+     * does, question words dropped and a plural "s" removed, so "Hours?" matches "hour".
+     */
+    static List<String> tokenize(String text) {
+        List<String> terms = new ArrayList<>();
+        for (String word : AnswerCache.normalizeQuestion(text).split(" ")) {
+            if (word.isEmpty() || STOP_WORDS.contains(word)) {
+                continue;
+            }
+            if (word.length() > 3 && word.endsWith("s") && !word.endsWith("ss")) {
+                word = word.substring(0, word.length() - 1);
+            }
+            terms.add(word);
+        }
+        return terms;
+    }
+
+    private String readAnswer(int answer) {
+        int entry = answersOffset + answer * ANSWER_BYTES;
+        int offset = buffer.getInt(entry);
+        byte[] bytes = new byte[buffer.getInt(entry + 4)];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(offset + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static boolean isCurrent(File source, File indexFile) {
+        if (!indexFile.exists() || indexFile.length() < HEADER_BYTES) {
+            return false;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(indexFile, "r")) {
+            return raf.readInt() == MAGIC && raf.readLong() == source.length() && raf.readLong() == source.lastModified();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    // Each entry is {answer, question, question, ...}; entries without both are skipped
+    private static List<String[]> parse(File source) throws IOException {
+        List<String[]> entries = new ArrayList<>();
+        List<String> questions = new ArrayList<>();
+        StringBuilder answer = null;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(source), StandardCharsets.UTF_8))) {
+            String line;
+            while (true) {
+                line = reader.readLine();
+                String trimmed = line != null ? line.trim() : "";
+                boolean newQuestion = trimmed.startsWith("Q:") && answer != null;
+                if (line == null || trimmed.isEmpty() || newQuestion) {
+                    if (answer != null && !questions.isEmpty()) {
+                        questions.add(0, answer.toString().trim());
+                        entries.add(questions.toArray(new String[0]));
+                    }
+                    questions.clear();
+                    answer = null;
+                    if (line == null) {
+                        break;
+                    }
+                }
+                if (trimmed.startsWith("#")) {
+                    continue;
+                }
+                if (trimmed.startsWith("Q:")) {
+                    questions.add(trimmed.substring(2).trim());
+                } else if (trimmed.startsWith("A:")) {
+                    answer = new StringBuilder(trimmed.substring(2).trim());
+                } else if (answer != null && !trimmed.isEmpty()) {
+                    answer.append(' ').append(trimmed);
+                }
+            }
+        }
+        return entries;
+    }
+
+    private static byte[] compile(List<String[]> entries, long sourceLength, long sourceModified) throws IOException {
+        // term -> postings as {doc, tf} pairs, in document order; sorted so the file is stable
+        TreeMap<String, List<int[]>> postings = new TreeMap<>();
+        List<int[]> docs = new ArrayList<>();
+        long totalLength = 0;
+        for (int answer = 0; answer < entries.size(); answer++) {
+            String[] entry = entries.get(answer);
+            for (int q = 1; q < entry.length; q++) {
+                List<String> terms = tokenize(entry[q]);
+                int doc = docs.size();
+                docs.add(new int[]{terms.size(), answer});
+                totalLength += terms.size();
+                Map<String, Integer> tf = new HashMap<>();
+                for (String term : terms) {
+                    Integer count = tf.get(term);
+                    tf.put(term, count == null ? 1 : count + 1);
+                }
+                for (Map.Entry<String, Integer> term : tf.entrySet()) {
+                    List<int[]> list = postings.get(term.getKey());
+                    if (list == null) {
+                        list = new ArrayList<>();
+                        postings.put(term.getKey(), list);
+                    }
+                    list.add(new int[]{doc, term.getValue()});
+                }
+            }
+        }
+
+        ByteArrayOutputStream termsBytes = new ByteArrayOutputStream();
+        DataOutputStream terms = new DataOutputStream(termsBytes);
+        ByteArrayOutputStream postingBytes = new ByteArrayOutputStream();
+        DataOutputStream postingOut = new DataOutputStream(postingBytes);
+        int postingIndex = 0;
+        for (Map.Entry<String, List<int[]>> term : postings.entrySet()) {
+            byte[] bytes = term.getKey().getBytes(StandardCharsets.UTF_8);
+            terms.writeShort(bytes.length);
+            terms.write(bytes);
+            terms.writeInt(term.getValue().size());
+            terms.writeInt(postingIndex);
+            for (int[] posting : term.getValue()) {
+                postingOut.writeInt(posting[0]);
+                postingOut.writeInt(posting[1]);
+            }
+            postingIndex += term.getValue().size();
+        }
+
+        ByteArrayOutputStream answerText = new ByteArrayOutputStream();
+        List<int[]> answerRefs = new ArrayList<>();
+        for (String[] entry : entries) {
+            byte[] bytes = entry[0].getBytes(StandardCharsets.UTF_8);
+            answerRefs.add(new int[]{answerText.size(), bytes.length});
+            answerText.write(bytes);
+        }
+
+        int termsOffset = HEADER_BYTES;
+        int postingsStart = termsOffset + termsBytes.size();
+        int docsStart = postingsStart + postingBytes.size();
+        int answersStart = docsStart + docs.size() * DOC_BYTES;
+        int answerTextStart = answersStart + answerRefs.size() * ANSWER_BYTES;
+
+        ByteArrayOutputStream fileBytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(fileBytes);
+        out.writeInt(MAGIC);
+        out.writeLong(sourceLength);
+        out.writeLong(sourceModified);
+        out.writeInt(docs.size());
+        out.writeInt(entries.size());
+        out.writeInt(postings.size());
+        out.writeFloat(docs.isEmpty() ? 1f : Math.max(1f, (float) totalLength / docs.size()));
+        out.writeInt(termsOffset);
+        out.writeInt(postingsStart);
+        out.writeInt(docsStart);
+        out.writeInt(answersStart);
+        termsBytes.writeTo(out);
+        postingBytes.writeTo(out);
+        for (int[] doc : docs) {
+            out.writeInt(doc[0]);
+            out.writeInt(doc[1]);
+        }
+        for (int[] ref : answerRefs) {
+            out.writeInt(answerTextStart + ref[0]);
+            out.writeInt(ref[1]);
+        }
+        answerText.writeTo(out);
+        out.flush();
+        return fileBytes.toByteArray();
+    }
+}
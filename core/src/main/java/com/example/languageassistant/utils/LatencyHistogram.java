@@ -0,0 +1,102 @@
+package com.example.languageassistant.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram with log-linear buckets: values below 32 are exact and larger
+ * values fall into 16 buckets per power of two, so percentiles are within about 6%. Recording is
+ * a few atomic increments and never allocates, which keeps it cheap enough to leave on.
+ *
+ * Values are in whatever unit the caller records, e.g. microseconds.
+ */
+public class LatencyHistogram {
+
+    private static final int EXACT = 32;
+    private static final int SUB_BUCKETS = 16;
+    private static final int MAX_BITS = 40; // Larger values are clamped
+    private static final int BUCKETS = EXACT + (MAX_BITS - 4) * SUB_BUCKETS;
+    private static final long MAX_VALUE = (1L << MAX_BITS) - 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        } else if (value > MAX_VALUE) {
+            value = MAX_VALUE;
+        }
+        counts.incrementAndGet(indexOf(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+        long seen;
+        while (value > (seen = max.get()) && !max.compareAndSet(seen, value)) {
+            // Another thread raised the max; check again
+        }
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public long getMean() {
+        long n = count.get();
+        return n == 0 ? 0 : sum.get() / n;
+    }
+
+    /** The value at {@code percentile} (0-100), as the midpoint of its bucket; 0 when empty. */
+    public long getPercentile(double percentile) {
+        long n = count.get();
+        if (n == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(midpointOf(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        count.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+
+    /** e.g. {@code n=42 p50=120 p95=480 p99=910 max=1200}. */
+    public String summary() {
+        return "n=" + getCount() + " p50=" + getPercentile(50) + " p95=" + getPercentile(95)
+                + " p99=" + getPercentile(99) + " max=" + getMax();
+    }
+
+    static int indexOf(long value) {
+        if (value < EXACT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - 4; // value >>> shift is in [16, 32)
+        return EXACT + (shift - 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    static long midpointOf(int index) {
+        if (index < EXACT) {
+            return index;
+        }
+        int shift = (index - EXACT) / SUB_BUCKETS + 1;
+        long low = (long) ((index - EXACT) % SUB_BUCKETS + SUB_BUCKETS) << shift;
+        return low + (1L << shift) / 2;
+    }
+}
@@ -0,0 +1,207 @@
+package com.example.languageassistant.utils;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * Per-utterance latency tracing from the end of speech to the last slice sent to the glasses.
+ *
+ * {@link #begin()} gives an utterance a trace ID and each stage of its pipeline calls
+ * {@link #mark}. When the trace ends, each stage's latency after speech end goes into that
+ * stage's {@link LatencyHistogram}; a stage reached while the user was still speaking, as
+ * streaming captions are, counts as 0. A trace ends on {@link #end}, once nothing has been
+ * marked for {@link #IDLE_END_MS}, or when its slot is needed for a newer utterance.
+ *
+ * Traces live in a fixed ring of preallocated timestamp arrays, so marking never allocates and
+ * only takes a short uncontended lock.
+ */
+public final class LatencyTracer {
+
+    /** Passed around when no utterance is being traced; marking it does nothing. */
+    public static final int NO_TRACE = 0;
+    public static final long IDLE_END_MS = 3000;
+    private static final int MAX_TRACES = 16;
+
+    public enum Stage {
+        SPEECH_END(false),
+        RECOGNITION_RESULT(true),
+        TRANSLATION(true),
+        TRANSLITERATION(true),
+        GEMINI_FIRST_TOKEN(false),
+        GEMINI_LAST_TOKEN(true),
+        FIRST_SLICE_SENT(false),
+        LAST_SLICE_SENT(true);
+
+        // Whether a later mark replaces an earlier one, e.g. the last of several caption segments
+        final boolean keepsLast;
+
+        Stage(boolean keepsLast) {
+            this.keepsLast = keepsLast;
+        }
+    }
+
+    private static final Stage[] STAGES = Stage.values();
+    private static final LatencyHistogram[] histograms = new LatencyHistogram[STAGES.length];
+    private static final int[] traceIds = new int[MAX_TRACES];
+    private static final long[] startNanos = new long[MAX_TRACES];
+    private static final long[] lastMarkNanos = new long[MAX_TRACES];
+    private static final long[][] stageNanos = new long[MAX_TRACES][STAGES.length]; // 0 = not reached
+    private static final Object lock = new Object();
+    private static int nextTraceId = 1;
+    private static volatile boolean enabled = true;
+
+    static {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    private LatencyTracer() {
+    }
+
+    public static void setEnabled(boolean isEnabled) {
+        enabled = isEnabled;
+    }
+
+    /** Starts tracing an utterance, e.g. when speech begins, and returns its trace ID. */
+    public static int begin() {
+        if (!enabled) {
+            return NO_TRACE;
+        }
+        long now = System.nanoTime();
+        synchronized (lock) {
+            endIdleTraces(now);
+            int id = nextTraceId++;
+            if (nextTraceId <= NO_TRACE) {
+                nextTraceId = NO_TRACE + 1;
+            }
+            int slot = slotOf(id);
+            if (traceIds[slot] != NO_TRACE) {
+                endSlot(slot); // The ring wrapped; the oldest trace ends early
+            }
+            traceIds[slot] = id;
+            startNanos[slot] = now;
+            lastMarkNanos[slot] = now;
+            return id;
+        }
+    }
+
+    public static void mark(int traceId, Stage stage) {
+        if (traceId == NO_TRACE) {
+            return;
+        }
+        long now = System.nanoTime();
+        synchronized (lock) {
+            int slot = slotOf(traceId);
+            if (traceIds[slot] != traceId) {
+                return; // Already ended
+            }
+            long[] stages = stageNanos[slot];
+            if (stage.keepsLast || stages[stage.ordinal()] == 0) {
+                stages[stage.ordinal()] = now;
+            }
+            lastMarkNanos[slot] = now;
+        }
+    }
+
+    /** Ends a trace and records its stages. */
+    public static void end(int traceId) {
+        if (traceId == NO_TRACE) {
+            return;
+        }
+        synchronized (lock) {
+            int slot = slotOf(traceId);
+            if (traceIds[slot] == traceId) {
+                endSlot(slot);
+            }
+        }
+    }
+
+    public static LatencyHistogram getHistogram(Stage stage) {
+        return histograms[stage.ordinal()];
+    }
+
+    /** One line per stage with its p50, p95 and p99 in milliseconds. */
+    public static String getSummary() {
+        synchronized (lock) {
+            endIdleTraces(System.nanoTime());
+        }
+        StringBuilder summary = new StringBuilder();
+        for (Stage stage : STAGES) {
+            LatencyHistogram histogram = histograms[stage.ordinal()];
+            summary.append(stage.name().toLowerCase()).append(": n=").append(histogram.getCount())
+                    .append(" p50=").append(millis(histogram.getPercentile(50)))
+                    .append(" p95=").append(millis(histogram.getPercentile(95)))
+                    .append(" p99=").append(millis(histogram.getPercentile(99)))
+                    .append(" max=").append(millis(histogram.getMax())).append(" ms\n");
+        }
+        return summary.toString();
+    }
+
+    /** Writes the per-stage percentiles as CSV, replacing {@code file}. */
+    public static void exportTo(File file) throws IOException {
+        synchronized (lock) {
+            endIdleTraces(System.nanoTime());
+        }
+        try (Writer writer = new FileWriter(file)) {
+            writer.write("stage,count,p50_ms,p95_ms,p99_ms,max_ms,mean_ms\n");
+            for (Stage stage : STAGES) {
+                LatencyHistogram histogram = histograms[stage.ordinal()];
+                writer.write(stage.name().toLowerCase() + "," + histogram.getCount()
+                        + "," + millis(histogram.getPercentile(50)) + "," + millis(histogram.getPercentile(95))
+                        + "," + millis(histogram.getPercentile(99)) + "," + millis(histogram.getMax())
+                        + "," + millis(histogram.getMean()) + "\n");
+            }
+        }
+    }
+
+    public static void reset() {
+        synchronized (lock) {
+            Arrays.fill(traceIds, NO_TRACE);
+            for (long[] stages : stageNanos) {
+                Arrays.fill(stages, 0);
+            }
+            for (LatencyHistogram histogram : histograms) {
+                histogram.reset();
+            }
+        }
+    }
+
+    private static int slotOf(int traceId) {
+        return (traceId & Integer.MAX_VALUE) % MAX_TRACES;
+    }
+
+    private static void endIdleTraces(long now) {
+        long idleNanos = IDLE_END_MS * 1000000;
+        for (int slot = 0; slot < MAX_TRACES; slot++) {
+            if (traceIds[slot] != NO_TRACE && now - lastMarkNanos[slot] >= idleNanos) {
+                endSlot(slot);
+            }
+        }
+    }
+
+    // Histograms hold microseconds after speech end, or after begin() if speech end was not marked
+    private static void endSlot(int slot) {
+        long[] stages = stageNanos[slot];
+        long speechEnd = stages[Stage.SPEECH_END.ordinal()];
+        long origin = speechEnd != 0 ? speechEnd : startNanos[slot];
+        for (Stage stage : STAGES) {
+            long at = stages[stage.ordinal()];
+            if (at == 0) {
+                continue;
+            }
+            // Speech end itself is measured from begin(), i.e. how long the user spoke
+            long latency = stage == Stage.SPEECH_END ? at - startNanos[slot] : Math.max(0, at - origin);
+            histograms[stage.ordinal()].record(latency / 1000);
+        }
+        Arrays.fill(stages, 0);
+        traceIds[slot] = NO_TRACE;
+    }
+
+    private static String millis(long micros) {
+        return String.valueOf(Math.round(micros / 100.0) / 10.0);
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.languageassistant.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Greedy word wrapping of display text into lines no wider than the glasses display.
+ *
+ * Lines break at spaces; a newline always starts a new line, and a single word wider than the
+ * display is split between characters. Widths come from a {@link TextMeasurer}, which is a
+ * {@code Paint} on the device and a fixed-width stand-in in plain JVM code.
+ */
+public final class LineBreaker {
+
+    public interface TextMeasurer {
+        float measure(CharSequence text, int start, int end);
+    }
+
+    private LineBreaker() {
+    }
+
+    public static List<String> breakLines(CharSequence text, float maxWidth, TextMeasurer measurer) {
+        List<String> lines = new ArrayList<>();
+        breakLines(text, maxWidth, measurer, lines);
+        return lines;
+    }
+
+    /** Appends the lines of {@code text} to {@code out}. Empty text produces no lines. */
+    public static void breakLines(CharSequence text, float maxWidth, TextMeasurer measurer, List<String> out) {
+        int length = text.length();
+        int paragraphStart = 0;
+        while (paragraphStart < length) {
+            int paragraphEnd = paragraphStart;
+            while (paragraphEnd < length && text.charAt(paragraphEnd) != '\n') {
+                paragraphEnd++;
+            }
+            breakParagraph(text, paragraphStart, paragraphEnd, maxWidth, measurer, out);
+            paragraphStart = paragraphEnd + 1;
+        }
+    }
+
+    private static void breakParagraph(CharSequence text, int start, int end, float maxWidth, TextMeasurer measurer, List<String> out) {
+        int lineStart = skipSpaces(text, start, end);
+        while (lineStart < end) {
+            // Extend word by word while the line still fits
+            int lineEnd = lineStart;
+            int scan = lineStart;
+            while (scan < end) {
+                int wordEnd = scan;
+                while (wordEnd < end && text.charAt(wordEnd) != ' ') {
+                    wordEnd++;
+                }
+                if (measurer.measure(text, lineStart, wordEnd) > maxWidth) {
+                    break;
+                }
+                lineEnd = wordEnd;
+                scan = skipSpaces(text, wordEnd, end);
+            }
+
+            if (lineEnd == lineStart) {
+                // The first word alone is too wide; take as many characters as fit (at least one)
+                lineEnd = lineStart + 1;
+                while (lineEnd < end && text.charAt(lineEnd) != ' '
+                        && measurer.measure(text, lineStart, lineEnd + 1) <= maxWidth) {
+                    lineEnd++;
+                }
+                // Keep a combining mark or low surrogate with the character it belongs to
+                while (lineEnd < end && isContinuation(text.charAt(lineEnd))) {
+                    lineEnd++;
+                }
+            }
+            out.add(text.subSequence(lineStart, lineEnd).toString());
+            lineStart = skipSpaces(text, lineEnd, end);
+        }
+    }
+
+    private static int skipSpaces(CharSequence text, int pos, int end) {
+        while (pos < end && text.charAt(pos) == ' ') {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static boolean isContinuation(char c) {
+        int type = Character.getType(c);
+        return Character.isLowSurrogate(c) || type == Character.NON_SPACING_MARK
+                || type == Character.COMBINING_SPACING_MARK || type == Character.ENCLOSING_MARK;
+    }
+}
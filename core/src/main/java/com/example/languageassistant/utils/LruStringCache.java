@@ -0,0 +1,124 @@
+package com.example.languageassistant.utils;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Small in-memory LRU cache for string values, bounded by entry count and by the total number
+ * of characters held, with an optional time-to-live. Thread-safe.
+ */
+public class LruStringCache {
+
+    private static final class Entry {
+        final String value;
+        final long storedAtMs;
+
+        Entry(String value, long storedAtMs) {
+            this.value = value;
+            this.storedAtMs = storedAtMs;
+        }
+    }
+
+    private final int maxEntries;
+    private final long maxChars;
+    private final long ttlMs;
+    private final LinkedHashMap<String, Entry> map = new LinkedHashMap<>(64, 0.75f, true);
+    private long currentChars;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * @param ttlMs entries older than this are treated as missing; 0 or less disables expiry
+     */
+    public LruStringCache(int maxEntries, long maxChars, long ttlMs) {
+        this.maxEntries = maxEntries;
+        this.maxChars = maxChars;
+        this.ttlMs = ttlMs;
+    }
+
+    public synchronized String get(String key) {
+        Entry entry = map.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        if (isExpired(entry, System.currentTimeMillis())) {
+            removeEntry(key, entry);
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.value;
+    }
+
+    public void put(String key, String value) {
+        put(key, value, System.currentTimeMillis());
+    }
+
+    /** Stores a value with an explicit timestamp, used when promoting entries from disk. */
+    public synchronized void put(String key, String value, long storedAtMs) {
+        Entry previous = map.put(key, new Entry(value, storedAtMs));
+        if (previous != null) {
+            currentChars -= weight(key, previous.value);
+        }
+        currentChars += weight(key, value);
+        trim();
+    }
+
+    public synchronized void remove(String key) {
+        Entry entry = map.get(key);
+        if (entry != null) {
+            removeEntry(key, entry);
+        }
+    }
+
+    public synchronized void clear() {
+        map.clear();
+        currentChars = 0;
+    }
+
+    public synchronized int size() {
+        return map.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    private void trim() {
+        long now = System.currentTimeMillis();
+        Iterator<Map.Entry<String, Entry>> it = map.entrySet().iterator();
+        while (it.hasNext() && (map.size() > maxEntries || currentChars > maxChars)) {
+            Map.Entry<String, Entry> eldest = it.next();
+            it.remove();
+            currentChars -= weight(eldest.getKey(), eldest.getValue().value);
+            if (!isExpired(eldest.getValue(), now)) {
+                evictions++;
+            }
+        }
+    }
+
+    private void removeEntry(String key, Entry entry) {
+        map.remove(key);
+        currentChars -= weight(key, entry.value);
+    }
+
+    private boolean isExpired(Entry entry, long now) {
+        return ttlMs > 0 && now - entry.storedAtMs > ttlMs;
+    }
+
+    private static long weight(String key, String value) {
+        return key.length() + value.length();
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.languageassistant.utils;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Translates one recognized utterance into several target languages at once, e.g. for a tour
+ * group where listeners follow in different languages.
+ *
+ * The source text is split into sentences once and shared by every target. Each target has its
+ * own {@link ParallelTranslator}, so its own warm translator and in-flight limit, and its own
+ * {@link Sink}; a slow language pair only delays its own output. Time to the first sentence and
+ * to the whole utterance is recorded per target, in milliseconds.
+ */
+public class MultiTargetTranslator {
+
+    /** Where one target's translations go: the glasses, the screen, a file. */
+    public interface Sink {
+        /** A translated sentence, in order. */
+        void onSegment(int utterance, String text);
+
+        /** Every sentence of the utterance is done; {@code failure} is the first error, or null. */
+        default void onUtteranceComplete(int utterance, Exception failure) { }
+    }
+
+    public static final class Target {
+        private final String language;
+        private final ParallelTranslator translator;
+        private final Sink sink;
+        private final LatencyHistogram firstSegmentMs = new LatencyHistogram();
+        private final LatencyHistogram completeMs = new LatencyHistogram();
+        private volatile int failures;
+
+        Target(String language, ParallelTranslator translator, Sink sink) {
+            this.language = language;
+            this.translator = translator;
+            this.sink = sink;
+        }
+
+        public String getLanguage() {
+            return language;
+        }
+
+        public Sink getSink() {
+            return sink;
+        }
+
+        public LatencyHistogram getFirstSegmentMs() {
+            return firstSegmentMs;
+        }
+
+        public LatencyHistogram getCompleteMs() {
+            return completeMs;
+        }
+
+        public int getFailures() {
+            return failures;
+        }
+    }
+
+    private final int maxSegmentChars;
+    private final CopyOnWriteArrayList<Target> targets = new CopyOnWriteArrayList<>();
+    private int nextUtterance;
+
+    public MultiTargetTranslator() {
+        this(SentenceSplitter.DEFAULT_MAX_CHARS);
+    }
+
+    public MultiTargetTranslator(int maxSegmentChars) {
+        this.maxSegmentChars = maxSegmentChars;
+    }
+
+    public Target addTarget(String language, ParallelTranslator translator, Sink sink) {
+        Target target = new Target(language, translator, sink);
+        targets.add(target);
+        return target;
+    }
+
+    public void removeTarget(Target target) {
+        targets.remove(target);
+    }
+
+    public void clearTargets() {
+        targets.clear();
+    }
+
+    public List<Target> getTargets() {
+        return targets;
+    }
+
+    /** Sends {@code text} to every target and returns the utterance number passed to the sinks. */
+    public int translate(String text, String fromLanguage) {
+        final int utterance;
+        synchronized (this) {
+            utterance = ++nextUtterance;
+        }
+        List<String> pieces = SentenceSplitter.split(text, maxSegmentChars);
+        for (final Target target : targets) {
+            final long startNanos = System.nanoTime();
+            target.translator.translatePieces(pieces, fromLanguage, target.language, new ParallelTranslator.SegmentCallback() {
+                private boolean first = true;
+
+                @Override
+                public void onSegment(int index, String translatedText) {
+                    if (first) {
+                        first = false;
+                        target.firstSegmentMs.record(elapsedMs(startNanos));
+                    }
+                    target.sink.onSegment(utterance, translatedText);
+                }
+
+                @Override
+                public void onComplete(int segments, Exception failure) {
+                    target.completeMs.record(elapsedMs(startNanos));
+                    if (failure != null) {
+                        target.failures++;
+                    }
+                    target.sink.onUtteranceComplete(utterance, failure);
+                }
+            });
+        }
+        return utterance;
+    }
+
+    /** One line per target with its first-sentence and whole-utterance percentiles. */
+    public String getStats() {
+        StringBuilder stats = new StringBuilder();
+        for (Target target : targets) {
+            stats.append(target.language)
+                    .append(": first p50=").append(target.firstSegmentMs.getPercentile(50))
+                    .append(" p95=").append(target.firstSegmentMs.getPercentile(95))
+                    .append(" all p50=").append(target.completeMs.getPercentile(50))
+                    .append(" p95=").append(target.completeMs.getPercentile(95))
+                    .append(" ms failures=").append(target.failures).append('\n');
+        }
+        return stats.toString();
+    }
+
+    private static long elapsedMs(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1000000;
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.languageassistant.utils;
+
+import java.util.TreeMap;
+
+/**
+ * Re-orders segments that are processed concurrently (for example caption chunks that are
+ * translated in parallel) so they are released strictly in the order they were issued.
+ *
+ * Completions may race on several threads. One thread at a time hands segments to their
+ * consumers, so a segment may be released on the thread that completed a later one.
+ */
+public class OrderedSegmentBuffer {
+
+    public interface SegmentConsumer {
+        void onSegmentReady(int sequence, String segment);
+    }
+
+    private static final class Completed {
+        final String segment;
+        final SegmentConsumer consumer;
+
+        Completed(String segment, SegmentConsumer consumer) {
+            this.segment = segment;
+            this.consumer = consumer;
+        }
+    }
+
+    private final TreeMap<Integer, Completed> completed = new TreeMap<>();
+    private int nextToIssue = 0;
+    private int nextToRelease = 0;
+    private boolean releasing = false;
+
+    /** Reserves the next sequence number. */
+    public synchronized int nextSequence() {
+        return nextToIssue++;
+    }
+
+    /**
+     * Marks {@code sequence} as done and hands every segment that is now in order to its
+     * consumer. A null segment releases the slot without emitting anything, which is
+     * what callers use when processing of that segment failed.
+     */
+    public void complete(int sequence, String segment, SegmentConsumer consumer) {
+        synchronized (this) {
+            if (sequence < nextToRelease) {
+                return; // Stale result from before the last reset.
+            }
+            completed.put(sequence, new Completed(segment, consumer));
+            if (releasing) {
+                return; // The thread releasing now will reach it
+            }
+            releasing = true;
+        }
+        boolean done = false;
+        try {
+            while (true) {
+                Completed next;
+                int seq;
+                synchronized (this) {
+                    next = completed.remove(nextToRelease);
+                    if (next == null) {
+                        releasing = false;
+                        done = true;
+                        return;
+                    }
+                    seq = nextToRelease++;
+                }
+                if (next.segment != null) {
+                    next.consumer.onSegmentReady(seq, next.segment);
+                }
+            }
+        } finally {
+            if (!done) {
+                synchronized (this) {
+                    releasing = false; // A consumer threw; let the next completion carry on
+                }
+            }
+        }
+    }
+
+    public synchronized int pendingCount() {
+        return nextToIssue - nextToRelease;
+    }
+
+    /** Drops everything in flight; results for older sequence numbers are ignored. */
+    public synchronized void reset() {
+        completed.clear();
+        nextToRelease = nextToIssue;
+    }
+}
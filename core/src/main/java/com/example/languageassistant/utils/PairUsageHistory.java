@@ -0,0 +1,132 @@
+package com.example.languageassistant.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Remembers which language pairs are used, how often, how recently and which pair tends to
+ * follow which. Used to predict the pairs worth pre-downloading and to find the languages that
+ * have gone unused the longest.
+ *
+ * Serializes to a compact line-based string so it can live in SharedPreferences. Thread-safe.
+ */
+public class PairUsageHistory {
+
+    private static final long RECENCY_HALF_LIFE_MS = 7L * 24 * 60 * 60 * 1000;
+
+    private static final class PairStats {
+        int count;
+        long lastUsedMs;
+    }
+
+    private final Map<String, PairStats> pairs = new HashMap<>();
+    private final Map<String, Integer> transitions = new HashMap<>();
+    private String lastPair;
+
+    public static String pairKey(String fromLanguage, String toLanguage) {
+        return fromLanguage + ">" + toLanguage;
+    }
+
+    public static String[] splitPair(String pairKey) {
+        int sep = pairKey.indexOf('>');
+        return new String[]{pairKey.substring(0, sep), pairKey.substring(sep + 1)};
+    }
+
+    public synchronized void recordUse(String fromLanguage, String toLanguage, long nowMs) {
+        String key = pairKey(fromLanguage, toLanguage);
+        PairStats stats = pairs.get(key);
+        if (stats == null) {
+            stats = new PairStats();
+            pairs.put(key, stats);
+        }
+        stats.count++;
+        stats.lastUsedMs = nowMs;
+        if (lastPair != null && !lastPair.equals(key)) {
+            String transition = lastPair + "|" + key;
+            Integer count = transitions.get(transition);
+            transitions.put(transition, count == null ? 1 : count + 1);
+        }
+        lastPair = key;
+    }
+
+    /**
+     * Returns up to {@code limit} pairs most likely to be used after {@code currentPair}, best
+     * first. Pairs that historically followed the current one score highest, then frequently
+     * and recently used pairs.
+     */
+    public synchronized List<String> predictNext(String currentPair, int limit, long nowMs) {
+        final Map<String, Double> scores = new HashMap<>();
+        for (Map.Entry<String, PairStats> entry : pairs.entrySet()) {
+            if (entry.getKey().equals(currentPair)) {
+                continue;
+            }
+            PairStats stats = entry.getValue();
+            double age = Math.max(0, nowMs - stats.lastUsedMs);
+            double recency = Math.pow(0.5, age / RECENCY_HALF_LIFE_MS);
+            double score = Math.log1p(stats.count) * recency;
+            Integer followed = transitions.get(currentPair + "|" + entry.getKey());
+            if (followed != null) {
+                score += 2.0 * followed;
+            }
+            scores.put(entry.getKey(), score);
+        }
+        List<String> ranked = new ArrayList<>(scores.keySet());
+        Collections.sort(ranked, (a, b) -> Double.compare(scores.get(b), scores.get(a)));
+        return ranked.size() > limit ? new ArrayList<>(ranked.subList(0, limit)) : ranked;
+    }
+
+    /** Last time any pair involving {@code language} was used, or 0 if never. */
+    public synchronized long lastUsedLanguage(String language) {
+        long last = 0;
+        for (Map.Entry<String, PairStats> entry : pairs.entrySet()) {
+            String[] pair = splitPair(entry.getKey());
+            if (pair[0].equals(language) || pair[1].equals(language)) {
+                last = Math.max(last, entry.getValue().lastUsedMs);
+            }
+        }
+        return last;
+    }
+
+    public synchronized String serialize() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, PairStats> entry : pairs.entrySet()) {
+            sb.append('P').append('\t').append(entry.getKey()).append('\t')
+                    .append(entry.getValue().count).append('\t').append(entry.getValue().lastUsedMs).append('\n');
+        }
+        for (Map.Entry<String, Integer> entry : transitions.entrySet()) {
+            sb.append('T').append('\t').append(entry.getKey()).append('\t').append(entry.getValue()).append('\n');
+        }
+        if (lastPair != null) {
+            sb.append('L').append('\t').append(lastPair).append('\n');
+        }
+        return sb.toString();
+    }
+
+    public static PairUsageHistory deserialize(String serialized) {
+        PairUsageHistory history = new PairUsageHistory();
+        if (serialized == null) {
+            return history;
+        }
+        for (String line : serialized.split("\n")) {
+            String[] fields = line.split("\t");
+            try {
+                if (fields.length == 4 && fields[0].equals("P")) {
+                    PairStats stats = new PairStats();
+                    stats.count = Integer.parseInt(fields[2]);
+                    stats.lastUsedMs = Long.parseLong(fields[3]);
+                    history.pairs.put(fields[1], stats);
+                } else if (fields.length == 3 && fields[0].equals("T")) {
+                    history.transitions.put(fields[1], Integer.parseInt(fields[2]));
+                } else if (fields.length == 2 && fields[0].equals("L")) {
+                    history.lastPair = fields[1];
+                }
+            } catch (NumberFormatException e) {
+                // Skip a damaged line rather than losing the whole history
+            }
+        }
+        return history;
+    }
+}
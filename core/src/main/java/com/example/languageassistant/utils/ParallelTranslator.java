@@ -0,0 +1,160 @@
+package com.example.languageassistant.utils;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Translates text sentence by sentence, several sentences at a time, instead of as one call.
+ *
+ * The text is cut with {@link SentenceSplitter}; each piece is handed to the wrapped translator
+ * on {@code executor}, with at most {@code maxInFlight} pieces outstanding across all requests.
+ * Translated pieces are reassembled with an {@link OrderedSegmentBuffer} and released as soon
+ * as every piece before them is done, so the first sentence can be shown while later ones are
+ * still being translated. Callbacks run on {@code callbackExecutor}, in order.
+ *
+ * As a plain {@link TextTranslator} it reports the joined translation once all pieces are done.
+ */
+public class ParallelTranslator implements TextTranslator {
+
+    public static final int DEFAULT_MAX_IN_FLIGHT = 4;
+
+    public interface SegmentCallback {
+        /** A translated piece, in source order. Failed pieces are skipped. */
+        void onSegment(int index, String translatedText);
+
+        /** Every piece is done; {@code failure} is the first error, or null. */
+        void onComplete(int segments, Exception failure);
+    }
+
+    private final TextTranslator translator;
+    private final Executor executor;
+    private final Executor callbackExecutor;
+    private final int maxInFlight;
+    private final int maxSegmentChars;
+    private final ArrayDeque<Runnable> waiting = new ArrayDeque<>();
+    private int inFlight;
+    private long segmentsTranslated;
+    private int maxQueued;
+
+    public ParallelTranslator(TextTranslator translator, Executor executor, Executor callbackExecutor,
+                              int maxInFlight, int maxSegmentChars) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be at least 1");
+        }
+        this.translator = translator;
+        this.executor = executor;
+        this.callbackExecutor = callbackExecutor;
+        this.maxInFlight = maxInFlight;
+        this.maxSegmentChars = maxSegmentChars;
+    }
+
+    @Override
+    public void translate(String text, String fromLanguage, String toLanguage, Callback callback) {
+        final StringBuilder joined = new StringBuilder(text.length() + 16);
+        translateSegments(text, fromLanguage, toLanguage, new SegmentCallback() {
+            @Override
+            public void onSegment(int index, String translatedText) {
+                if (joined.length() > 0) {
+                    joined.append(' ');
+                }
+                joined.append(translatedText);
+            }
+
+            @Override
+            public void onComplete(int segments, Exception failure) {
+                if (failure != null) {
+                    callback.onFailure(failure);
+                } else {
+                    callback.onSuccess(joined.toString());
+                }
+            }
+        });
+    }
+
+    public void translateSegments(String text, String fromLanguage, String toLanguage, SegmentCallback callback) {
+        translatePieces(SentenceSplitter.split(text, maxSegmentChars), fromLanguage, toLanguage, callback);
+    }
+
+    /** Like {@link #translateSegments} for text the caller already split, e.g. once for several targets. */
+    public void translatePieces(List<String> pieces, String fromLanguage, String toLanguage, SegmentCallback callback) {
+        final int count = pieces.size();
+        final OrderedSegmentBuffer ordered = new OrderedSegmentBuffer();
+        final AtomicInteger remaining = new AtomicInteger(count);
+        final AtomicReference<Exception> firstFailure = new AtomicReference<>();
+        // Released after the last piece, so onComplete follows every onSegment
+        final OrderedSegmentBuffer.SegmentConsumer release = (index, translated) -> {
+            if (index == count) {
+                callbackExecutor.execute(() -> callback.onComplete(count, firstFailure.get()));
+            } else {
+                callbackExecutor.execute(() -> callback.onSegment(index, translated));
+            }
+        };
+        for (int i = 0; i < count; i++) {
+            final int index = ordered.nextSequence();
+            final String piece = pieces.get(i);
+            submit(() -> translator.translate(piece, fromLanguage, toLanguage, new Callback() {
+                @Override
+                public void onSuccess(String translatedText) {
+                    finished();
+                    ordered.complete(index, translatedText, release);
+                    pieceDone();
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    finished();
+                    firstFailure.compareAndSet(null, e);
+                    ordered.complete(index, null, release);
+                    pieceDone();
+                }
+
+                private void pieceDone() {
+                    if (remaining.decrementAndGet() == 0) {
+                        ordered.complete(ordered.nextSequence(), "", release);
+                    }
+                }
+            }));
+        }
+        if (count == 0) {
+            ordered.complete(ordered.nextSequence(), "", release);
+        }
+    }
+
+    public int getMaxSegmentChars() {
+        return maxSegmentChars;
+    }
+
+    public synchronized String getStats() {
+        return "inFlight=" + inFlight + " queued=" + waiting.size() + " maxQueued=" + maxQueued
+                + " translated=" + segmentsTranslated;
+    }
+
+    private void submit(Runnable task) {
+        synchronized (this) {
+            if (inFlight >= maxInFlight) {
+                waiting.add(task);
+                maxQueued = Math.max(maxQueued, waiting.size());
+                return;
+            }
+            inFlight++;
+        }
+        executor.execute(task);
+    }
+
+    // A piece came back; start the next waiting one in its slot
+    private void finished() {
+        Runnable next;
+        synchronized (this) {
+            segmentsTranslated++;
+            next = waiting.poll();
+            if (next == null) {
+                inFlight--;
+                return;
+            }
+        }
+        executor.execute(next);
+    }
+}
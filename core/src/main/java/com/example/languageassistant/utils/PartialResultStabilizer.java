@@ -0,0 +1,128 @@
+package com.example.languageassistant.utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Turns the stream of partial hypotheses from SpeechRecognizer into a stable, append-only
+ * caption. A word is committed once it has stayed the same across {@code requiredAgreement}
+ * consecutive partials; the words after the committed prefix are the unstable tail, which is
+ * revised in place every time a new partial arrives.
+ *
+ * Not thread-safe. Recognition callbacks all arrive on the main thread.
+ */
+public class PartialResultStabilizer {
+
+    public static final int DEFAULT_REQUIRED_AGREEMENT = 2;
+
+    private final int requiredAgreement;
+    private final ArrayDeque<String[]> recentHypotheses = new ArrayDeque<>();
+    private String[] latestWords = new String[0];
+    private int committedWordCount = 0;
+
+    public PartialResultStabilizer() {
+        this(DEFAULT_REQUIRED_AGREEMENT);
+    }
+
+    public PartialResultStabilizer(int requiredAgreement) {
+        if (requiredAgreement < 1) {
+            throw new IllegalArgumentException("requiredAgreement must be >= 1");
+        }
+        this.requiredAgreement = requiredAgreement;
+    }
+
+    /**
+     * Feeds a partial hypothesis and returns the words that became stable because of it,
+     * joined by single spaces, or an empty string if nothing new was committed.
+     */
+    public String onPartial(String hypothesis) {
+        String[] words = splitWords(hypothesis);
+        latestWords = words;
+        recentHypotheses.addLast(words);
+        while (recentHypotheses.size() > requiredAgreement) {
+            recentHypotheses.removeFirst();
+        }
+        if (recentHypotheses.size() < requiredAgreement) {
+            return "";
+        }
+
+        // The last word of a partial is frequently still being spoken, so it never counts
+        // as stable until the final result arrives.
+        int stableCount = Math.max(0, words.length - 1);
+        Iterator<String[]> it = recentHypotheses.iterator();
+        while (it.hasNext()) {
+            stableCount = Math.min(stableCount, commonPrefixLength(words, it.next()));
+        }
+        return commitUpTo(words, stableCount);
+    }
+
+    /**
+     * Feeds the final recognition result and returns every word that was not committed yet.
+     * The stabilizer is reset afterwards, ready for the next utterance.
+     */
+    public String onFinal(String finalText) {
+        String[] words = splitWords(finalText);
+        String remainder = commitUpTo(words, words.length);
+        reset();
+        return remainder;
+    }
+
+    /** The part of the latest hypothesis that has not been committed yet. */
+    public String getUnstableTail() {
+        return joinWords(latestWords, committedWordCount, latestWords.length);
+    }
+
+    public int getCommittedWordCount() {
+        return committedWordCount;
+    }
+
+    public void reset() {
+        recentHypotheses.clear();
+        latestWords = new String[0];
+        committedWordCount = 0;
+    }
+
+    private String commitUpTo(String[] words, int stableCount) {
+        // Committed words have already been sent on; if the recognizer later revises them we
+        // keep going from the same word position rather than trying to retract anything.
+        if (stableCount <= committedWordCount) {
+            return "";
+        }
+        String newlyStable = joinWords(words, committedWordCount, stableCount);
+        committedWordCount = stableCount;
+        return newlyStable;
+    }
+
+    private static int commonPrefixLength(String[] a, String[] b) {
+        int max = Math.min(a.length, b.length);
+        int i = 0;
+        while (i < max && a[i].equals(b[i])) {
+            i++;
+        }
+        return i;
+    }
+
+    private static String[] splitWords(String text) {
+        if (text == null) {
+            return new String[0];
+        }
+        String trimmed = text.trim();
+        if (trimmed.isEmpty()) {
+            return new String[0];
+        }
+        return trimmed.split("\\s+");
+    }
+
+    private static String joinWords(String[] words, int from, int to) {
+        if (from >= to) {
+            return "";
+        }
+        List<String> slice = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            slice.add(words[i]);
+        }
+        return String.join(" ", slice);
+    }
+}
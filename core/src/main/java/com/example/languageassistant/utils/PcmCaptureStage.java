@@ -0,0 +1,216 @@
+package com.example.languageassistant.utils;
+
+/**
+ * Cuts captured PCM audio into speech segments.
+ *
+ * The capture thread calls {@link #write} with each buffer it reads; the processing thread calls
+ * {@link #process}, which takes whole frames from a {@link PcmRingBuffer}, runs them through a
+ * {@link VoiceActivityDetector} and reports each segment with its pre-roll. Offline, WAV samples
+ * can be pushed through {@link #feed} on one thread.
+ *
+ * All buffers are allocated up front and the {@link Segment} passed to the listener is reused, so
+ * steady-state processing allocates nothing. Listeners that keep the audio must copy it.
+ */
+public class PcmCaptureStage {
+
+    public interface SegmentListener {
+        /** Speech started; the segment holds the pre-roll and the onset so far. */
+        default void onSpeechStart(Segment segment) { }
+        /** Speech ended, or the segment reached its maximum length and speech continues in the next. */
+        void onSegment(Segment segment);
+    }
+
+    /** One stretch of speech. Valid only during the listener call. */
+    public static final class Segment {
+        private final short[] samples;
+        private int length;
+        private int id;
+        private long startSample;
+        private boolean cutAtMaxLength;
+
+        Segment(int capacity) {
+            samples = new short[capacity];
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        /** Samples {@code [0, getLength())} are the segment's audio. */
+        public short[] getSamples() {
+            return samples;
+        }
+
+        public int getLength() {
+            return length;
+        }
+
+        /** Position of the first sample in the captured stream. */
+        public long getStartSample() {
+            return startSample;
+        }
+
+        public long getEndSample() {
+            return startSample + length;
+        }
+
+        /** True when speech went on past the maximum length and continues in the next segment. */
+        public boolean isCutAtMaxLength() {
+            return cutAtMaxLength;
+        }
+
+        public short[] copySamples() {
+            short[] copy = new short[length];
+            System.arraycopy(samples, 0, copy, 0, length);
+            return copy;
+        }
+    }
+
+    private final VoiceActivityDetector detector;
+    private final SegmentListener listener;
+    private final PcmRingBuffer ring;
+    private final int frameSamples;
+    private final short[] frame;
+    // Recent audio outside speech, kept for the pre-roll of the next segment
+    private final short[] history;
+    private int historyEnd;
+    private int historyLength;
+    private final Segment segment;
+    private boolean inSegment;
+    private int nextSegmentId;
+    private long processedSamples;
+    private long frames;
+    private long segments;
+
+    public PcmCaptureStage(VoiceActivityDetector.Config config, SegmentListener listener) {
+        this.detector = new VoiceActivityDetector(config);
+        this.listener = listener;
+        frameSamples = config.frameSamples();
+        frame = new short[frameSamples];
+        int onsetSamples = config.framesFor(config.onsetMs) * frameSamples;
+        int preRollSamples = config.sampleRate * config.preRollMs / 1000;
+        history = new short[preRollSamples + onsetSamples];
+        segment = new Segment(Math.max(config.sampleRate * config.maxSegmentMs / 1000, history.length + frameSamples));
+        // About two seconds, so a stalled processing thread does not lose audio right away
+        ring = new PcmRingBuffer(Math.max(config.sampleRate * 2, frameSamples * 4));
+    }
+
+    public VoiceActivityDetector getDetector() {
+        return detector;
+    }
+
+    /** Capture thread: buffers samples for {@link #process}. Returns how many fit. */
+    public int write(short[] samples, int offset, int length) {
+        return ring.write(samples, offset, length);
+    }
+
+    /** Processing thread: handles every whole frame buffered so far and returns how many. */
+    public int process() {
+        int count = 0;
+        while (ring.available() >= frameSamples) {
+            ring.read(frame, 0, frameSamples);
+            processFrame();
+            count++;
+        }
+        return count;
+    }
+
+    /** Offline: writes and processes {@code samples} on the calling thread. */
+    public void feed(short[] samples, int offset, int length) {
+        int end = offset + length;
+        while (offset < end) {
+            // Only what fits, so a long recording is not counted as dropped audio
+            int count = Math.min(end - offset, ring.getCapacity() - ring.available());
+            offset += ring.write(samples, offset, count);
+            process();
+        }
+    }
+
+    /** Ends the segment in progress, e.g. when capture stops or a file ends. */
+    public void flush() {
+        if (inSegment) {
+            endSegment(false);
+        }
+        detector.reset();
+        historyLength = 0;
+    }
+
+    public boolean isInSpeech() {
+        return inSegment;
+    }
+
+    public long getDroppedSamples() {
+        return ring.getDroppedSamples();
+    }
+
+    public String getStats() {
+        return "frames=" + frames + " segments=" + segments + " buffered=" + ring.available()
+                + " dropped=" + ring.getDroppedSamples() + " noiseFloor=" + Math.round(detector.getNoiseFloor());
+    }
+
+    private void processFrame() {
+        frames++;
+        VoiceActivityDetector.Transition transition = detector.process(frame, 0, frameSamples);
+        processedSamples += frameSamples;
+        if (!inSegment) {
+            appendToHistory();
+            if (transition == VoiceActivityDetector.Transition.SPEECH_STARTED) {
+                startSegment();
+            }
+            return;
+        }
+        if (segment.length + frameSamples > segment.samples.length) {
+            // Too long to wait for a pause; the rest of the speech continues in a new segment
+            endSegment(true);
+            startContinuation();
+        }
+        System.arraycopy(frame, 0, segment.samples, segment.length, frameSamples);
+        segment.length += frameSamples;
+        if (transition == VoiceActivityDetector.Transition.SPEECH_ENDED) {
+            endSegment(false);
+        }
+    }
+
+    private void appendToHistory() {
+        int capacity = history.length;
+        for (int i = 0; i < frameSamples; i++) {
+            history[historyEnd] = frame[i];
+            historyEnd = historyEnd + 1 == capacity ? 0 : historyEnd + 1;
+        }
+        historyLength = Math.min(capacity, historyLength + frameSamples);
+    }
+
+    private void startSegment() {
+        int capacity = history.length;
+        int start = historyEnd - historyLength;
+        if (start < 0) {
+            start += capacity;
+        }
+        int first = Math.min(historyLength, capacity - start);
+        System.arraycopy(history, start, segment.samples, 0, first);
+        System.arraycopy(history, 0, segment.samples, first, historyLength - first);
+        segment.length = historyLength;
+        segment.startSample = processedSamples - historyLength;
+        segment.id = ++nextSegmentId;
+        segment.cutAtMaxLength = false;
+        historyLength = 0;
+        inSegment = true;
+        listener.onSpeechStart(segment);
+    }
+
+    private void startContinuation() {
+        segment.startSample = segment.getEndSample();
+        segment.length = 0;
+        segment.id = ++nextSegmentId;
+        segment.cutAtMaxLength = false;
+        inSegment = true;
+        listener.onSpeechStart(segment);
+    }
+
+    private void endSegment(boolean cutAtMaxLength) {
+        inSegment = false;
+        segments++;
+        segment.cutAtMaxLength = cutAtMaxLength;
+        listener.onSegment(segment);
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.languageassistant.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ring buffer of 16-bit PCM samples between one capture thread and one processing thread.
+ *
+ * The sample array is allocated once and neither side locks or allocates. When the reader falls
+ * behind, the writer drops the samples that do not fit instead of blocking, since a blocked
+ * capture thread loses audio anyway; the dropped samples are counted.
+ */
+public class PcmRingBuffer {
+
+    private final short[] samples;
+    private final int mask;
+    // Total samples written and read; their difference is what is buffered
+    private final AtomicLong writePosition = new AtomicLong();
+    private final AtomicLong readPosition = new AtomicLong();
+    private final AtomicLong droppedSamples = new AtomicLong();
+
+    /** The capacity is rounded up to a power of two. */
+    public PcmRingBuffer(int minCapacity) {
+        if (minCapacity <= 0 || minCapacity > (1 << 30)) {
+            throw new IllegalArgumentException("Capacity must be between 1 and 2^30");
+        }
+        int capacity = Integer.highestOneBit(minCapacity);
+        if (capacity < minCapacity) {
+            capacity <<= 1;
+        }
+        samples = new short[capacity];
+        mask = capacity - 1;
+    }
+
+    public int getCapacity() {
+        return samples.length;
+    }
+
+    /** Producer side. Returns how many samples were written; the rest are dropped. */
+    public int write(short[] src, int offset, int length) {
+        long write = writePosition.get();
+        int free = samples.length - (int) (write - readPosition.get());
+        int count = Math.min(free, length);
+        if (count < length) {
+            droppedSamples.addAndGet(length - count);
+        }
+        if (count <= 0) {
+            return 0;
+        }
+        int start = (int) write & mask;
+        int first = Math.min(count, samples.length - start);
+        System.arraycopy(src, offset, samples, start, first);
+        System.arraycopy(src, offset + first, samples, 0, count - first);
+        // Ordered store: the reader sees the samples before the new position
+        writePosition.lazySet(write + count);
+        return count;
+    }
+
+    /** Consumer side. Returns how many samples were read, at most {@code length}. */
+    public int read(short[] dst, int offset, int length) {
+        long read = readPosition.get();
+        int count = Math.min(length, (int) (writePosition.get() - read));
+        if (count <= 0) {
+            return 0;
+        }
+        int start = (int) read & mask;
+        int first = Math.min(count, samples.length - start);
+        System.arraycopy(samples, start, dst, offset, first);
+        System.arraycopy(samples, 0, dst, offset + first, count - first);
+        readPosition.lazySet(read + count);
+        return count;
+    }
+
+    /** Samples buffered and not yet read. */
+    public int available() {
+        return (int) (writePosition.get() - readPosition.get());
+    }
+
+    public long getDroppedSamples() {
+        return droppedSamples.get();
+    }
+
+    /** Only safe while neither thread is using the buffer. */
+    public void clear() {
+        readPosition.set(writePosition.get());
+    }
+}
@@ -0,0 +1,318 @@
+package com.example.languageassistant.utils;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One stage of a processing pipeline, e.g. translating the sentences of recognized speech
+ * before they are transliterated and sent to the glasses.
+ *
+ * Inputs wait in a bounded queue and are handed to the {@link Worker} on the stage's executor,
+ * at most {@code maxConcurrent} at a time. A worker may finish asynchronously, e.g. in a
+ * translator callback, and may emit any number of outputs. Outputs are passed downstream in
+ * input order and always on the stage's executor, so a downstream stage that blocks never stalls
+ * the thread that completed the work, such as the main thread running an ML Kit callback.
+ *
+ * When the queue is full the {@link OverloadPolicy} decides what happens to a new input, so a
+ * burst of input can never build up unbounded work. An input holds its concurrency slot until
+ * its outputs have been accepted downstream, so a full downstream queue backs up into this one.
+ */
+public class PipelineStage<I, O> {
+
+    public enum OverloadPolicy {
+        /** The offering thread waits for space; never use it for a stage fed from the main thread. */
+        BLOCK,
+        /** The oldest queued input is dropped to make room. */
+        DROP_OLDEST,
+        /** The new input is merged into the newest queued one with the stage's {@link Coalescer}. */
+        COALESCE
+    }
+
+    /** Where a stage sends its outputs: the next stage, or the end of the pipeline. */
+    public interface Sink<T> {
+        /** Returns false if the item was not accepted, e.g. because the stage stopped. */
+        boolean offer(T item);
+    }
+
+    public interface Worker<I, O> {
+        /** Processes {@code input} and finishes with {@link Output#done()} or {@link Output#fail}, on any thread. */
+        void process(I input, Output<O> output) throws Exception;
+    }
+
+    public interface Output<O> {
+        void emit(O output);
+
+        void done();
+
+        /** Finishes the input unsuccessfully; what was emitted before is still passed on. */
+        void fail(Exception e);
+    }
+
+    public interface Coalescer<I> {
+        /** Combines a queued input with a newer one into the single input that replaces it. */
+        I merge(I queued, I newer);
+    }
+
+    private static final class Queued<I> {
+        I input;
+        final long queuedAtNanos;
+
+        Queued(I input, long queuedAtNanos) {
+            this.input = input;
+            this.queuedAtNanos = queuedAtNanos;
+        }
+    }
+
+    private final String name;
+    private final int capacity;
+    private final OverloadPolicy policy;
+    private final Coalescer<I> coalescer;
+    private final int maxConcurrent;
+    private final Executor executor;
+    private final Worker<I, O> worker;
+    private volatile Sink<? super O> downstream;
+
+    private final ArrayDeque<Queued<I>> queue = new ArrayDeque<>();
+    // Started inputs in input order, until their outputs are passed on
+    private final ArrayDeque<Task> started = new ArrayDeque<>();
+    private boolean releasing;
+    private boolean stopped;
+
+    private final LatencyHistogram waitMicros = new LatencyHistogram();
+    private final LatencyHistogram serviceMicros = new LatencyHistogram();
+    private long offered;
+    private long processed;
+    private long dropped;
+    private long coalesced;
+    private long failures;
+    private int maxDepth;
+
+    public PipelineStage(String name, int capacity, OverloadPolicy policy, int maxConcurrent,
+                         Executor executor, Worker<I, O> worker) {
+        this(name, capacity, policy, null, maxConcurrent, executor, worker);
+    }
+
+    public PipelineStage(String name, int capacity, OverloadPolicy policy, Coalescer<I> coalescer,
+                         int maxConcurrent, Executor executor, Worker<I, O> worker) {
+        if (capacity < 1 || maxConcurrent < 1) {
+            throw new IllegalArgumentException("capacity and maxConcurrent must be at least 1");
+        }
+        if (policy == OverloadPolicy.COALESCE && coalescer == null) {
+            throw new IllegalArgumentException("COALESCE needs a coalescer");
+        }
+        this.name = name;
+        this.capacity = capacity;
+        this.policy = policy;
+        this.coalescer = coalescer;
+        this.maxConcurrent = maxConcurrent;
+        this.executor = executor;
+        this.worker = worker;
+    }
+
+    /** A fixed pool of daemon threads named after the stage. */
+    public static ExecutorService newExecutor(String name, int threads) {
+        final AtomicInteger count = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "Pipeline-" + name + "-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /** Connects the stage to the next one and returns {@code next}, so stages can be chained. */
+    public <R> PipelineStage<? super O, R> then(PipelineStage<? super O, R> next) {
+        downstream = next::offer;
+        return next;
+    }
+
+    /** Where the last stage's outputs go. */
+    public void setSink(Sink<? super O> sink) {
+        downstream = sink;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /** Queues {@code input}; returns false if it was refused because the stage stopped. */
+    public boolean offer(I input) {
+        synchronized (this) {
+            while (!stopped && queue.size() >= capacity) {
+                if (policy == OverloadPolicy.BLOCK) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        dropped++;
+                        return false;
+                    }
+                } else if (policy == OverloadPolicy.DROP_OLDEST) {
+                    queue.poll();
+                    dropped++;
+                } else {
+                    Queued<I> newest = queue.peekLast();
+                    newest.input = coalescer.merge(newest.input, input);
+                    offered++;
+                    coalesced++;
+                    return true;
+                }
+            }
+            if (stopped) {
+                return false;
+            }
+            queue.add(new Queued<>(input, System.nanoTime()));
+            offered++;
+            maxDepth = Math.max(maxDepth, queue.size());
+        }
+        startWaiting();
+        return true;
+    }
+
+    /** Drops every queued input; inputs already started still finish. */
+    public synchronized void clear() {
+        dropped += queue.size();
+        queue.clear();
+        notifyAll();
+    }
+
+    /** Drops queued inputs and refuses new ones; blocked producers return false. */
+    public synchronized void stop() {
+        stopped = true;
+        clear();
+    }
+
+    public synchronized int getQueueDepth() {
+        return queue.size();
+    }
+
+    public synchronized String getStats() {
+        return name + ": offered=" + offered + " queued=" + queue.size() + " maxQueued=" + maxDepth + " running=" + started.size()
+                + " done=" + processed + " dropped=" + dropped + " coalesced=" + coalesced + " failed=" + failures
+                + " waitMs p50=" + waitMicros.getPercentile(50) / 1000.0
+                + " serviceMs p50=" + serviceMicros.getPercentile(50) / 1000.0
+                + " p95=" + serviceMicros.getPercentile(95) / 1000.0;
+    }
+
+    private void startWaiting() {
+        while (true) {
+            final Task task;
+            synchronized (this) {
+                if (stopped || started.size() >= maxConcurrent || queue.isEmpty()) {
+                    return;
+                }
+                Queued<I> next = queue.poll();
+                task = new Task(next.input);
+                started.add(task);
+                waitMicros.record((task.startNanos - next.queuedAtNanos) / 1000);
+                notifyAll(); // Room for a blocked producer
+            }
+            executor.execute(task);
+        }
+    }
+
+    private final class Task implements Runnable, Output<O> {
+        private final I input;
+        private final long startNanos = System.nanoTime();
+        // Guarded by the stage
+        private final ArrayDeque<O> outputs = new ArrayDeque<>();
+        private boolean done;
+
+        Task(I input) {
+            this.input = input;
+        }
+
+        @Override
+        public void run() {
+            try {
+                worker.process(input, this);
+            } catch (Exception e) {
+                fail(e);
+            }
+        }
+
+        @Override
+        public void emit(O output) {
+            synchronized (PipelineStage.this) {
+                if (done) {
+                    return;
+                }
+                outputs.add(output);
+            }
+            scheduleRelease();
+        }
+
+        @Override
+        public void done() {
+            finish(false);
+        }
+
+        @Override
+        public void fail(Exception e) {
+            finish(true);
+        }
+
+        private void finish(boolean failed) {
+            synchronized (PipelineStage.this) {
+                if (done) {
+                    return;
+                }
+                done = true;
+                processed++;
+                if (failed) {
+                    failures++;
+                }
+                serviceMicros.record((System.nanoTime() - startNanos) / 1000);
+            }
+            scheduleRelease();
+        }
+    }
+
+    private void scheduleRelease() {
+        synchronized (this) {
+            if (releasing) {
+                return; // The running release will reach it
+            }
+            releasing = true;
+        }
+        executor.execute(this::release);
+    }
+
+    // Passes outputs on in input order; one release runs at a time
+    private void release() {
+        boolean freedSlot = false;
+        try {
+            while (true) {
+                O next;
+                synchronized (this) {
+                    Task head = started.peek();
+                    if (head == null || (head.outputs.isEmpty() && !head.done)) {
+                        releasing = false;
+                        break;
+                    }
+                    if (head.outputs.isEmpty()) {
+                        started.poll();
+                        freedSlot = true;
+                        continue;
+                    }
+                    next = head.outputs.poll();
+                }
+                Sink<? super O> sink = downstream;
+                if (sink != null) {
+                    sink.offer(next); // May wait for room downstream
+                }
+            }
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                failures++;
+                releasing = false;
+            }
+            scheduleRelease();
+        }
+        if (freedSlot) {
+            startWaiting();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.languageassistant.utils;
+
+/**
+ * Decides how soon continuous listening starts the next recognizer session after one ends.
+ *
+ * A result restarts at once and clears any backoff. Silence (no match or speech timeout)
+ * restarts at once a few times and then slows down a little, so a quiet room does not spin the
+ * recognizer. A busy recognizer backs off exponentially and, if it stays busy, asks for a fresh
+ * recognizer instance. Other errors such as network failures back off exponentially from a
+ * longer base, and missing permissions stop listening altogether.
+ */
+public class RecognizerRestartPolicy {
+
+    public enum Outcome { RESULT, SILENCE, BUSY, ERROR, FATAL }
+
+    public static final class Decision {
+        public final long delayMs;
+        public final boolean recreateRecognizer;
+        public final boolean stop;
+
+        Decision(long delayMs, boolean recreateRecognizer, boolean stop) {
+            this.delayMs = delayMs;
+            this.recreateRecognizer = recreateRecognizer;
+            this.stop = stop;
+        }
+    }
+
+    static final int FREE_SILENT_RESTARTS = 3;
+    static final long SILENCE_STEP_MS = 250;
+    static final long MAX_SILENCE_DELAY_MS = 1000;
+    static final long BUSY_BASE_MS = 100;
+    static final long MAX_BUSY_DELAY_MS = 3200;
+    static final int BUSY_BEFORE_RECREATE = 3;
+    static final long ERROR_BASE_MS = 500;
+    static final long MAX_ERROR_DELAY_MS = 10000;
+
+    private int silentInRow;
+    private int busyInRow;
+    private int errorsInRow;
+
+    public synchronized Decision onSessionEnded(Outcome outcome) {
+        switch (outcome) {
+            case RESULT:
+                silentInRow = 0;
+                busyInRow = 0;
+                errorsInRow = 0;
+                return new Decision(0, false, false);
+            case SILENCE:
+                busyInRow = 0;
+                errorsInRow = 0;
+                silentInRow++;
+                long extra = silentInRow - FREE_SILENT_RESTARTS;
+                return new Decision(extra <= 0 ? 0 : Math.min(MAX_SILENCE_DELAY_MS, extra * SILENCE_STEP_MS), false, false);
+            case BUSY:
+                busyInRow++;
+                boolean recreate = busyInRow % BUSY_BEFORE_RECREATE == 0;
+                return new Decision(exponential(BUSY_BASE_MS, busyInRow, MAX_BUSY_DELAY_MS), recreate, false);
+            case ERROR:
+                errorsInRow++;
+                return new Decision(exponential(ERROR_BASE_MS, errorsInRow, MAX_ERROR_DELAY_MS), true, false);
+            default:
+                return new Decision(0, false, true);
+        }
+    }
+
+    public synchronized void reset() {
+        silentInRow = 0;
+        busyInRow = 0;
+        errorsInRow = 0;
+    }
+
+    private static long exponential(long base, int attempt, long max) {
+        int shift = Math.min(attempt - 1, 20);
+        return Math.min(max, base << shift);
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.languageassistant.utils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Transliteration rules for one Indic script, parsed from a table file in {@code res/raw}.
+ *
+ * Each rule line is {@code class<TAB>native<TAB>latin<TAB>key}: the rule class (see the
+ * constants below), the native text it matches, the Latin display form and an ISO 15919 join
+ * key. Rules of two scripts with the same class and key are the same letter, which is how
+ * script-to-script tables are derived. {@code F<TAB>key<TAB>substitute} lines name the letter
+ * to use when this script lacks one (Tamil has no aspirates, for example), and {@code @name
+ * value} lines carry script properties. A Latin column of {@code -} means "no output".
+ */
+public final class ScriptTable {
+
+    public static final char VOWEL = 'V';
+    public static final char CONSONANT = 'C';
+    public static final char VOWEL_SIGN = 'M';
+    public static final char VIRAMA = 'X';
+    public static final char NUKTA = 'N';
+    public static final char SIGN = 'O';
+    public static final char DIGIT = 'D';
+    public static final char PUNCTUATION = 'P';
+
+    public static final class Rule {
+        public final char ruleClass;
+        public final String nativeText;
+        public final String latin;
+        public final String key;
+
+        Rule(char ruleClass, String nativeText, String latin, String key) {
+            this.ruleClass = ruleClass;
+            this.nativeText = nativeText;
+            this.latin = latin;
+            this.key = key;
+        }
+    }
+
+    private final String scriptName;
+    private final List<String> languages;
+    private final boolean schwaDeletion;
+    private final List<Rule> rules;
+    private final Map<String, Rule> rulesByClassAndKey = new HashMap<>();
+    private final Map<String, String> fallbackKeys;
+
+    private ScriptTable(String scriptName, List<String> languages, boolean schwaDeletion, List<Rule> rules, Map<String, String> fallbackKeys) {
+        this.scriptName = scriptName;
+        this.languages = languages;
+        this.schwaDeletion = schwaDeletion;
+        this.rules = rules;
+        this.fallbackKeys = fallbackKeys;
+        for (Rule rule : rules) {
+            // The first rule for a letter is its canonical (precomposed) spelling
+            String classAndKey = rule.ruleClass + rule.key;
+            if (!rulesByClassAndKey.containsKey(classAndKey)) {
+                rulesByClassAndKey.put(classAndKey, rule);
+            }
+        }
+    }
+
+    public static ScriptTable parse(InputStream in) throws IOException {
+        return parse(new InputStreamReader(in, StandardCharsets.UTF_8));
+    }
+
+    public static ScriptTable parse(Reader reader) throws IOException {
+        String scriptName = null;
+        List<String> languages = Collections.emptyList();
+        boolean schwaDeletion = false;
+        List<Rule> rules = new ArrayList<>();
+        Map<String, String> fallbackKeys = new HashMap<>();
+
+        BufferedReader lines = new BufferedReader(reader);
+        String line;
+        int lineNumber = 0;
+        while ((line = lines.readLine()) != null) {
+            lineNumber++;
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            if (line.startsWith("@")) {
+                int space = line.indexOf(' ');
+                String name = space < 0 ? line.substring(1) : line.substring(1, space);
+                String value = space < 0 ? "" : line.substring(space + 1).trim();
+                if (name.equals("script")) {
+                    scriptName = value;
+                } else if (name.equals("languages")) {
+                    languages = Arrays.asList(value.split("\\s+"));
+                } else if (name.equals("schwa_deletion")) {
+                    schwaDeletion = Boolean.parseBoolean(value);
+                }
+                continue;
+            }
+            String[] fields = line.split("\t");
+            if (fields.length == 3 && fields[0].equals("F")) {
+                fallbackKeys.put(fields[1], fields[2]);
+            } else if (fields.length == 4 && fields[0].length() == 1) {
+                String latin = fields[2].equals("-") ? "" : fields[2];
+                rules.add(new Rule(fields[0].charAt(0), fields[1], latin, fields[3]));
+            } else {
+                throw new IOException("Malformed transliteration rule at line " + lineNumber + ": " + line);
+            }
+        }
+        if (scriptName == null) {
+            throw new IOException("Transliteration table has no @script header");
+        }
+        return new ScriptTable(scriptName, languages, schwaDeletion, rules, fallbackKeys);
+    }
+
+    public String getScriptName() {
+        return scriptName;
+    }
+
+    public List<String> getLanguages() {
+        return languages;
+    }
+
+    /** Whether a word-final consonant drops its inherent vowel when romanized (Hindi). */
+    public boolean hasSchwaDeletion() {
+        return schwaDeletion;
+    }
+
+    public List<Rule> getRules() {
+        return rules;
+    }
+
+    /**
+     * Finds this script's rule for the letter identified by {@code ruleClass} and {@code key},
+     * following the fallback substitutions if the script has no such letter.
+     */
+    public Rule findEquivalent(char ruleClass, String key) {
+        String current = key;
+        for (int hops = 0; current != null && hops < 4; hops++) {
+            Rule rule = rulesByClassAndKey.get(ruleClass + current);
+            if (rule != null) {
+                return rule;
+            }
+            current = fallbackKeys.get(current);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.languageassistant.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits text into sentences so they can be translated independently. A sentence longer than
+ * {@code maxChars} is split again at clause punctuation, and failing that at a space, so no
+ * single piece holds up the rest. Pieces are trimmed; joining them with spaces gives back the
+ * text up to whitespace.
+ */
+public final class SentenceSplitter {
+
+    public static final int DEFAULT_MAX_CHARS = 160;
+
+    private SentenceSplitter() {
+    }
+
+    public static List<String> split(String text) {
+        return split(text, DEFAULT_MAX_CHARS);
+    }
+
+    public static List<String> split(String text, int maxChars) {
+        List<String> pieces = new ArrayList<>();
+        if (text == null) {
+            return pieces;
+        }
+        int start = 0;
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            // A sentence ends at its punctuation, with any closing quotes, before whitespace;
+            // full-width punctuation is not followed by a space
+            if (isSentenceEnd(c) && (c >= '\u3000' || i + 1 == length || Character.isWhitespace(text.charAt(i + 1))
+                    || isClosing(text.charAt(i + 1)))) {
+                int end = i + 1;
+                while (end < length && isClosing(text.charAt(end))) {
+                    end++;
+                }
+                addSentence(text, start, end, maxChars, pieces);
+                start = end;
+                i = end - 1;
+            } else if (c == '\n') {
+                addSentence(text, start, i, maxChars, pieces);
+                start = i + 1;
+            }
+        }
+        addSentence(text, start, length, maxChars, pieces);
+        return pieces;
+    }
+
+    private static void addSentence(String text, int start, int end, int maxChars, List<String> pieces) {
+        while (start < end && Character.isWhitespace(text.charAt(start))) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(text.charAt(end - 1))) {
+            end--;
+        }
+        while (end - start > maxChars) {
+            int cut = lastBreak(text, start, start + maxChars);
+            pieces.add(text.substring(start, cut).trim());
+            start = cut;
+            while (start < end && Character.isWhitespace(text.charAt(start))) {
+                start++;
+            }
+        }
+        if (start < end) {
+            pieces.add(text.substring(start, end));
+        }
+    }
+
+    // The end of the last clause before limit, else the last space, else limit itself
+    private static int lastBreak(String text, int start, int limit) {
+        int space = -1;
+        for (int i = limit - 1; i > start; i--) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                if (isClauseEnd(text.charAt(i - 1))) {
+                    return i;
+                }
+                if (space < 0) {
+                    space = i;
+                }
+            }
+        }
+        return space > 0 ? space : limit;
+    }
+
+    private static boolean isSentenceEnd(char c) {
+        switch (c) {
+            case '.':
+            case '!':
+            case '?':
+            case '।': // Devanagari danda
+            case '॥': // Double danda
+            case '。':
+            case '！':
+            case '？':
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isClauseEnd(char c) {
+        return c == ',' || c == ';' || c == ':' || c == '،' || c == '、' || c == '—';
+    }
+
+    private static boolean isClosing(char c) {
+        return c == '"' || c == '\'' || c == ')' || c == '”' || c == '’' || c == '»';
+    }
+}
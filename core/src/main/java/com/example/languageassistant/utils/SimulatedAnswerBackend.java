@@ -0,0 +1,116 @@
+package com.example.languageassistant.utils;
+
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local stand-in for Gemini. It streams a canned answer word by word with configurable delays,
+ * so request management can be exercised offline and slow or stuck backends can be reproduced.
+ *
+ * Every call waits {@code firstTokenDelayMs} before the first word and {@code tokenDelayMs}
+ * between words. With probability {@code stallProbability} a call stalls for an extra
+ * {@code stallDelayMs} before its first word, which models the long tail of a remote API.
+ */
+public class SimulatedAnswerBackend implements AnswerBackend {
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "SimulatedAnswerBackend");
+        t.setDaemon(true);
+        return t;
+    });
+    private final Random random;
+    private final AtomicInteger callCount = new AtomicInteger();
+    private volatile long firstTokenDelayMs;
+    private volatile long tokenDelayMs;
+    private volatile double stallProbability = 0;
+    private volatile long stallDelayMs = 0;
+
+    public SimulatedAnswerBackend(long firstTokenDelayMs, long tokenDelayMs, long seed) {
+        this.firstTokenDelayMs = firstTokenDelayMs;
+        this.tokenDelayMs = tokenDelayMs;
+        this.random = new Random(seed);
+    }
+
+    public SimulatedAnswerBackend setDelays(long firstTokenDelayMs, long tokenDelayMs) {
+        this.firstTokenDelayMs = firstTokenDelayMs;
+        this.tokenDelayMs = tokenDelayMs;
+        return this;
+    }
+
+    public SimulatedAnswerBackend setStalls(double probability, long delayMs) {
+        this.stallProbability = probability;
+        this.stallDelayMs = delayMs;
+        return this;
+    }
+
+    /** Number of upstream calls made so far, to check that duplicates were merged. */
+    public int getCallCount() {
+        return callCount.get();
+    }
+
+    /** The text every call streams back for {@code question}. */
+    public static String answerFor(String question) {
+        return "Simulated answer to: " + question;
+    }
+
+    @Override
+    public Call ask(String question, Listener listener) {
+        callCount.incrementAndGet();
+        final String[] words = answerFor(question).split(" ");
+        long delay = firstTokenDelayMs;
+        synchronized (random) {
+            if (random.nextDouble() < stallProbability) {
+                delay += stallDelayMs;
+            }
+        }
+
+        final SimulatedCall call = new SimulatedCall();
+        Runnable streamWords = new Runnable() {
+            private int index = 0;
+
+            @Override
+            public void run() {
+                if (call.cancelled) {
+                    return;
+                }
+                if (index == words.length) {
+                    listener.onComplete();
+                    return;
+                }
+                listener.onDelta(index == 0 ? words[0] : " " + words[index]);
+                index++;
+                synchronized (call) {
+                    if (!call.cancelled) {
+                        call.next = scheduler.schedule(this, tokenDelayMs, TimeUnit.MILLISECONDS);
+                    }
+                }
+            }
+        };
+        synchronized (call) {
+            // Holding the lock keeps the first step from rescheduling before this assignment
+            call.next = scheduler.schedule(streamWords, delay, TimeUnit.MILLISECONDS);
+        }
+        return call;
+    }
+
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private static final class SimulatedCall implements Call {
+        volatile boolean cancelled = false;
+        ScheduledFuture<?> next;
+
+        @Override
+        public synchronized void cancel() {
+            cancelled = true;
+            if (next != null) {
+                next.cancel(false);
+            }
+        }
+    }
+}
@@ -0,0 +1,324 @@
+package com.example.languageassistant.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
+
+/**
+ * In-JVM stand-in for the glasses, for exercising and load-testing the display path without
+ * hardware.
+ *
+ * Scroll images share a link of {@code bytesPerSecond}: each one is delivered once the images
+ * before it have gone through, and acknowledged {@code ackLatencyMs} after that. The link can
+ * be dropped on demand, after a given number of images, or at random with a seeded
+ * {@link Random}; losses depend only on the order of images, never on timing, so a run can be
+ * reproduced exactly. While the link is down images are lost and control has to be requested
+ * again once it is back.
+ *
+ * Every call is captured as a {@link Frame}, and the simulated scroll view tracks which image
+ * is in each slot, so tests can assert on what the glasses would show.
+ *
+ * @param <I> image type; {@code imageBytes} gives the size each image takes on the link
+ */
+public class SimulatedGlassesTransport<I> implements GlassesTransport<I> {
+
+    public enum FrameType { LAYOUT, SCROLL_CONFIG, IMAGE, CLEAR }
+
+    /** One call received from the app. */
+    public static final class Frame<I> {
+        public final FrameType type;
+        public final I image; // IMAGE only
+        public final int sliceIndex;
+        public final boolean scrollFirst;
+        public final long receivedAtMs;
+        private volatile long deliveredAtMs = -1;
+        private volatile boolean lost;
+
+        Frame(FrameType type, I image, int sliceIndex, boolean scrollFirst, long receivedAtMs) {
+            this.type = type;
+            this.image = image;
+            this.sliceIndex = sliceIndex;
+            this.scrollFirst = scrollFirst;
+            this.receivedAtMs = receivedAtMs;
+        }
+
+        /** When the image finished crossing the link, or -1 while in transit or if it was lost. */
+        public long getDeliveredAtMs() {
+            return deliveredAtMs;
+        }
+
+        public boolean isLost() {
+            return lost;
+        }
+    }
+
+    private final ToIntFunction<I> imageBytes;
+    private final long bytesPerSecond;
+    private final long ackLatencyMs;
+    private final Random random;
+    private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+    // Runs deliveries, acks and events in order on one thread
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "SimulatedGlasses");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final List<Frame<I>> frames = new ArrayList<>();
+    private boolean available = true;
+    private boolean connected = true;
+    private boolean controlled = false;
+    private int linkEpoch = 0; // Bumped on every disconnect; images from an older epoch are lost
+    private long linkFreeAtMs = 0;
+    private double dropProbability = 0;
+    private long disconnectAfterImages = -1;
+    private long reconnectAfterMs = -1;
+    private Object[] slots = new Object[0];
+
+    private long imagesReceived;
+    private long imagesDelivered;
+    private long imagesLost;
+    private long bytesSent;
+    private long disconnects;
+
+    public SimulatedGlassesTransport(ToIntFunction<I> imageBytes, long bytesPerSecond, long ackLatencyMs, long seed) {
+        if (bytesPerSecond <= 0) {
+            throw new IllegalArgumentException("bytesPerSecond must be > 0");
+        }
+        this.imageBytes = imageBytes;
+        this.bytesPerSecond = bytesPerSecond;
+        this.ackLatencyMs = ackLatencyMs;
+        this.random = new Random(seed);
+    }
+
+    /** Each image independently drops the link with {@code probability}, drawn from the seeded random. */
+    public synchronized void setDropProbability(double probability) {
+        dropProbability = probability;
+    }
+
+    /** Drops the link when the {@code images}-th image from now arrives; -1 cancels. */
+    public synchronized void disconnectAfterImages(long images) {
+        disconnectAfterImages = images < 0 ? -1 : imagesReceived + images;
+    }
+
+    /** How long the link stays down after a scripted or random drop; -1 keeps it down. */
+    public synchronized void setReconnectAfterMs(long delayMs) {
+        reconnectAfterMs = delayMs;
+    }
+
+    public synchronized void disconnect() {
+        if (!connected) {
+            return;
+        }
+        connected = false;
+        linkEpoch++;
+        disconnects++;
+        linkFreeAtMs = 0;
+        boolean hadControl = controlled;
+        controlled = false;
+        dispatch(listener -> {
+            listener.onLinkStatusChanged(false);
+            if (hadControl) {
+                listener.onControlLost();
+            }
+        });
+        if (reconnectAfterMs >= 0) {
+            scheduler.schedule(this::reconnect, reconnectAfterMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public synchronized void reconnect() {
+        if (connected) {
+            return;
+        }
+        connected = true;
+        dispatch(listener -> listener.onLinkStatusChanged(true));
+    }
+
+    public synchronized void setAvailable(boolean isAvailable) {
+        if (available == isAvailable) {
+            return;
+        }
+        available = isAvailable;
+        dispatch(listener -> listener.onAvailabilityChanged(isAvailable));
+    }
+
+    @Override
+    public synchronized boolean isAvailable() {
+        return available;
+    }
+
+    @Override
+    public synchronized boolean isControlled() {
+        return controlled;
+    }
+
+    @Override
+    public synchronized boolean requestControl(int timeoutMs) {
+        if (!available || !connected) {
+            return false;
+        }
+        if (!controlled) {
+            controlled = true;
+            dispatch(Listener::onControlGained);
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized void releaseControl() {
+        if (controlled) {
+            controlled = false;
+            dispatch(Listener::onControlLost);
+        }
+    }
+
+    @Override
+    public synchronized void setScrollLayout() {
+        frames.add(new Frame<>(FrameType.LAYOUT, null, 0, false, nowMs()));
+        Arrays.fill(slots, null);
+    }
+
+    @Override
+    public synchronized void configureScroll(int sliceHeight, int lowestLineShowing, int maxLinesShowing, int scrollSpeed) {
+        frames.add(new Frame<>(FrameType.SCROLL_CONFIG, null, maxLinesShowing, false, nowMs()));
+        slots = new Object[maxLinesShowing];
+    }
+
+    @Override
+    public synchronized void sendScrollImage(I image, int sliceIndex, boolean scrollFirst) {
+        long now = nowMs();
+        Frame<I> frame = new Frame<>(FrameType.IMAGE, image, sliceIndex, scrollFirst, now);
+        frames.add(frame);
+        imagesReceived++;
+        if (connected && (imagesReceived == disconnectAfterImages
+                || (dropProbability > 0 && random.nextDouble() < dropProbability))) {
+            disconnectAfterImages = -1;
+            disconnect();
+        }
+        if (!connected) {
+            lose(frame);
+            return;
+        }
+        int bytes = imageBytes.applyAsInt(image);
+        bytesSent += bytes;
+        linkFreeAtMs = Math.max(now, linkFreeAtMs) + bytes * 1000L / bytesPerSecond;
+        final int epoch = linkEpoch;
+        scheduler.schedule(() -> deliver(frame, epoch), linkFreeAtMs - now, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void clearDisplay() {
+        frames.add(new Frame<>(FrameType.CLEAR, null, 0, false, nowMs()));
+        Arrays.fill(slots, null);
+    }
+
+    @Override
+    public boolean reportsAcks() {
+        return true;
+    }
+
+    @Override
+    public void addListener(Listener listener) {
+        listeners.addIfAbsent(listener);
+    }
+
+    @Override
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /** A copy of every frame received so far, oldest first. */
+    public synchronized List<Frame<I>> getFrames() {
+        return new ArrayList<>(frames);
+    }
+
+    public synchronized void clearFrames() {
+        frames.clear();
+    }
+
+    /** Images in the scroll view's slots as delivered so far; index 0 is the bottom line. */
+    @SuppressWarnings("unchecked")
+    public synchronized List<I> getVisibleSlots() {
+        List<I> visible = new ArrayList<>(slots.length);
+        for (Object slot : slots) {
+            visible.add((I) slot);
+        }
+        return visible;
+    }
+
+    /** Waits until {@code count} images have been delivered or lost in total; false on timeout. */
+    public synchronized boolean awaitImages(long count, long timeoutMs) throws InterruptedException {
+        long deadline = nowMs() + timeoutMs;
+        while (imagesDelivered + imagesLost < count) {
+            long left = deadline - nowMs();
+            if (left <= 0) {
+                return false;
+            }
+            wait(left);
+        }
+        return true;
+    }
+
+    public synchronized String getStats() {
+        return "received=" + imagesReceived + " delivered=" + imagesDelivered + " lost=" + imagesLost
+                + " bytes=" + bytesSent + " disconnects=" + disconnects + " connected=" + connected
+                + " controlled=" + controlled;
+    }
+
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private synchronized void deliver(Frame<I> frame, int epoch) {
+        if (epoch != linkEpoch) {
+            lose(frame);
+            return;
+        }
+        frame.deliveredAtMs = nowMs();
+        imagesDelivered++;
+        if (frame.sliceIndex >= 0 && frame.sliceIndex < slots.length) {
+            if (frame.scrollFirst) {
+                // Everything moves up a line and the top line scrolls off
+                System.arraycopy(slots, 0, slots, 1, slots.length - 1);
+                slots[0] = null;
+            }
+            slots[frame.sliceIndex] = frame.image;
+        }
+        notifyAll();
+        scheduler.schedule(() -> {
+            for (Listener listener : listeners) {
+                listener.onImageAcked();
+            }
+        }, ackLatencyMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void lose(Frame<I> frame) {
+        frame.lost = true;
+        imagesLost++;
+        notifyAll();
+    }
+
+    private interface Event {
+        void deliver(Listener listener);
+    }
+
+    // Listeners hear events on the scheduler thread, in the order they happened
+    private void dispatch(Event event) {
+        scheduler.execute(() -> {
+            for (Listener listener : listeners) {
+                event.deliver(listener);
+            }
+        });
+    }
+
+    private static long nowMs() {
+        return System.nanoTime() / 1000000;
+    }
+}
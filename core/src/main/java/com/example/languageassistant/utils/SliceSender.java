@@ -0,0 +1,266 @@
+package com.example.languageassistant.utils;
+
+import java.util.ArrayDeque;
+
+/**
+ * Sends text slices to the glasses from its own thread, pacing them so the link is never
+ * flooded. At most {@code windowSize} slices are in flight; a slot frees up when the glasses
+ * acknowledge a slice, or, for links that do not report acks, once a timing model says the
+ * slice has been delivered. The model starts at {@code initialDeliveryMs} per slice and follows
+ * the measured ack latency when acks are available, so scrolling advances at the rate the
+ * glasses actually consume slices. A link that sends on another thread reports through the
+ * slice's {@link Transmission} when it really went out, so the latency is measured from there.
+ *
+ * {@link #enqueue} never blocks. Queue depth, in-flight count and send rate are exposed for
+ * monitoring.
+ *
+ * @param <S> the slice type, e.g. a rendered bitmap; the {@link SliceLink} knows how to send it
+ */
+public class SliceSender<S> {
+
+    public static final int DEFAULT_WINDOW_SIZE = 2;
+    public static final long DEFAULT_DELIVERY_MS = 150;
+    private static final int RATE_SAMPLES = 16;
+
+    public interface SliceLink<S> {
+        /**
+         * Sends the slice, or hands it on to be sent. A link that sends later calls
+         * {@link Transmission#onSent()} or {@link Transmission#onDropped()} once it does.
+         */
+        void sendSlice(S slice, int sliceIndex, boolean scrollFirst, Transmission transmission);
+
+        /** Called for slices that are dropped before being sent, e.g. to release them. */
+        void discardSlice(S slice);
+
+        /** Whether {@link SliceSender#onSliceAcked()} will be called for every sent slice. */
+        boolean reportsAcks();
+    }
+
+    private static final class Pending<S> {
+        final S slice;
+        final int sliceIndex;
+        final boolean scrollFirst;
+
+        Pending(S slice, int sliceIndex, boolean scrollFirst) {
+            this.slice = slice;
+            this.sliceIndex = sliceIndex;
+            this.scrollFirst = scrollFirst;
+        }
+    }
+
+    /** A slice holding a window slot until the glasses acknowledge it. */
+    public static final class Transmission {
+        private final SliceSender<?> sender;
+        // When the slice went out; until the link says so, when it was handed to the link
+        private long sentAtMs;
+
+        private Transmission(SliceSender<?> sender, long dispatchedAtMs) {
+            this.sender = sender;
+            this.sentAtMs = dispatchedAtMs;
+        }
+
+        /** The slice was just written to the glasses. */
+        public void onSent() {
+            synchronized (sender.lock) {
+                sentAtMs = System.currentTimeMillis();
+            }
+        }
+
+        /** The slice was dropped without being sent, so nothing will ack it. */
+        public void onDropped() {
+            synchronized (sender.lock) {
+                if (sender.inFlight.remove(this)) {
+                    sender.lock.notifyAll();
+                }
+            }
+        }
+    }
+
+    private final SliceLink<S> link;
+    private final int windowSize;
+    private final Object lock = new Object();
+    private final ArrayDeque<Pending<S>> queue = new ArrayDeque<>();
+    private final ArrayDeque<Transmission> inFlight = new ArrayDeque<>(); // Oldest first
+    private final long[] recentSendTimesMs = new long[RATE_SAMPLES];
+    private int recentSendCount = 0;
+    private double deliveryEstimateMs;
+    private Thread thread;
+    private boolean running = false;
+
+    private long sent;
+    private long acked;
+    private long ackTimeouts;
+    private long discarded;
+    private long sendErrors;
+
+    public SliceSender(SliceLink<S> link, int windowSize, long initialDeliveryMs) {
+        if (windowSize < 1) {
+            throw new IllegalArgumentException("windowSize must be >= 1");
+        }
+        this.link = link;
+        this.windowSize = windowSize;
+        this.deliveryEstimateMs = initialDeliveryMs;
+    }
+
+    public SliceSender(SliceLink<S> link) {
+        this(link, DEFAULT_WINDOW_SIZE, DEFAULT_DELIVERY_MS);
+    }
+
+    public void start() {
+        synchronized (lock) {
+            if (running) {
+                return;
+            }
+            running = true;
+            thread = new Thread(this::sendLoop, "SliceSender");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /** Stops the sender thread and discards whatever is still queued. */
+    public void stop() {
+        synchronized (lock) {
+            running = false;
+            lock.notifyAll();
+        }
+        clear();
+    }
+
+    /** Queues a slice for sending and returns immediately. */
+    public void enqueue(S slice, int sliceIndex, boolean scrollFirst) {
+        synchronized (lock) {
+            queue.addLast(new Pending<>(slice, sliceIndex, scrollFirst));
+            lock.notifyAll();
+        }
+    }
+
+    /** Drops every slice not yet sent, e.g. because the text they belong to was replaced. */
+    public void clear() {
+        ArrayDeque<Pending<S>> dropped;
+        synchronized (lock) {
+            dropped = new ArrayDeque<>(queue);
+            queue.clear();
+            discarded += dropped.size();
+        }
+        for (Pending<S> pending : dropped) {
+            link.discardSlice(pending.slice);
+        }
+    }
+
+    /** The glasses confirmed the oldest unacknowledged slice. */
+    public void onSliceAcked() {
+        synchronized (lock) {
+            Transmission oldest = inFlight.pollFirst();
+            if (oldest == null) {
+                return; // Already written off by the ack timeout
+            }
+            acked++;
+            long latency = System.currentTimeMillis() - oldest.sentAtMs;
+            deliveryEstimateMs = 0.8 * deliveryEstimateMs + 0.2 * latency;
+            lock.notifyAll();
+        }
+    }
+
+    public int getQueueDepth() {
+        synchronized (lock) {
+            return queue.size();
+        }
+    }
+
+    public int getInFlight() {
+        synchronized (lock) {
+            return inFlight.size();
+        }
+    }
+
+    /** Slices sent per second over the last few sends, or 0 before there are enough samples. */
+    public double getSendRate() {
+        synchronized (lock) {
+            int samples = Math.min(recentSendCount, RATE_SAMPLES);
+            if (samples < 2) {
+                return 0;
+            }
+            long newest = recentSendTimesMs[(recentSendCount - 1) % RATE_SAMPLES];
+            long oldest = recentSendTimesMs[(recentSendCount - samples) % RATE_SAMPLES];
+            return newest == oldest ? 0 : (samples - 1) * 1000.0 / (newest - oldest);
+        }
+    }
+
+    public String getStats() {
+        synchronized (lock) {
+            return "queued=" + queue.size() + " inFlight=" + inFlight.size() + "/" + windowSize
+                    + " sent=" + sent + " acked=" + acked + " ackTimeouts=" + ackTimeouts
+                    + " discarded=" + discarded + " errors=" + sendErrors
+                    + " deliveryMs=" + (long) deliveryEstimateMs + " rate=" + Math.round(getSendRate() * 10) / 10.0 + "/s";
+        }
+    }
+
+    private void sendLoop() {
+        while (true) {
+            Pending<S> next;
+            Transmission transmission;
+            synchronized (lock) {
+                try {
+                    while (isCurrentThread()) {
+                        long now = System.currentTimeMillis();
+                        expireInFlight(now);
+                        if (!queue.isEmpty() && inFlight.size() < windowSize) {
+                            break;
+                        }
+                        if (queue.isEmpty()) {
+                            lock.wait();
+                        } else {
+                            lock.wait(Math.max(1, inFlight.peekFirst().sentAtMs + slotTimeoutMs() - now));
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    if (thread == Thread.currentThread()) {
+                        running = false;
+                    }
+                }
+                if (!isCurrentThread()) {
+                    return;
+                }
+                next = queue.pollFirst();
+                long now = System.currentTimeMillis();
+                transmission = new Transmission(this, now);
+                inFlight.addLast(transmission);
+                recentSendTimesMs[recentSendCount++ % RATE_SAMPLES] = now;
+                sent++;
+            }
+            try {
+                link.sendSlice(next.slice, next.sliceIndex, next.scrollFirst, transmission);
+            } catch (RuntimeException e) {
+                synchronized (lock) {
+                    sendErrors++;
+                    inFlight.remove(transmission); // Never reached the glasses, so nothing will ack it
+                }
+            }
+        }
+    }
+
+    // A stop followed by a quick start must not leave two threads sending
+    private boolean isCurrentThread() {
+        return running && thread == Thread.currentThread();
+    }
+
+    // How long an in-flight slice holds its window slot
+    private long slotTimeoutMs() {
+        if (link.reportsAcks()) {
+            // Give a late ack plenty of time before assuming it was lost
+            return Math.max(1000, (long) (4 * deliveryEstimateMs));
+        }
+        return Math.max(1, (long) deliveryEstimateMs);
+    }
+
+    private void expireInFlight(long now) {
+        long timeout = slotTimeoutMs();
+        while (!inFlight.isEmpty() && now - inFlight.peekFirst().sentAtMs >= timeout) {
+            inFlight.pollFirst();
+            if (link.reportsAcks()) {
+                ackTimeouts++;
+            }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.languageassistant.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Runs startup work so the first frame is not kept waiting.
+ *
+ * Independent initializations are started at once on a background executor and run in
+ * parallel. Work that the first frame does not need, including work that has to run on the
+ * main thread, is held until {@link #onFirstFrame()} and then started on the executor it was
+ * given. Every task is recorded in the {@link StartupTrace}; a task that throws is reported to
+ * the {@link FailureListener} and does not stop the others.
+ */
+public class StartupOrchestrator {
+
+    public static final String FIRST_FRAME = "first_frame";
+
+    /** Told about a startup task that threw; whatever needed it builds it lazily on first use instead. */
+    public interface FailureListener {
+        void onTaskFailed(String name, RuntimeException error);
+    }
+
+    private static final class Deferred {
+        final String name;
+        final Executor executor;
+        final Runnable task;
+
+        Deferred(String name, Executor executor, Runnable task) {
+            this.name = name;
+            this.executor = executor;
+            this.task = task;
+        }
+    }
+
+    private final StartupTrace trace;
+    private final Executor background;
+    private final FailureListener failureListener;
+    private final List<Deferred> deferred = new ArrayList<>();
+    private boolean firstFrameDrawn;
+
+    public StartupOrchestrator(StartupTrace trace, Executor background, FailureListener failureListener) {
+        this.trace = trace;
+        this.background = background;
+        this.failureListener = failureListener;
+    }
+
+    public StartupTrace getTrace() {
+        return trace;
+    }
+
+    /** Starts {@code task} now on the background executor, alongside the other startup work. */
+    public void inBackground(String name, Runnable task) {
+        start(name, background, task);
+    }
+
+    /** Runs {@code task} on {@code executor} once the first frame is drawn, or now if it already was. */
+    public void afterFirstFrame(String name, Executor executor, Runnable task) {
+        synchronized (this) {
+            if (!firstFrameDrawn) {
+                deferred.add(new Deferred(name, executor, task));
+                return;
+            }
+        }
+        start(name, executor, task);
+    }
+
+    /** Marks the first frame and starts the work that was waiting for it. */
+    public void onFirstFrame() {
+        List<Deferred> ready;
+        synchronized (this) {
+            if (firstFrameDrawn) {
+                return;
+            }
+            firstFrameDrawn = true;
+            ready = new ArrayList<>(deferred);
+            deferred.clear();
+        }
+        trace.milestone(FIRST_FRAME);
+        for (Deferred task : ready) {
+            start(task.name, task.executor, task.task);
+        }
+    }
+
+    private void start(String name, Executor executor, Runnable task) {
+        final long queuedMs = trace.now();
+        executor.execute(() -> {
+            long startMs = trace.now();
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                failureListener.onTaskFailed(name, e);
+            } finally {
+                trace.record(name, startMs, trace.now() - startMs);
+                long waitedMs = startMs - queuedMs;
+                if (waitedMs > 0) {
+                    trace.record(name + " (queued)", queuedMs, waitedMs);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.languageassistant.utils;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cold-start trace: where the time goes between process start and the app being usable.
+ *
+ * Each piece of startup work is recorded as a span with the thread it ran on, and points such
+ * as the first frame are recorded as milestones. Times are in milliseconds since the process
+ * started, so they line up with what the user waited for, including the time before the trace
+ * was created.
+ */
+public final class StartupTrace {
+
+    private static final class Span {
+        final String name;
+        final String thread;
+        final long startMs;
+        final long durationMs;
+
+        Span(String name, String thread, long startMs, long durationMs) {
+            this.name = name;
+            this.thread = thread;
+            this.startMs = startMs;
+            this.durationMs = durationMs;
+        }
+    }
+
+    private final long originNanos;
+    private final List<Span> spans = new ArrayList<>();
+    private final Map<String, Long> milestones = new LinkedHashMap<>();
+
+    /** @param sinceProcessStartMs how long the process had been running when the trace was created */
+    public StartupTrace(long sinceProcessStartMs) {
+        this.originNanos = System.nanoTime() - sinceProcessStartMs * 1000000;
+    }
+
+    /** Milliseconds since the process started. */
+    public long now() {
+        return (System.nanoTime() - originNanos) / 1000000;
+    }
+
+    public synchronized void record(String name, long startMs, long durationMs) {
+        spans.add(new Span(name, Thread.currentThread().getName(), startMs, durationMs));
+    }
+
+    /** Records the first time {@code name} is reached; later calls are ignored. */
+    public synchronized void milestone(String name) {
+        if (!milestones.containsKey(name)) {
+            milestones.put(name, now());
+        }
+    }
+
+    /** When {@code name} was reached, or -1 if it has not been yet. */
+    public synchronized long getMilestoneMs(String name) {
+        Long at = milestones.get(name);
+        return at != null ? at : -1;
+    }
+
+    /** Milestones in the order they were reached, then spans by start time. */
+    public synchronized String getSummary() {
+        StringBuilder summary = new StringBuilder();
+        for (Map.Entry<String, Long> milestone : milestones.entrySet()) {
+            summary.append(milestone.getKey()).append(" @").append(milestone.getValue()).append("ms\n");
+        }
+        for (Span span : sortedSpans()) {
+            summary.append("  ").append(span.name).append(" @").append(span.startMs).append("ms +")
+                    .append(span.durationMs).append("ms [").append(span.thread).append("]\n");
+        }
+        return summary.toString();
+    }
+
+    /** Writes spans and milestones as CSV: kind, name, thread, start and duration in ms. */
+    public void exportTo(File file) throws IOException {
+        String csv;
+        synchronized (this) {
+            StringBuilder out = new StringBuilder("kind,name,thread,start_ms,duration_ms\n");
+            for (Map.Entry<String, Long> milestone : milestones.entrySet()) {
+                out.append("milestone,").append(milestone.getKey()).append(",,").append(milestone.getValue()).append(",0\n");
+            }
+            for (Span span : sortedSpans()) {
+                out.append("span,").append(span.name).append(',').append(span.thread).append(',')
+                        .append(span.startMs).append(',').append(span.durationMs).append('\n');
+            }
+            csv = out.toString();
+        }
+        try (Writer writer = new FileWriter(file)) {
+            writer.write(csv);
+        }
+    }
+
+    private List<Span> sortedSpans() {
+        List<Span> sorted = new ArrayList<>(spans);
+        sorted.sort((a, b) -> Long.compare(a.startMs, b.startMs));
+        return sorted;
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.languageassistant.utils;
+
+/**
+ * Cuts a stream of text deltas (e.g. tokens from a streamed Gemini answer) into segments that
+ * end on a word or sentence boundary, so a half-received word is never shown.
+ *
+ * The first complete word is released immediately to get something on screen fast. After
+ * that, text is released at every sentence end, or at a word boundary once at least
+ * {@code minSegmentChars} are waiting, which keeps the number of display refreshes down.
+ * Concatenating every returned segment plus {@link #flush()} reproduces the input exactly.
+ *
+ * Not thread-safe.
+ */
+public class StreamingTextSegmenter {
+
+    public static final int DEFAULT_MIN_SEGMENT_CHARS = 16;
+
+    private final int minSegmentChars;
+    private final StringBuilder pending = new StringBuilder();
+    private boolean releasedAny = false;
+
+    public StreamingTextSegmenter() {
+        this(DEFAULT_MIN_SEGMENT_CHARS);
+    }
+
+    public StreamingTextSegmenter(int minSegmentChars) {
+        this.minSegmentChars = Math.max(1, minSegmentChars);
+    }
+
+    /**
+     * Adds a delta and returns the text that is now ready to display, including its trailing
+     * whitespace, or an empty string if nothing is ready yet.
+     */
+    public String append(CharSequence delta) {
+        if (delta == null || delta.length() == 0) {
+            return "";
+        }
+        pending.append(delta);
+
+        int sentenceEnd = -1;
+        int wordEnd = -1;
+        for (int i = pending.length() - 1; i > 0; i--) {
+            if (!Character.isWhitespace(pending.charAt(i))) {
+                continue;
+            }
+            if (wordEnd < 0 && !Character.isWhitespace(pending.charAt(i - 1))) {
+                wordEnd = i + 1;
+            }
+            if (isSentenceEnd(pending.charAt(i - 1))) {
+                sentenceEnd = i + 1;
+                break;
+            }
+        }
+
+        int cut;
+        if (sentenceEnd > 0) {
+            // Take any complete words after the sentence end along with it
+            cut = wordEnd > sentenceEnd ? wordEnd : sentenceEnd;
+        } else if (wordEnd > 0 && (!releasedAny || wordEnd >= minSegmentChars)) {
+            cut = wordEnd;
+        } else {
+            return "";
+        }
+        releasedAny = true;
+        String segment = pending.substring(0, cut);
+        pending.delete(0, cut);
+        return segment;
+    }
+
+    /** Returns whatever is still buffered, e.g. when the stream completes, and resets. */
+    public String flush() {
+        String rest = pending.toString();
+        reset();
+        return rest;
+    }
+
+    public void reset() {
+        pending.setLength(0);
+        releasedAny = false;
+    }
+
+    private static boolean isSentenceEnd(char c) {
+        switch (c) {
+            case '.':
+            case '!':
+            case '?':
+            case ':':
+            case ';':
+            case '\n':
+            case '।': // Devanagari danda
+            case '॥': // Double danda
+                return true;
+            default:
+                return false;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.languageassistant.utils;
+
+import java.io.IOException;
+
+/**
+ * Transliterates text that arrives in pieces, such as streamed translation or Gemini output,
+ * without waiting for the whole string.
+ *
+ * Each {@link #append} writes out everything whose transliteration is already certain and holds
+ * back the few characters at the end of the chunk that could still change: a consonant whose
+ * vowel sign or virama may arrive in the next chunk, or the start of a multi-character rule.
+ * After {@link #finish} the concatenated output is identical to transliterating the whole text
+ * in one call. A null transliterator passes text through unchanged.
+ *
+ * Not thread-safe; use one instance per stream. Buffers are reused, so steady-state appends
+ * allocate nothing.
+ */
+public final class StreamingTransliterator {
+
+    private final Transliterator transliterator;
+    private final Appendable sink;
+    private final StringBuilder pending = new StringBuilder(32);
+    private final StringBuilder output;
+    private boolean inWord = false;
+
+    public StreamingTransliterator(Transliterator transliterator, Appendable sink) {
+        this.transliterator = transliterator;
+        this.sink = sink;
+        // Write straight into a StringBuilder sink instead of staging through a copy
+        this.output = sink instanceof StringBuilder ? null : new StringBuilder(64);
+    }
+
+    public StreamingTransliterator append(CharSequence chunk) throws IOException {
+        if (chunk == null || chunk.length() == 0) {
+            return this;
+        }
+        if (transliterator == null) {
+            sink.append(chunk);
+            return this;
+        }
+        pending.append(chunk);
+        drain(false);
+        return this;
+    }
+
+    /** Writes out the held-back tail and resets the stream so the instance can be reused. */
+    public void finish() throws IOException {
+        if (transliterator != null) {
+            drain(true);
+        }
+        reset();
+    }
+
+    /** Discards held-back input without writing it, e.g. when the stream is cancelled. */
+    public void reset() {
+        pending.setLength(0);
+        inWord = false;
+    }
+
+    /** Number of input characters held back until the next chunk or {@link #finish}. */
+    public int pendingLength() {
+        return pending.length();
+    }
+
+    private void drain(boolean endOfInput) throws IOException {
+        StringBuilder out = output != null ? output : (StringBuilder) sink;
+        if (output != null) {
+            output.setLength(0);
+        }
+        long state = transliterator.transliterateChunk(pending, 0, pending.length(), out, endOfInput, inWord);
+        inWord = Transliterator.endsInWord(state);
+        pending.delete(0, Transliterator.consumedEnd(state));
+        if (output != null && output.length() > 0) {
+            sink.append(output);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.languageassistant.utils;
+
+/**
+ * Translates text from one language to another, asynchronously. The app's ML Kit translator
+ * implements it on the device; benchmarks and tests plug in stubs.
+ */
+public interface TextTranslator {
+
+    interface Callback {
+        void onSuccess(String translatedText);
+
+        void onFailure(Exception e);
+    }
+
+    /** Translates {@code text}; the callback may run on any thread, possibly before this returns. */
+    void translate(String text, String fromLanguage, String toLanguage, Callback callback);
+}
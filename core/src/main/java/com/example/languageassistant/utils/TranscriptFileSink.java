@@ -0,0 +1,83 @@
+package com.example.languageassistant.utils;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * {@link MultiTargetTranslator.Sink} that appends each translated utterance to a text file, one
+ * line per utterance. Writing happens on a background thread so sinks called on the main thread
+ * never wait on the disk. Utterances translated at the same time are kept on separate lines, and
+ * utterances that finish after {@link #close()} are dropped.
+ */
+public class TranscriptFileSink implements MultiTargetTranslator.Sink {
+
+    private final File file;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "TranscriptWriter");
+        t.setDaemon(true);
+        return t;
+    });
+    // The line of each utterance still being translated
+    private final Map<Integer, StringBuilder> lines = new HashMap<>();
+    private boolean closed = false;
+    private volatile int writeErrors;
+
+    public TranscriptFileSink(File file) {
+        this.file = file;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    public synchronized void onSegment(int utterance, String text) {
+        if (closed) {
+            return;
+        }
+        StringBuilder line = lines.get(utterance);
+        if (line == null) {
+            line = new StringBuilder();
+            lines.put(utterance, line);
+        } else {
+            line.append(' ');
+        }
+        line.append(text);
+    }
+
+    @Override
+    public synchronized void onUtteranceComplete(int utterance, Exception failure) {
+        StringBuilder line = lines.remove(utterance);
+        if (closed || line == null) {
+            return;
+        }
+        final String text = line.append('\n').toString();
+        writer.execute(() -> {
+            try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8))) {
+                out.write(text);
+            } catch (IOException e) {
+                writeErrors++; // The transcript is best effort; the other sinks carry on
+            }
+        });
+    }
+
+    public int getWriteErrors() {
+        return writeErrors;
+    }
+
+    /** Writes what is queued and stops the writer thread; later utterances are not written. */
+    public synchronized void close() {
+        closed = true;
+        lines.clear();
+        writer.shutdown();
+    }
+}
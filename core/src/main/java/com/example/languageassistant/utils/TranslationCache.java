@@ -0,0 +1,80 @@
+package com.example.languageassistant.utils;
+
+import java.io.File;
+import java.text.Normalizer;
+
+/**
+ * Two-tier cache of finished translations keyed by source language, target language and
+ * normalized source text.
+ *
+ * Entries live in a {@link TwoTierStringCache}: lookups check a bounded in-memory LRU first and
+ * then an {@link AppendOnlyLogStore} on disk, on the caller's thread, while writes to disk
+ * happen in the background so a translation callback never waits on I/O.
+ */
+public class TranslationCache {
+
+    public static final int DEFAULT_MEMORY_ENTRIES = 512;
+    public static final long DEFAULT_MEMORY_CHARS = 256 * 1024;
+    public static final long DEFAULT_DISK_BYTES = 4L * 1024 * 1024;
+    public static final long DEFAULT_MAX_AGE_MS = 30L * 24 * 60 * 60 * 1000; // 30 days
+
+    private final TwoTierStringCache store;
+
+    /**
+     * @param diskFile backing file for the persistent tier, or null for a memory-only cache
+     */
+    public TranslationCache(File diskFile, int memoryEntries, long memoryChars, long diskBytes, long maxAgeMs) {
+        this.store = new TwoTierStringCache("TranslationCacheWriter", memoryEntries, memoryChars, diskBytes, maxAgeMs);
+        if (diskFile != null) {
+            store.attachDisk(diskFile);
+        }
+    }
+
+    public TranslationCache(File diskFile) {
+        this(diskFile, DEFAULT_MEMORY_ENTRIES, DEFAULT_MEMORY_CHARS, DEFAULT_DISK_BYTES, DEFAULT_MAX_AGE_MS);
+    }
+
+    /** Returns the cached translation, or null if this text has not been translated yet. */
+    public String get(String fromLanguage, String toLanguage, String text) {
+        return store.get(key(fromLanguage, toLanguage, text));
+    }
+
+    public void put(String fromLanguage, String toLanguage, String text, String translation) {
+        if (translation == null) {
+            return;
+        }
+        store.put(key(fromLanguage, toLanguage, text), translation);
+    }
+
+    /**
+     * Normalizes text so trivially different transcriptions of the same phrase share an entry:
+     * Unicode NFC, trimmed, with internal whitespace collapsed to single spaces. Case is kept
+     * because it can change the translation (names, sentence starts).
+     */
+    public static String normalize(String text) {
+        String nfc = Normalizer.normalize(text, Normalizer.Form.NFC);
+        StringBuilder sb = new StringBuilder(nfc.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < nfc.length(); i++) {
+            char c = nfc.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = sb.length() > 0;
+            } else {
+                if (pendingSpace) {
+                    sb.append(' ');
+                    pendingSpace = false;
+                }
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    static String key(String fromLanguage, String toLanguage, String text) {
+        return fromLanguage + '\u0000' + toLanguage + '\u0000' + normalize(text);
+    }
+
+    public String getStats() {
+        return store.getStats();
+    }
+}
@@ -0,0 +1,223 @@
+package com.example.languageassistant.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compiled longest-match transliterator from one or more Indic scripts into a single target:
+ * either Latin or another Indic script.
+ *
+ * Romanization handles the abugida structure: a consonant carries an inherent "a" unless it is
+ * followed by a vowel sign (which replaces it) or a virama (which removes it, forming a
+ * conjunct), and scripts with schwa deletion drop it at the end of a word. Script-to-script
+ * conversion maps letters one to one through their shared ISO 15919 keys. Characters no rule
+ * matches, including Latin text and punctuation, are copied through unchanged.
+ *
+ * Instances are immutable and thread-safe; {@link #transliterate(CharSequence, int, int, StringBuilder)}
+ * allocates nothing beyond growing the caller's buffer.
+ */
+public final class Transliterator {
+
+    private static final byte CLASS_VOWEL = 0;
+    private static final byte CLASS_CONSONANT = 1;
+    private static final byte CLASS_VOWEL_SIGN = 2;
+    private static final byte CLASS_VIRAMA = 3;
+    private static final byte CLASS_NUKTA = 4;
+    private static final byte CLASS_OTHER = 5;
+    private static final String INHERENT_VOWEL = "a";
+
+    private static final ThreadLocal<StringBuilder> OUTPUT_BUFFER = new ThreadLocal<StringBuilder>() {
+        @Override
+        protected StringBuilder initialValue() {
+            return new StringBuilder(256);
+        }
+    };
+
+    private final CharTrie trie;
+    private final byte[] ruleClasses;
+    private final String[] ruleOutputs;
+    private final boolean[] ruleSchwaDeletion;
+    private final boolean romanizing;
+
+    private Transliterator(CharTrie trie, byte[] ruleClasses, String[] ruleOutputs, boolean[] ruleSchwaDeletion, boolean romanizing) {
+        this.trie = trie;
+        this.ruleClasses = ruleClasses;
+        this.ruleOutputs = ruleOutputs;
+        this.ruleSchwaDeletion = ruleSchwaDeletion;
+        this.romanizing = romanizing;
+    }
+
+    /** Builds a transliterator that romanizes every script in {@code sources}. */
+    public static Transliterator toLatin(List<ScriptTable> sources) {
+        CharTrie.Builder trie = new CharTrie.Builder();
+        List<Byte> classes = new ArrayList<>();
+        List<String> outputs = new ArrayList<>();
+        List<Boolean> schwa = new ArrayList<>();
+        for (ScriptTable source : sources) {
+            for (ScriptTable.Rule rule : source.getRules()) {
+                trie.put(rule.nativeText, outputs.size());
+                classes.add(classOf(rule.ruleClass));
+                outputs.add(rule.latin);
+                schwa.add(source.hasSchwaDeletion());
+            }
+        }
+        return compile(trie, classes, outputs, schwa, true);
+    }
+
+    /**
+     * Builds a transliterator that rewrites every script in {@code sources} into
+     * {@code target}. Letters the target has no equivalent for are left unchanged.
+     */
+    public static Transliterator toScript(List<ScriptTable> sources, ScriptTable target) {
+        CharTrie.Builder trie = new CharTrie.Builder();
+        List<Byte> classes = new ArrayList<>();
+        List<String> outputs = new ArrayList<>();
+        List<Boolean> schwa = new ArrayList<>();
+        for (ScriptTable source : sources) {
+            if (source == target) {
+                continue;
+            }
+            for (ScriptTable.Rule rule : source.getRules()) {
+                ScriptTable.Rule equivalent = target.findEquivalent(rule.ruleClass, rule.key);
+                String output;
+                if (equivalent != null) {
+                    output = equivalent.nativeText;
+                } else if (rule.ruleClass == ScriptTable.NUKTA) {
+                    output = ""; // Nukta has no meaning without a matching letter; drop it
+                } else {
+                    continue;
+                }
+                trie.put(rule.nativeText, outputs.size());
+                classes.add(CLASS_OTHER);
+                outputs.add(output);
+                schwa.add(false);
+            }
+        }
+        return compile(trie, classes, outputs, schwa, false);
+    }
+
+    private static Transliterator compile(CharTrie.Builder trie, List<Byte> classes, List<String> outputs, List<Boolean> schwa, boolean romanizing) {
+        byte[] classArray = new byte[classes.size()];
+        String[] outputArray = new String[outputs.size()];
+        boolean[] schwaArray = new boolean[schwa.size()];
+        for (int i = 0; i < classArray.length; i++) {
+            classArray[i] = classes.get(i);
+            outputArray[i] = outputs.get(i);
+            schwaArray[i] = schwa.get(i);
+        }
+        return new Transliterator(trie.build(), classArray, outputArray, schwaArray, romanizing);
+    }
+
+    private static byte classOf(char ruleClass) {
+        switch (ruleClass) {
+            case ScriptTable.VOWEL: return CLASS_VOWEL;
+            case ScriptTable.CONSONANT: return CLASS_CONSONANT;
+            case ScriptTable.VOWEL_SIGN: return CLASS_VOWEL_SIGN;
+            case ScriptTable.VIRAMA: return CLASS_VIRAMA;
+            case ScriptTable.NUKTA: return CLASS_NUKTA;
+            default: return CLASS_OTHER;
+        }
+    }
+
+    /**
+     * Transliterates {@code text} into a new String. Text containing nothing this
+     * transliterator handles is returned without copying.
+     */
+    public String transliterate(CharSequence text) {
+        if (!needsTransliteration(text)) {
+            return text.toString();
+        }
+        StringBuilder out = OUTPUT_BUFFER.get();
+        out.setLength(0);
+        transliterate(text, 0, text.length(), out);
+        return out.toString();
+    }
+
+    /** True if any character of {@code text} starts a rule. */
+    public boolean needsTransliteration(CharSequence text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (trie.isFirstChar(text.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Appends the transliteration of {@code text[start, end)} to {@code out}. */
+    public void transliterate(CharSequence text, int start, int end, StringBuilder out) {
+        transliterateChunk(text, start, end, out, true, false);
+    }
+
+    /**
+     * Core loop shared by the batch and streaming APIs. With {@code endOfInput} false it stops
+     * before the first position whose output could still change if more text were appended
+     * (a rule that may match a longer key, or a consonant whose following sign is not known
+     * yet), so a caller can carry the rest over to the next chunk.
+     *
+     * @param inWord whether the text before {@code start} ended inside a word
+     * @return the consumed end position and the in-word state, read with {@link #consumedEnd}
+     *         and {@link #endsInWord}
+     */
+    long transliterateChunk(CharSequence text, int start, int end, StringBuilder out, boolean endOfInput, boolean inWord) {
+        int i = start;
+        while (i < end) {
+            if (!endOfInput && trie.mayExtendPast(text, i, end)) {
+                break;
+            }
+            long match = trie.longestMatch(text, i, end);
+            if (match < 0) {
+                out.append(text.charAt(i++));
+                inWord = false;
+                continue;
+            }
+            int rule = CharTrie.matchValue(match);
+            int matchEnd = CharTrie.matchEnd(match);
+            if (!romanizing || ruleClasses[rule] != CLASS_CONSONANT) {
+                out.append(ruleOutputs[rule]);
+                i = matchEnd;
+                inWord = true;
+                continue;
+            }
+
+            // A nukta the table has no precomposed rule for is skipped
+            int next = matchEnd;
+            long following;
+            while (true) {
+                if (!endOfInput && (next >= end || trie.mayExtendPast(text, next, end))) {
+                    return pack(i, inWord); // What follows the consonant is not known yet
+                }
+                following = trie.longestMatch(text, next, end);
+                if (following < 0 || ruleClasses[CharTrie.matchValue(following)] != CLASS_NUKTA) {
+                    break;
+                }
+                next = CharTrie.matchEnd(following);
+            }
+
+            out.append(ruleOutputs[rule]);
+            i = next;
+            byte followingClass = following < 0 ? -1 : ruleClasses[CharTrie.matchValue(following)];
+            if (followingClass == CLASS_VOWEL_SIGN) {
+                out.append(ruleOutputs[CharTrie.matchValue(following)]);
+                i = CharTrie.matchEnd(following);
+            } else if (followingClass == CLASS_VIRAMA) {
+                i = CharTrie.matchEnd(following);
+            } else if (!(ruleSchwaDeletion[rule] && inWord && following < 0)) {
+                out.append(INHERENT_VOWEL);
+            }
+            inWord = true;
+        }
+        return pack(i, inWord);
+    }
+
+    static int consumedEnd(long state) {
+        return (int) (state >>> 1);
+    }
+
+    static boolean endsInWord(long state) {
+        return (state & 1) != 0;
+    }
+
+    private static long pack(int consumedEnd, boolean inWord) {
+        return ((long) consumedEnd << 1) | (inWord ? 1 : 0);
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.languageassistant.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide registry of the loaded script tables and the transliterators compiled from them,
+ * one per display language code. Tables are installed once; transliterators are compiled on
+ * first use and reused afterwards.
+ */
+public final class Transliterators {
+
+    public static final String LATIN_DISPLAY_CODE = "en";
+
+    private static volatile List<ScriptTable> tables;
+    private static final Map<String, Transliterator> byDisplayCode = new ConcurrentHashMap<>();
+
+    private Transliterators() {
+    }
+
+    public static synchronized void install(List<ScriptTable> scriptTables) {
+        tables = Collections.unmodifiableList(new ArrayList<>(scriptTables));
+        byDisplayCode.clear();
+    }
+
+    public static boolean isInstalled() {
+        return tables != null;
+    }
+
+    /**
+     * Returns the transliterator that renders text for {@code displayLanguageCode}: Latin for
+     * {@code "en"}, otherwise the script of the table that lists that language. Returns null if
+     * no table covers the code or nothing has been installed yet.
+     */
+    public static Transliterator forDisplayLanguage(String displayLanguageCode) {
+        List<ScriptTable> installed = tables;
+        if (installed == null || displayLanguageCode == null) {
+            return null;
+        }
+        String code = displayLanguageCode.toLowerCase();
+        Transliterator transliterator = byDisplayCode.get(code);
+        if (transliterator != null) {
+            return transliterator;
+        }
+        if (LATIN_DISPLAY_CODE.equals(code)) {
+            transliterator = Transliterator.toLatin(installed);
+        } else {
+            ScriptTable target = null;
+            for (ScriptTable table : installed) {
+                if (table.getLanguages().contains(code)) {
+                    target = table;
+                    break;
+                }
+            }
+            if (target == null) {
+                return null;
+            }
+            transliterator = Transliterator.toScript(installed, target);
+        }
+        Transliterator raced = byDisplayCode.putIfAbsent(code, transliterator);
+        return raced != null ? raced : transliterator;
+    }
+}
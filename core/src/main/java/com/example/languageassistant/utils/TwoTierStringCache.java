@@ -0,0 +1,144 @@
+package com.example.languageassistant.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * String cache with a bounded in-memory {@link LruStringCache} in front of an optional
+ * {@link AppendOnlyLogStore} on disk. {@link TranslationCache} and {@link AnswerCache} store
+ * their entries here under keys they normalize themselves.
+ *
+ * Lookups check memory first and then disk, both synchronously on the caller's thread, and disk
+ * hits are promoted into memory. Writes to disk happen on a background thread so callers never
+ * wait on I/O. If the disk store fails it is dropped and the cache keeps working from memory
+ * only.
+ */
+public class TwoTierStringCache {
+
+    private final LruStringCache memory;
+    private final long diskBytes;
+    private final long maxAgeMs;
+    private AppendOnlyLogStore disk;
+    private final ExecutorService diskWriter;
+
+    private long diskHits;
+    private long diskErrors;
+
+    /**
+     * @param writerThreadName name of the thread that writes to disk, e.g. "AnswerCacheWriter"
+     * @param maxAgeMs         entries older than this are treated as missing; 0 or less keeps them forever
+     */
+    public TwoTierStringCache(String writerThreadName, int memoryEntries, long memoryChars, long diskBytes, long maxAgeMs) {
+        this.memory = new LruStringCache(memoryEntries, memoryChars, maxAgeMs);
+        this.diskBytes = diskBytes;
+        this.maxAgeMs = maxAgeMs;
+        this.diskWriter = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, writerThreadName);
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Opens {@code diskFile} as the persistent tier. Entries cached before this stay memory
+     * only. Does nothing if the cache already has a file.
+     */
+    public void attachDisk(File diskFile) {
+        if (currentDisk() != null) {
+            return;
+        }
+        AppendOnlyLogStore store;
+        try {
+            // Opening reads the whole file, so it is done outside the lock
+            store = new AppendOnlyLogStore(diskFile, diskBytes, maxAgeMs);
+        } catch (IOException e) {
+            synchronized (this) {
+                diskErrors++;
+            }
+            return;
+        }
+        synchronized (this) {
+            if (disk == null) {
+                disk = store;
+                return;
+            }
+        }
+        try {
+            store.close();
+        } catch (IOException ignored) {
+            // Another file won the race; this one was never used.
+        }
+    }
+
+    /** Returns the value cached under {@code key} in either tier, or null. */
+    public String get(String key) {
+        String cached = memory.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        AppendOnlyLogStore store = currentDisk();
+        if (store == null) {
+            return null;
+        }
+        try {
+            cached = store.get(key);
+            if (cached != null) {
+                memory.put(key, cached, store.getTimestamp(key));
+                synchronized (this) {
+                    diskHits++;
+                }
+            }
+            return cached;
+        } catch (IOException e) {
+            dropDisk();
+            return null;
+        }
+    }
+
+    public void put(String key, String value) {
+        memory.put(key, value);
+        final AppendOnlyLogStore store = currentDisk();
+        if (store != null) {
+            diskWriter.execute(() -> {
+                try {
+                    store.put(key, value);
+                } catch (IOException e) {
+                    dropDisk();
+                }
+            });
+        }
+    }
+
+    /** Fraction of lookups answered from either tier, between 0 and 1. */
+    public synchronized double getHitRate() {
+        long lookups = memory.getHits() + memory.getMisses();
+        return lookups == 0 ? 0 : (double) (memory.getHits() + diskHits) / lookups;
+    }
+
+    public synchronized String getStats() {
+        long memoryHits = memory.getHits();
+        long lookups = memoryHits + memory.getMisses();
+        return "lookups=" + lookups + " memoryHits=" + memoryHits + " diskHits=" + diskHits
+                + " (" + (int) (getHitRate() * 100) + "% hit rate) memoryEntries=" + memory.size()
+                + " diskEntries=" + (disk == null ? 0 : disk.size())
+                + " evictions=" + memory.getEvictions() + " diskErrors=" + diskErrors;
+    }
+
+    private synchronized AppendOnlyLogStore currentDisk() {
+        return disk;
+    }
+
+    private synchronized void dropDisk() {
+        diskErrors++;
+        if (disk != null) {
+            try {
+                disk.close();
+            } catch (IOException ignored) {
+                // Already failing; nothing more to do.
+            }
+            disk = null;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.languageassistant.utils;
+
+/**
+ * Frame-by-frame voice activity detection from energy and zero-crossing rate.
+ *
+ * A frame is voiced when its energy is well above the tracked noise floor and its zero-crossing
+ * rate is low, as it is for vowels. Frames with a high crossing rate at lower energy look like
+ * fricatives ("s", "f"); they only keep an utterance going, so hiss alone never starts one.
+ * Speech starts after {@link Config#onsetMs} of voiced frames and ends after
+ * {@link Config#hangoverMs} without speech, so short pauses inside a sentence do not split it.
+ *
+ * Not thread-safe; one processing thread feeds it.
+ */
+public class VoiceActivityDetector {
+
+    public enum Transition { NONE, SPEECH_STARTED, SPEECH_ENDED }
+
+    public static class Config {
+        public int sampleRate = 16000;
+        public int frameMs = 20;
+        /** Voiced audio needed before a segment starts; shorter clicks are ignored. */
+        public int onsetMs = 60;
+        /** Silence needed before a segment ends. */
+        public int hangoverMs = 500;
+        /** Audio kept from before the onset, so the first syllable is not cut off. */
+        public int preRollMs = 200;
+        /** Longer speech is cut into segments so recognition does not wait for a pause. */
+        public int maxSegmentMs = 15000;
+        /** Voiced frames have at least this many times the noise floor energy. */
+        public double speechToNoiseRatio = 4.0;
+        /** Fricatives inside speech need this many times the noise floor energy. */
+        public double fricativeToNoiseRatio = 2.0;
+        /** Crossings per sample; voiced speech stays below it, fricatives and hiss go above. */
+        public double maxVoicedZeroCrossingRate = 0.25;
+        /** Mean square energy below which nothing counts as speech, about -50 dBFS. */
+        public double minSpeechEnergy = 10000;
+
+        public int frameSamples() {
+            return sampleRate * frameMs / 1000;
+        }
+
+        int framesFor(int ms) {
+            return Math.max(1, (ms + frameMs - 1) / frameMs);
+        }
+    }
+
+    private static final double NOISE_ADAPT_RATE = 0.05;
+    private static final double INITIAL_NOISE_FLOOR = 1000;
+
+    private final Config config;
+    private final int onsetFrames;
+    private final int hangoverFrames;
+
+    private double noiseFloor = INITIAL_NOISE_FLOOR;
+    private boolean inSpeech;
+    private int voicedRun;
+    private int silentRun;
+    private double lastEnergy;
+    private double lastZeroCrossingRate;
+
+    public VoiceActivityDetector(Config config) {
+        this.config = config;
+        onsetFrames = config.framesFor(config.onsetMs);
+        hangoverFrames = config.framesFor(config.hangoverMs);
+    }
+
+    public Config getConfig() {
+        return config;
+    }
+
+    /** Classifies one frame and returns whether it started or ended speech. */
+    public Transition process(short[] frame, int offset, int length) {
+        if (length <= 0) {
+            return Transition.NONE;
+        }
+        long sumSquares = 0;
+        int crossings = 0;
+        int previous = frame[offset];
+        for (int i = offset; i < offset + length; i++) {
+            int sample = frame[i];
+            sumSquares += sample * sample;
+            if ((sample ^ previous) < 0) {
+                crossings++;
+            }
+            previous = sample;
+        }
+        double energy = (double) sumSquares / length;
+        double zeroCrossingRate = (double) crossings / length;
+        lastEnergy = energy;
+        lastZeroCrossingRate = zeroCrossingRate;
+
+        boolean loud = energy >= config.minSpeechEnergy;
+        boolean voiced = loud && energy > noiseFloor * config.speechToNoiseRatio
+                && zeroCrossingRate <= config.maxVoicedZeroCrossingRate;
+        boolean fricative = loud && energy > noiseFloor * config.fricativeToNoiseRatio
+                && zeroCrossingRate > config.maxVoicedZeroCrossingRate;
+
+        if (!voiced && !fricative) {
+            // Follow the noise floor down quickly and up slowly, so speech does not raise it
+            noiseFloor = energy < noiseFloor ? energy : noiseFloor + (energy - noiseFloor) * NOISE_ADAPT_RATE;
+            noiseFloor = Math.max(noiseFloor, 1);
+        }
+
+        if (!inSpeech) {
+            voicedRun = voiced ? voicedRun + 1 : 0;
+            if (voicedRun >= onsetFrames) {
+                inSpeech = true;
+                silentRun = 0;
+                return Transition.SPEECH_STARTED;
+            }
+            return Transition.NONE;
+        }
+        if (voiced || fricative) {
+            silentRun = 0;
+            return Transition.NONE;
+        }
+        if (++silentRun >= hangoverFrames) {
+            inSpeech = false;
+            voicedRun = 0;
+            return Transition.SPEECH_ENDED;
+        }
+        return Transition.NONE;
+    }
+
+    public boolean isInSpeech() {
+        return inSpeech;
+    }
+
+    /** Mean square energy of the last frame. */
+    public double getLastEnergy() {
+        return lastEnergy;
+    }
+
+    public double getLastZeroCrossingRate() {
+        return lastZeroCrossingRate;
+    }
+
+    public double getNoiseFloor() {
+        return noiseFloor;
+    }
+
+    /** Ends any speech in progress without reporting it and keeps the noise floor. */
+    public void reset() {
+        inSpeech = false;
+        voicedRun = 0;
+        silentRun = 0;
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.languageassistant.utils;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads 16-bit PCM WAV files, for feeding recordings through {@link PcmCaptureStage} offline.
+ * Multi-channel audio is mixed down to mono.
+ */
+public final class WavFile {
+
+    private static final int FORMAT_PCM = 1;
+    private static final int FORMAT_EXTENSIBLE = 0xFFFE;
+
+    public final int sampleRate;
+    public final short[] samples;
+
+    private WavFile(int sampleRate, short[] samples) {
+        this.sampleRate = sampleRate;
+        this.samples = samples;
+    }
+
+    public static WavFile read(File file) throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            return read(in);
+        }
+    }
+
+    public static WavFile read(InputStream stream) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(stream));
+        if (in.readInt() != 0x52494646) { // "RIFF"
+            throw new IOException("Not a RIFF file");
+        }
+        readLittleInt(in); // Size of the rest of the file
+        if (in.readInt() != 0x57415645) { // "WAVE"
+            throw new IOException("Not a WAVE file");
+        }
+        int channels = 0;
+        int sampleRate = 0;
+        while (true) {
+            int chunkId;
+            try {
+                chunkId = in.readInt();
+            } catch (EOFException e) {
+                throw new IOException("No data chunk");
+            }
+            int chunkSize = readLittleInt(in);
+            if (chunkId == 0x666d7420) { // "fmt "
+                int format = readLittleShort(in);
+                channels = readLittleShort(in);
+                sampleRate = readLittleInt(in);
+                readLittleInt(in); // Byte rate
+                readLittleShort(in); // Block align
+                int bits = readLittleShort(in);
+                if ((format != FORMAT_PCM && format != FORMAT_EXTENSIBLE) || bits != 16 || channels < 1) {
+                    throw new IOException("Only 16-bit PCM is supported");
+                }
+                skipFully(in, chunkSize - 16 + (chunkSize & 1));
+            } else if (chunkId == 0x64617461) { // "data"
+                if (channels == 0) {
+                    throw new IOException("Data before format");
+                }
+                int frames = chunkSize / (2 * channels);
+                short[] samples = new short[frames];
+                for (int i = 0; i < frames; i++) {
+                    int sum = 0;
+                    for (int c = 0; c < channels; c++) {
+                        sum += (short) readLittleShort(in);
+                    }
+                    samples[i] = (short) (sum / channels);
+                }
+                return new WavFile(sampleRate, samples);
+            } else {
+                skipFully(in, chunkSize + (chunkSize & 1)); // Chunks are padded to even sizes
+            }
+        }
+    }
+
+    public long getDurationMs() {
+        return sampleRate == 0 ? 0 : samples.length * 1000L / sampleRate;
+    }
+
+    private static int readLittleInt(DataInputStream in) throws IOException {
+        return Integer.reverseBytes(in.readInt());
+    }
+
+    private static int readLittleShort(DataInputStream in) throws IOException {
+        return Short.reverseBytes(in.readShort()) & 0xFFFF;
+    }
+
+    private static void skipFully(DataInputStream in, int count) throws IOException {
+        while (count > 0) {
+            int skipped = in.skipBytes(count);
+            if (skipped <= 0) {
+                in.readByte(); // Throws at the end of the file
+                skipped = 1;
+            }
+            count -= skipped;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.languageassistant.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+public class AnswerCacheTest {
+
+    private static final String MODEL = "gemini-pro";
+
+    @Test
+    public void hesitationsAndPunctuationAreIgnored() {
+        assertEquals("whats the capital of france", AnswerCache.normalizeQuestion("Um, what's the capital of... uh, France?"));
+    }
+
+    @Test
+    public void leadInWordsAreOnlyDroppedAtTheStart() {
+        assertEquals("what time is it", AnswerCache.normalizeQuestion("Okay so, what time is it?"));
+        assertEquals("how well does the audio guide work", AnswerCache.normalizeQuestion("How well does the audio guide work?"));
+        assertEquals("what do you like", AnswerCache.normalizeQuestion("What do you like?"));
+        assertEquals("is it just for adults", AnswerCache.normalizeQuestion("Is it just for adults?"));
+    }
+
+    @Test
+    public void meaningfulWordsKeepQuestionsApart() {
+        AnswerCache cache = new AnswerCache(null);
+        cache.put(MODEL, "How does the audio guide work?", "Press play at each stop.");
+        assertNull(cache.get(MODEL, "How well does the audio guide work?"));
+        assertEquals("Press play at each stop.", cache.get(MODEL, "Um, so how does the audio guide work"));
+    }
+
+    @Test
+    public void diskAttachedLaterServesStoredAnswers() throws IOException {
+        File file = File.createTempFile("answers", ".log");
+        file.delete();
+        try {
+            AppendOnlyLogStore store = new AppendOnlyLogStore(file, AnswerCache.DEFAULT_DISK_BYTES, AnswerCache.DEFAULT_TTL_MS);
+            store.put(AnswerCache.key(MODEL, "When do you open?"), "At nine.");
+            store.close();
+
+            // Created memory only, as when a question arrives before startup opens the file
+            AnswerCache cache = new AnswerCache(null);
+            assertNull(cache.get(MODEL, "When do you open?"));
+            cache.attachDisk(file);
+            assertEquals("At nine.", cache.get(MODEL, "When do you open?"));
+        } finally {
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package com.example.languageassistant.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/** Drives {@link AnswerRequestManager} against {@link SimulatedAnswerBackend}, without the network. */
+public class AnswerRequestManagerTest {
+
+    private static final long WAIT_MS = 5000;
+
+    private final SimulatedAnswerBackend backend = new SimulatedAnswerBackend(50, 5, 1);
+    // Callbacks arrive on one thread, in order, as they would on the main looper
+    private final ExecutorService callbacks = Executors.newSingleThreadExecutor();
+
+    @After
+    public void tearDown() {
+        backend.shutdown();
+        callbacks.shutdownNow();
+    }
+
+    private AnswerRequestManager manager(int maxConcurrent, int maxQueued,
+                                         AnswerRequestManager.RejectionPolicy policy, boolean latestWins) {
+        return new AnswerRequestManager(backend, callbacks, maxConcurrent, maxQueued, policy, latestWins);
+    }
+
+    @Test
+    public void newQuestionSupersedesOlderOne() throws InterruptedException {
+        backend.setDelays(200, 5);
+        AnswerRequestManager manager = manager(2, 4, AnswerRequestManager.RejectionPolicy.REJECT_NEW, true);
+        RecordingListener first = new RecordingListener();
+        RecordingListener second = new RecordingListener();
+
+        manager.submit("What time does the museum open?", 0, first);
+        manager.submit("Where is the station?", 0, second);
+
+        assertTrue(second.await());
+        assertEquals(SimulatedAnswerBackend.answerFor("Where is the station?"), second.answer);
+        // The older answer is never delivered, not even as a failure
+        assertFalse(first.await(400));
+        assertEquals("", first.deltas.toString());
+        assertEquals(1, manager.getStats().superseded);
+    }
+
+    @Test
+    public void requestFailsAtItsDeadline() throws InterruptedException {
+        backend.setDelays(2000, 5);
+        AnswerRequestManager manager = manager(2, 4, AnswerRequestManager.RejectionPolicy.REJECT_NEW, true);
+        RecordingListener listener = new RecordingListener();
+
+        long start = System.currentTimeMillis();
+        manager.submit("Why is the sky blue?", 100, listener);
+
+        assertTrue(listener.await());
+        assertTrue(listener.error instanceof TimeoutException);
+        assertNull(listener.answer);
+        assertTrue(System.currentTimeMillis() - start < 1000);
+        AnswerRequestManager.Stats stats = manager.getStats();
+        assertEquals(1, stats.timedOut);
+        // Nobody waits for the answer any more, so the upstream call was released
+        assertEquals(0, stats.running);
+    }
+
+    @Test
+    public void backendThatThrowsInsideAskFailsTheRequest() throws InterruptedException {
+        final IllegalStateException error = new IllegalStateException("Model not available");
+        AnswerRequestManager manager = new AnswerRequestManager((question, listener) -> {
+            throw error;
+        }, callbacks, 2, 4, AnswerRequestManager.RejectionPolicy.REJECT_NEW, true);
+        RecordingListener listener = new RecordingListener();
+
+        AnswerRequestManager.Ticket ticket = manager.submit("Where is the station?", 0, listener);
+
+        assertTrue(ticket.isDone());
+        assertTrue(listener.await());
+        assertSame(error, listener.error);
+        AnswerRequestManager.Stats stats = manager.getStats();
+        assertEquals(1, stats.failed);
+        assertEquals(0, stats.running);
+    }
+
+    @Test
+    public void backendThatReportsAnErrorInsideAskFailsTheRequest() throws InterruptedException {
+        final IOException error = new IOException("No network");
+        AnswerRequestManager manager = new AnswerRequestManager((question, listener) -> {
+            listener.onError(error);
+            return () -> { };
+        }, callbacks, 2, 4, AnswerRequestManager.RejectionPolicy.REJECT_NEW, true);
+        RecordingListener listener = new RecordingListener();
+
+        manager.submit("Where is the station?", 5000, listener);
+
+        // Fails at once with the backend's error, not at the deadline
+        assertTrue(listener.await(1000));
+        assertSame(error, listener.error);
+    }
+
+    @Test
+    public void deadlineBoundsTailLatencyOfAStallingBackend() throws InterruptedException {
+        final long deadlineMs = 150;
+        backend.setDelays(10, 1).setStalls(0.5, 2000);
+        AnswerRequestManager manager = manager(4, 16, AnswerRequestManager.RejectionPolicy.REJECT_NEW, false);
+        RecordingListener[] listeners = new RecordingListener[12];
+
+        for (int i = 0; i < listeners.length; i++) {
+            listeners[i] = new RecordingListener();
+            manager.submit("Question number " + i, deadlineMs, listeners[i]);
+        }
+
+        int answered = 0;
+        for (RecordingListener listener : listeners) {
+            assertTrue(listener.await());
+            if (listener.answer != null) {
+                answered++;
+            } else {
+                assertTrue(listener.error instanceof TimeoutException);
+            }
+        }
+        AnswerRequestManager.Stats stats = manager.getStats();
+        // With seed 1 some calls stall and some do not; every one ends close to the deadline
+        assertTrue(answered > 0);
+        assertTrue(stats.timedOut > 0);
+        assertEquals(listeners.length, answered + stats.timedOut);
+        assertTrue("maxLatencyMs=" + stats.maxLatencyMs, stats.maxLatencyMs < deadlineMs + 250);
+    }
+
+    @Test
+    public void sameQuestionSharesOneUpstreamCall() throws InterruptedException {
+        AnswerRequestManager manager = manager(2, 4, AnswerRequestManager.RejectionPolicy.REJECT_NEW, false);
+        RecordingListener first = new RecordingListener();
+        RecordingListener second = new RecordingListener();
+
+        manager.submit("What time is it?", 0, first);
+        manager.submit("Um, what time is it", 0, second);
+
+        assertTrue(first.await());
+        assertTrue(second.await());
+        String expected = SimulatedAnswerBackend.answerFor("What time is it?");
+        assertEquals(expected, first.answer);
+        assertEquals(expected, second.answer);
+        assertEquals(1, backend.getCallCount());
+        assertEquals(1, manager.getStats().merged);
+    }
+
+    @Test
+    public void lateJoinerReceivesTextStreamedSoFar() throws InterruptedException {
+        backend.setDelays(0, 40);
+        AnswerRequestManager manager = manager(2, 4, AnswerRequestManager.RejectionPolicy.REJECT_NEW, false);
+        RecordingListener first = new RecordingListener();
+        RecordingListener late = new RecordingListener();
+
+        manager.submit("How tall is the tower?", 0, first);
+        Thread.sleep(100);
+        manager.submit("How tall is the tower?", 0, late);
+
+        assertTrue(late.await());
+        assertEquals(late.answer, late.deltas.toString());
+        assertEquals(1, backend.getCallCount());
+    }
+
+    @Test
+    public void rejectNewFailsTheSubmissionWhenTheQueueIsFull() throws InterruptedException {
+        AnswerRequestManager manager = manager(1, 1, AnswerRequestManager.RejectionPolicy.REJECT_NEW, false);
+        RecordingListener running = new RecordingListener();
+        RecordingListener queued = new RecordingListener();
+        RecordingListener rejected = new RecordingListener();
+
+        manager.submit("first question", 0, running);
+        manager.submit("second question", 0, queued);
+        AnswerRequestManager.Ticket ticket = manager.submit("third question", 0, rejected);
+
+        assertTrue(ticket.isDone());
+        assertTrue(rejected.await());
+        assertTrue(rejected.error instanceof RejectedExecutionException);
+        assertTrue(running.await());
+        assertTrue(queued.await());
+        assertEquals(SimulatedAnswerBackend.answerFor("second question"), queued.answer);
+        assertEquals(2, backend.getCallCount());
+        assertEquals(1, manager.getStats().rejected);
+    }
+
+    @Test
+    public void dropOldestFailsTheOldestQueuedRequest() throws InterruptedException {
+        AnswerRequestManager manager = manager(1, 1, AnswerRequestManager.RejectionPolicy.DROP_OLDEST, false);
+        RecordingListener running = new RecordingListener();
+        RecordingListener dropped = new RecordingListener();
+        RecordingListener newest = new RecordingListener();
+
+        manager.submit("first question", 0, running);
+        manager.submit("second question", 0, dropped);
+        manager.submit("third question", 0, newest);
+
+        assertTrue(dropped.await());
+        assertTrue(dropped.error instanceof RejectedExecutionException);
+        assertTrue(running.await());
+        assertTrue(newest.await());
+        assertEquals(SimulatedAnswerBackend.answerFor("third question"), newest.answer);
+        assertEquals(2, backend.getCallCount());
+        assertEquals(1, manager.getStats().rejected);
+    }
+
+    @Test
+    public void cancelledTicketGetsNoCallbacks() throws InterruptedException {
+        backend.setDelays(100, 5);
+        AnswerRequestManager manager = manager(2, 4, AnswerRequestManager.RejectionPolicy.REJECT_NEW, false);
+        RecordingListener listener = new RecordingListener();
+
+        manager.submit("Is it going to rain?", 0, listener).cancel();
+
+        assertFalse(listener.await(400));
+        assertEquals(0, manager.getStats().running);
+    }
+
+    private static final class RecordingListener implements AnswerRequestManager.AnswerListener {
+        final StringBuffer deltas = new StringBuffer();
+        final CountDownLatch done = new CountDownLatch(1);
+        volatile String answer;
+        volatile Throwable error;
+
+        boolean await() throws InterruptedException {
+            return await(WAIT_MS);
+        }
+
+        boolean await(long timeoutMs) throws InterruptedException {
+            return done.await(timeoutMs, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public void onDelta(String text) {
+            deltas.append(text);
+        }
+
+        @Override
+        public void onComplete(String fullAnswer) {
+            answer = fullAnswer;
+            done.countDown();
+        }
+
+        @Override
+        public void onFailure(Throwable error) {
+            this.error = error;
+            done.countDown();
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.languageassistant.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/** Drives a {@link DisplaySession} into {@link SimulatedGlassesTransport} and checks what the glasses show. */
+public class DisplaySessionTest {
+
+    private static final int LINES = 3;
+    private static final DisplaySession.ScrollConfig CONFIG = new DisplaySession.ScrollConfig(48, 0, LINES, 10);
+    // One unit per character, so a line holds about 20 characters
+    private static final float LINE_WIDTH = 20f;
+    private static final LineBreaker.TextMeasurer MEASURER = (text, start, end) -> end - start;
+    private static final String[] WORDS = {"alpha", "be", "gamma", "delta", "ep", "ze"};
+    private static final long WAIT_MS = 5000;
+
+    private SimulatedGlassesTransport<String> transport;
+    private SliceSender<String> sender;
+    private DisplaySession<String> session;
+
+    @Before
+    public void setUp() {
+        transport = new SimulatedGlassesTransport<>(line -> 64, 1024 * 1024, 1, 1);
+        sender = new SliceSender<>(new SliceSender.SliceLink<String>() {
+            @Override
+            public void sendSlice(String slice, int sliceIndex, boolean scrollFirst, SliceSender.Transmission transmission) {
+                transport.sendScrollImage(slice, sliceIndex, scrollFirst);
+            }
+
+            @Override
+            public void discardSlice(String slice) {
+            }
+
+            @Override
+            public boolean reportsAcks() {
+                return true;
+            }
+        });
+        transport.addListener(new GlassesTransport.Listener() {
+            @Override
+            public void onImageAcked() {
+                sender.onSliceAcked();
+            }
+        });
+        session = new DisplaySession<>(new DisplaySession.Target() {
+            @Override
+            public void applyScrollLayout() {
+                transport.setScrollLayout();
+            }
+
+            @Override
+            public void configureScroll(DisplaySession.ScrollConfig config) {
+                transport.configureScroll(config.sliceHeight, config.lowestLineShowing, config.maxLinesShowing, config.scrollSpeed);
+            }
+        }, new DisplaySession.LineRenderer<String>() {
+            @Override
+            public List<String> breakLines(CharSequence text) {
+                return LineBreaker.breakLines(text, LINE_WIDTH, MEASURER);
+            }
+
+            @Override
+            public String renderLine(String line) {
+                return line;
+            }
+        }, sender);
+        sender.start();
+    }
+
+    @After
+    public void tearDown() {
+        sender.stop();
+        transport.shutdown();
+    }
+
+    @Test
+    public void shorterTextAfterScrollingMovesEarlierLinesBackDown() throws InterruptedException {
+        String fiveLines = "line one is here ok line two is here ok line three here ok line four here ok line five here ok";
+        session.show(fiveLines, CONFIG);
+        assertShows(fiveLines);
+
+        // A revised caption tail that drops the last line
+        String fourLines = fiveLines.substring(0, fiveLines.lastIndexOf(" line five"));
+        session.show(fourLines, CONFIG);
+        assertShows(fourLines);
+        assertFalse(visibleSlots().contains(""));
+    }
+
+    @Test
+    public void visibleSlotsFollowRandomShowsAndAppends() throws InterruptedException {
+        Random random = new Random(42);
+        String text = "";
+        for (int step = 0; step < 300; step++) {
+            if (!text.isEmpty() && random.nextInt(3) == 0) {
+                String delta = " " + randomWords(random, 1 + random.nextInt(4));
+                session.append(delta, CONFIG);
+                text += delta;
+            } else {
+                // Mostly small revisions of the end, like a caption tail, sometimes new text
+                String[] words = text.isEmpty() ? new String[0] : text.split(" ");
+                int keep = random.nextInt(5) == 0 ? 0 : Math.max(0, words.length - random.nextInt(6));
+                String kept = String.join(" ", Arrays.copyOf(words, keep));
+                String added = randomWords(random, random.nextInt(8));
+                text = kept.isEmpty() ? added : added.isEmpty() ? kept : kept + " " + added;
+                if (text.isEmpty()) {
+                    text = WORDS[0];
+                }
+                session.show(text, CONFIG);
+            }
+            awaitIdle();
+            assertEquals("step " + step + ": " + text, expectedSlots(text), visibleSlots());
+        }
+    }
+
+    private static String randomWords(Random random, int count) {
+        StringBuilder words = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                words.append(' ');
+            }
+            words.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return words.toString();
+    }
+
+    private void assertShows(String text) throws InterruptedException {
+        awaitIdle();
+        assertEquals(expectedSlots(text), visibleSlots());
+    }
+
+    // The last LINES lines of the text; the screen fills from the top slot down
+    private static List<String> expectedSlots(String text) {
+        List<String> lines = LineBreaker.breakLines(text, LINE_WIDTH, MEASURER);
+        List<String> slots = new ArrayList<>();
+        int first = Math.max(0, lines.size() - LINES);
+        for (int slot = 0; slot < LINES; slot++) {
+            int index = first + LINES - 1 - slot;
+            slots.add(index < lines.size() ? lines.get(index) : "");
+        }
+        return slots;
+    }
+
+    // A slot that was never written shows nothing, like one blanked with an empty line
+    private List<String> visibleSlots() {
+        List<String> slots = new ArrayList<>();
+        for (String image : transport.getVisibleSlots()) {
+            slots.add(image == null ? "" : image);
+        }
+        return slots;
+    }
+
+    // Every queued slice was sent and acknowledged, so it is in its slot
+    private void awaitIdle() throws InterruptedException {
+        long until = System.currentTimeMillis() + WAIT_MS;
+        while (sender.getQueueDepth() > 0 || sender.getInFlight() > 0) {
+            assertTrue("sender did not drain: " + sender.getStats(), System.currentTimeMillis() < until);
+            Thread.sleep(1);
+        }
+    }
+}
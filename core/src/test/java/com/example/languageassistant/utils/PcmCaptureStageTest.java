@@ -0,0 +1,119 @@
+package com.example.languageassistant.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/** Feeds a synthetic WAV recording through {@link PcmCaptureStage} offline. */
+public class PcmCaptureStageTest {
+
+    private static final int SAMPLE_RATE = 16000;
+    private static final int MAX_SEGMENT_MS = 2000;
+
+    // Speech-like bursts (ms from the start, length in ms), separated by quiet room noise
+    private static final int[][] BURSTS = {{1000, 800}, {2800, 600}, {4400, 3000}};
+    private static final int TOTAL_MS = 8400;
+
+    @Test
+    public void wavIsCutIntoSegmentsWithPreRollAndHangover() throws IOException {
+        WavFile wav = WavFile.read(new ByteArrayInputStream(buildWav()));
+        assertEquals(SAMPLE_RATE, wav.sampleRate);
+        assertEquals(TOTAL_MS, wav.getDurationMs());
+
+        VoiceActivityDetector.Config config = new VoiceActivityDetector.Config();
+        config.maxSegmentMs = MAX_SEGMENT_MS;
+        List<long[]> segments = new ArrayList<>();
+        PcmCaptureStage stage = new PcmCaptureStage(config, segment -> segments.add(new long[]{
+                segment.getStartSample(), segment.getEndSample(), segment.isCutAtMaxLength() ? 1 : 0}));
+        // Uneven chunks, as a capture loop would read them
+        for (int offset = 0; offset < wav.samples.length; offset += 1234) {
+            stage.feed(wav.samples, offset, Math.min(1234, wav.samples.length - offset));
+        }
+        stage.flush();
+
+        long preRoll = samples(config.preRollMs);
+        long hangover = samples(config.hangoverMs);
+        assertEquals(4, segments.size());
+        for (int i = 0; i < 2; i++) {
+            long[] segment = segments.get(i);
+            assertEquals("start of burst " + i, samples(BURSTS[i][0]) - preRoll, segment[0]);
+            assertEquals("end of burst " + i, samples(BURSTS[i][0] + BURSTS[i][1]) + hangover, segment[1]);
+            assertEquals(0, segment[2]);
+        }
+
+        // The long burst is cut at the maximum length and continues without a gap
+        long[] cut = segments.get(2);
+        long[] rest = segments.get(3);
+        assertEquals(samples(BURSTS[2][0]) - preRoll, cut[0]);
+        assertEquals(1, cut[2]);
+        assertTrue(cut[1] - cut[0] <= samples(MAX_SEGMENT_MS));
+        assertTrue(cut[1] - cut[0] > samples(MAX_SEGMENT_MS) - config.frameSamples());
+        assertEquals(cut[1], rest[0]);
+        assertEquals(samples(BURSTS[2][0] + BURSTS[2][1]) + hangover, rest[1]);
+        assertEquals(0, rest[2]);
+
+        assertFalse(stage.isInSpeech());
+        assertEquals(0, stage.getDroppedSamples());
+    }
+
+    private static long samples(int ms) {
+        return (long) SAMPLE_RATE * ms / 1000;
+    }
+
+    // 16-bit mono: a 200 Hz tone for each burst, low random noise elsewhere
+    private static byte[] buildWav() {
+        Random random = new Random(7);
+        short[] pcm = new short[(int) samples(TOTAL_MS)];
+        for (int i = 0; i < pcm.length; i++) {
+            pcm[i] = (short) (random.nextInt(41) - 20);
+        }
+        for (int[] burst : BURSTS) {
+            int start = (int) samples(burst[0]);
+            int end = (int) samples(burst[0] + burst[1]);
+            for (int i = start; i < end; i++) {
+                pcm[i] = (short) (8000 * Math.sin(2 * Math.PI * 200 * (i - start) / SAMPLE_RATE));
+            }
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int dataBytes = pcm.length * 2;
+        writeAscii(out, "RIFF");
+        writeLittle(out, 36 + dataBytes, 4);
+        writeAscii(out, "WAVE");
+        writeAscii(out, "fmt ");
+        writeLittle(out, 16, 4);
+        writeLittle(out, 1, 2); // PCM
+        writeLittle(out, 1, 2); // Mono
+        writeLittle(out, SAMPLE_RATE, 4);
+        writeLittle(out, SAMPLE_RATE * 2, 4);
+        writeLittle(out, 2, 2);
+        writeLittle(out, 16, 2);
+        writeAscii(out, "data");
+        writeLittle(out, dataBytes, 4);
+        for (short sample : pcm) {
+            writeLittle(out, sample, 2);
+        }
+        return out.toByteArray();
+    }
+
+    private static void writeAscii(ByteArrayOutputStream out, String text) {
+        for (int i = 0; i < text.length(); i++) {
+            out.write(text.charAt(i));
+        }
+    }
+
+    private static void writeLittle(ByteArrayOutputStream out, int value, int bytes) {
+        for (int i = 0; i < bytes; i++) {
+            out.write(value >> (8 * i));
+        }
+    }
+}
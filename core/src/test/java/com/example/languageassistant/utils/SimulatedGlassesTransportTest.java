@@ -0,0 +1,147 @@
+package com.example.languageassistant.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class SimulatedGlassesTransportTest {
+
+    private static final long WAIT_MS = 10000;
+    private static final long LINK_BYTES_PER_SECOND = 1024 * 1024;
+
+    private final List<SimulatedGlassesTransport<String>> transports = new ArrayList<>();
+
+    @After
+    public void tearDown() {
+        for (SimulatedGlassesTransport<String> transport : transports) {
+            transport.shutdown();
+        }
+    }
+
+    private SimulatedGlassesTransport<String> transport(long seed) {
+        SimulatedGlassesTransport<String> transport = new SimulatedGlassesTransport<>(image -> 256, LINK_BYTES_PER_SECOND, 1, seed);
+        transport.configureScroll(48, 0, 3, 10);
+        transports.add(transport);
+        return transport;
+    }
+
+    @Test
+    public void sameSeedDropsTheSameImages() throws InterruptedException {
+        List<Integer> first = lostImages(transport(7));
+        List<Integer> second = lostImages(transport(7));
+        List<Integer> other = lostImages(transport(8));
+
+        assertFalse(first.isEmpty());
+        assertEquals(first, second);
+        assertNotEquals(first, other);
+    }
+
+    // Sends 200 images with a 5% chance each of dropping the link, reconnecting right after a
+    // drop. Each image is delivered before the next is sent, since a drop also loses whatever
+    // is still crossing the link.
+    private static List<Integer> lostImages(SimulatedGlassesTransport<String> transport) throws InterruptedException {
+        transport.setDropProbability(0.05);
+        for (int i = 0; i < 200; i++) {
+            transport.sendScrollImage("image " + i, 0, true);
+            assertTrue(transport.awaitImages(i + 1, WAIT_MS));
+            transport.reconnect();
+        }
+        List<Integer> lost = new ArrayList<>();
+        List<SimulatedGlassesTransport.Frame<String>> frames = transport.getFrames();
+        for (int i = 0; i < frames.size(); i++) {
+            if (frames.get(i).isLost()) {
+                lost.add(i - 1); // The first frame is the scroll configuration
+            }
+        }
+        return lost;
+    }
+
+    @Test
+    public void scriptedDisconnectLosesImagesUntilReconnect() throws InterruptedException {
+        SimulatedGlassesTransport<String> transport = transport(1);
+        final CountDownLatch controlLost = new CountDownLatch(1);
+        transport.addListener(new GlassesTransport.Listener() {
+            @Override
+            public void onControlLost() {
+                controlLost.countDown();
+            }
+        });
+        assertTrue(transport.requestControl(1000));
+        transport.disconnectAfterImages(5);
+        String[] images = {"one", "two", "three", "four", "five", "six"};
+        int[] slots = {2, 1, 0, 0, 0, 0};
+        for (int i = 0; i < images.length; i++) {
+            // "five" drops the link and is lost, and so is "six" while it is down
+            transport.sendScrollImage(images[i], slots[i], i >= 3);
+            assertTrue(transport.awaitImages(i + 1, WAIT_MS));
+        }
+
+        assertEquals(Arrays.asList("four", "three", "two"), transport.getVisibleSlots());
+        assertTrue(controlLost.await(WAIT_MS, TimeUnit.MILLISECONDS));
+        assertFalse(transport.isControlled());
+        assertFalse(transport.requestControl(1000));
+
+        transport.reconnect();
+        assertTrue(transport.requestControl(1000));
+        transport.sendScrollImage("seven", 0, true);
+        assertTrue(transport.awaitImages(7, WAIT_MS));
+        assertEquals(Arrays.asList("seven", "four", "three"), transport.getVisibleSlots());
+    }
+
+    @Test
+    public void sliceSenderRecoversAfterReconnect() throws InterruptedException {
+        final SimulatedGlassesTransport<String> transport = transport(1);
+        final SliceSender<String> sender = new SliceSender<>(new SliceSender.SliceLink<String>() {
+            @Override
+            public void sendSlice(String slice, int sliceIndex, boolean scrollFirst, SliceSender.Transmission transmission) {
+                transport.sendScrollImage(slice, sliceIndex, scrollFirst);
+            }
+
+            @Override
+            public void discardSlice(String slice) {
+            }
+
+            @Override
+            public boolean reportsAcks() {
+                return true;
+            }
+        }, 2, 20);
+        transport.addListener(new GlassesTransport.Listener() {
+            @Override
+            public void onImageAcked() {
+                sender.onSliceAcked();
+            }
+        });
+        transport.setReconnectAfterMs(50);
+        transport.disconnectAfterImages(3);
+        sender.start();
+        try {
+            for (int i = 0; i < 6; i++) {
+                sender.enqueue("line " + i, 0, true);
+            }
+            assertTrue(transport.awaitImages(6, WAIT_MS));
+            assertFalse(transport.getStats(), transport.getStats().contains("lost=0 "));
+
+            // Lost images are never acked; their window slots are freed by the ack timeout
+            sender.enqueue("after 1", 0, true);
+            sender.enqueue("after 2", 0, true);
+            sender.enqueue("after 3", 0, true);
+            assertTrue(transport.awaitImages(9, WAIT_MS));
+            assertEquals(Arrays.asList("after 3", "after 2", "after 1"), transport.getVisibleSlots());
+            assertEquals(0, sender.getQueueDepth());
+            assertTrue(sender.getStats(), sender.getStats().contains("sent=9 "));
+        } finally {
+            sender.stop();
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.languageassistant.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/** Streaming output must match transliterating the whole text at once, however it is chunked. */
+public class StreamingTransliteratorTest {
+
+    private static final String[] SCRIPT_TABLES = {
+            "translit_devanagari.txt", "translit_kannada.txt", "translit_tamil.txt", "translit_telugu.txt",
+    };
+    private static final String[] DISPLAY_LANGUAGES = {"en", "kn", "hi", "ta", "te"};
+    private static final String[] SENTENCES = {
+            "Hello, how are you? I am going to the market today.",
+            "नमस्ते, आप कैसे हैं? मैं आज बाज़ार जा रहा हूँ।",
+            "क्या आप मुझे स्टेशन का रास्ता बता सकते हैं?",
+            "ನಮಸ್ಕಾರ, ನೀವು ಹೇಗಿದ್ದೀರಿ? ನನಗೆ ಕನ್ನಡ ಸ್ವಲ್ಪ ಬರುತ್ತದೆ.",
+            "வணக்கம், நீங்கள் எப்படி இருக்கிறீர்கள்? இது மிகவும் சுவையாக இருக்கிறது.",
+            "నమస్కారం, మీరు ఎలా ఉన్నారు? ఈ నగరంలో చాలా పాత దేవాలయాలు ఉన్నాయి.",
+            "Meeting at 10:30 कल सुबह, then ಬೆಂಗಳೂರು and சென்னை.",
+    };
+    // Unicode blocks the tables cover, for random text that real sentences may not reach
+    private static final int[][] BLOCKS = {{0x0900, 0x097F}, {0x0C80, 0x0CFF}, {0x0B80, 0x0BFF}, {0x0C00, 0x0C7F}};
+    private static final int CHUNKINGS_PER_TEXT = 500;
+
+    @BeforeClass
+    public static void installTables() throws IOException {
+        List<ScriptTable> tables = new ArrayList<>();
+        for (String name : SCRIPT_TABLES) {
+            try (InputStream in = StreamingTransliteratorTest.class.getResourceAsStream("/" + name)) {
+                assertNotNull("Missing script table " + name, in);
+                tables.add(ScriptTable.parse(in));
+            }
+        }
+        Transliterators.install(tables);
+    }
+
+    @Test
+    public void sentencesMatchBatchUnderRandomChunking() throws IOException {
+        Random random = new Random(1);
+        for (String language : DISPLAY_LANGUAGES) {
+            Transliterator transliterator = Transliterators.forDisplayLanguage(language);
+            assertNotNull(language, transliterator);
+            for (String sentence : SENTENCES) {
+                assertChunkingsMatch(transliterator, sentence, random);
+            }
+        }
+    }
+
+    @Test
+    public void randomScriptTextMatchesBatchUnderRandomChunking() throws IOException {
+        Random random = new Random(2);
+        for (String language : DISPLAY_LANGUAGES) {
+            Transliterator transliterator = Transliterators.forDisplayLanguage(language);
+            for (int i = 0; i < 20; i++) {
+                assertChunkingsMatch(transliterator, randomText(random), random);
+            }
+        }
+    }
+
+    private static void assertChunkingsMatch(Transliterator transliterator, String text, Random random) throws IOException {
+        String expected = transliterator.transliterate(text);
+        StringBuilder builder = new StringBuilder();
+        StringBuffer buffer = new StringBuffer();
+        // A StringBuilder sink is written directly; any other Appendable goes through a copy
+        StreamingTransliterator direct = new StreamingTransliterator(transliterator, builder);
+        StreamingTransliterator copied = new StreamingTransliterator(transliterator, buffer);
+        for (int run = 0; run < CHUNKINGS_PER_TEXT; run++) {
+            builder.setLength(0);
+            buffer.setLength(0);
+            List<String> chunks = randomChunks(text, random);
+            for (String chunk : chunks) {
+                direct.append(chunk);
+                copied.append(chunk);
+            }
+            direct.finish();
+            copied.finish();
+            assertEquals("chunks " + chunks, expected, builder.toString());
+            assertEquals("chunks " + chunks, expected, buffer.toString());
+        }
+    }
+
+    // Mostly short chunks, like streamed tokens, sometimes empty or long ones
+    private static List<String> randomChunks(String text, Random random) {
+        List<String> chunks = new ArrayList<>();
+        int start = 0;
+        while (start < text.length()) {
+            int length = random.nextInt(10) == 0 ? random.nextInt(text.length() + 1) : random.nextInt(5);
+            int end = Math.min(text.length(), start + length);
+            chunks.add(text.substring(start, end));
+            start = end;
+        }
+        return chunks;
+    }
+
+    private static String randomText(Random random) {
+        StringBuilder text = new StringBuilder();
+        int[] block = BLOCKS[random.nextInt(BLOCKS.length)];
+        int length = 1 + random.nextInt(40);
+        for (int i = 0; i < length; i++) {
+            int pick = random.nextInt(10);
+            if (pick == 0) {
+                text.append(' ');
+            } else if (pick == 1) {
+                text.append((char) ('a' + random.nextInt(26)));
+            } else if (pick == 2) {
+                // Switch script mid-text
+                block = BLOCKS[random.nextInt(BLOCKS.length)];
+            } else {
+                text.append((char) (block[0] + random.nextInt(block[1] - block[0] + 1)));
+            }
+        }
+        return text.toString();
+    }
+}
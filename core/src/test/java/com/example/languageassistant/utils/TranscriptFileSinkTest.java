@@ -0,0 +1,77 @@
+package com.example.languageassistant.utils;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+public class TranscriptFileSinkTest {
+
+    private static final long WAIT_MS = 5000;
+
+    private File file;
+    private TranscriptFileSink sink;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("transcript", ".txt");
+        file.delete();
+        sink = new TranscriptFileSink(file);
+    }
+
+    @After
+    public void tearDown() {
+        sink.close();
+        file.delete();
+    }
+
+    @Test
+    public void utterancesInFlightTogetherKeepTheirOwnLines() throws Exception {
+        sink.onSegment(1, "u1-a");
+        // A cache hit completes the next utterance while the first is still being translated
+        sink.onSegment(2, "u2-a");
+        sink.onUtteranceComplete(2, null);
+        sink.onSegment(1, "u1-b");
+        sink.onUtteranceComplete(1, null);
+
+        assertEquals("u2-a\nu1-a u1-b\n", awaitContents("u2-a\nu1-a u1-b\n"));
+    }
+
+    @Test
+    public void utteranceFinishingAfterCloseIsDropped() throws Exception {
+        sink.onSegment(1, "before");
+        sink.onUtteranceComplete(1, null);
+        sink.onSegment(2, "in flight");
+        sink.close();
+
+        // A translation still running when the settings changed must not throw
+        sink.onSegment(2, "late");
+        sink.onUtteranceComplete(2, null);
+        sink.onSegment(3, "after");
+        sink.onUtteranceComplete(3, null);
+
+        assertEquals("before\n", awaitContents("before\n"));
+    }
+
+    // The writer thread appends in the background; waits until the file holds expected
+    private String awaitContents(String expected) throws IOException, InterruptedException {
+        long until = System.currentTimeMillis() + WAIT_MS;
+        String contents = "";
+        while (System.currentTimeMillis() < until) {
+            if (file.exists()) {
+                contents = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+                if (contents.equals(expected)) {
+                    break;
+                }
+            }
+            Thread.sleep(10);
+        }
+        return contents;
+    }
+}
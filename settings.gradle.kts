@@ -17,3 +17,5 @@ dependencyResolutionManagement {
 
 rootProject.name = "LanguageAssistant"
 include(":app")
+include(":core")
+include(":benchmarks")